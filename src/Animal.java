@@ -2,12 +2,18 @@
  * Animal
  * This class defines what an Animal is in the context of the program. It provides general-purpose methods for movement
  * and for actions that are related to its health, such as breeding and comparing the health of two Organisms. 
+ * The static methods apply the same rules to an animal stored at a position in a WorldStore, which is what the 
+ * simulation uses; the instance methods apply them to an Animal object copied out of the WorldStore.
  */
 abstract class Animal extends Organism implements Reproducible, Comparable<Organism> {
   private boolean moved;
-  public final int HEALTH_WHEN_FULL = 250; // cannot eat when this health is already surpassed
+  public static final int HEALTH_WHEN_FULL = 250; // cannot eat when this health is already surpassed
   private final static int MIN_HEALTH_TO_BREED = 20;
   private final static int BREEDING_HEALTH_DECREASE = 10;
+  
+  // the five possible moves: up, down, left, staying in place and right
+  private final static int[] MOVE_Y = {-1, 1, 0, 0, 0};
+  private final static int[] MOVE_X = {0, 0, -1, 0, 1};
   private boolean isFemale; // no setter methods defined since sex should not be changed outside of the class
   
   Animal(double health, boolean isFemale) {
@@ -96,63 +102,130 @@ abstract class Animal extends Organism implements Reproducible, Comparable<Organ
     }
   }       
   
+  /*
+   * switchSelection
+   * This method calls the current Organism's setSelected method, passing in true to it, and the organismEaten's
+   * setSelected method, passing false into it
+   * @param organismEaten, the organism to that should have been previously selected
+   */
+  public void switchSelection(Organism organismEaten) {
+    organismEaten.setSelected(false);
+    this.setSelected(true);
+  }
+  
+  /*
+   * canBreed
+   * This method determines if the animal stored at a position in the WorldStore is able to breed, such that its
+   * health is greater than the integer constant MIN_HEALTH_TO_BREED
+   * @param world, the WorldStore holding the animal
+   * @param cell, the index of the position of the animal
+   * @return true if the animal's health is large enough for it to breed, false otherwise
+   */
+  public static boolean canBreed(WorldStore world, int cell) {
+    return world.getHealth(cell) > MIN_HEALTH_TO_BREED;
+  }
+  
+  /*
+   * changeHealth
+   * This method changes the health of the animal stored at a position in the WorldStore by the value of the parameter
+   * change, unless its health would then reach HEALTH_WHEN_FULL
+   * @param world, the WorldStore holding the animal
+   * @param cell, the index of the position of the animal
+   * @param change, a double value by which the health will be changed (increase if positive, decrease if negative)
+   */
+  public static void changeHealth(WorldStore world, int cell, double change) {
+    if (world.getHealth(cell) + change < HEALTH_WHEN_FULL) {
+      world.setHealth(cell, (float) (world.getHealth(cell) + change));
+    }
+  }
+  
+  /*
+   * decreaseHealthOnBreeding
+   * This method decreases the health of the animal stored at a position in the WorldStore by the integer 
+   * constant BREEDING_HEALTH_DECREASE
+   * @param world, the WorldStore holding the animal
+   * @param cell, the index of the position of the animal
+   */
+  public static void decreaseHealthOnBreeding(WorldStore world, int cell) {
+    world.setHealth(cell, world.getHealth(cell) - BREEDING_HEALTH_DECREASE);
+  }
+  
+  /*
+   * compareHealth
+   * This method compares the health of two positions in the WorldStore in the same way as compareTo
+   * @param world, the WorldStore holding both organisms
+   * @param cell and cellToCompare, the indices of the two positions
+   * @return 1 if the health at cell is smaller than the health at cellToCompare, 0 if they are the same, 
+   * and -1 otherwise
+   */
+  public static int compareHealth(WorldStore world, int cell, int cellToCompare) {
+    if (world.getHealth(cell) < world.getHealth(cellToCompare)) {
+      return 1;
+    } else if (world.getHealth(cell) == world.getHealth(cellToCompare)) {
+      return 0;
+    } else {
+      return -1;
+    }
+  }
+  
+  /*
+   * switchSelection
+   * This method selects the organism at one position in the WorldStore and unselects the organism at another
+   * @param world, the WorldStore holding both organisms
+   * @param cell, the index of the position of the organism that becomes selected
+   * @param cellEaten, the index of the position of the organism that should have been previously selected
+   */
+  public static void switchSelection(WorldStore world, int cell, int cellEaten) {
+    world.setSelected(cellEaten, false);
+    world.setSelected(cell, true);
+  }
+  
   /*
    * findNextPosition
    * This method determines the next position of an animal after movement in a random fasion unless the organism
-   * is a sheep and the createBiasedPosition does not return null
+   * is a sheep and the createBiasedPosition does not return null. Each of the five possible moves is equally likely, 
+   * and the random numbers are drawn for the position of the animal during the current turn
    * @param oldYPos and oldXPos, two integers that contain the coordinates of the position of the organism before movement
-   * @param mapPortion, a 2D Organism array that is a portion of the entire map that the Organism has access to
-   * @param notMovePos, an integer array that may hold a position onto which the animal cannot move upon, so these values
-   * cannot be placed in the newPosition integer array
+   * @param mapPortion, a MapWindow over the portion of the entire map that the Organism has access to. The position
+   * blocked on the window, if any, cannot be placed in the newPosition integer array
+   * @return newPosition, the integer array of the window holding the new coordinates
    */
-  public int[] findNextPosition(int oldYPos, int oldXPos, Organism[][] mapPortion, int[] notMovePos) {
+  public static int[] findNextPosition(int oldYPos, int oldXPos, MapWindow mapPortion) {
     int[] newPosition = null;
-    if (mapPortion[oldYPos][oldXPos] instanceof Sheep) {
-      newPosition = ((Sheep) mapPortion[oldYPos][oldXPos]).createBiasedPosition(oldYPos, oldXPos, mapPortion, notMovePos);
+    if (mapPortion.getType(oldYPos, oldXPos) == WorldStore.SHEEP) {
+      newPosition = Sheep.createBiasedPosition(oldYPos, oldXPos, mapPortion);
     }
     if (newPosition == null) { // if there are no grass or wolves directly beside the sheep 
-      newPosition = new int[2];
+      WorldStore world = mapPortion.getWorld();
+      int cell = mapPortion.cell(oldYPos, oldXPos);
+      int attempt = 0;
+      
+      newPosition = mapPortion.getNextPosition();
       do {
-        newPosition[0] = (int) (Math.floor(Math.random() * (5 / 3.0) - (1 / 3.0))) + oldYPos;
-        if ((newPosition[0] == oldYPos - 1) || (newPosition[0] == oldYPos + 1)) {
-          newPosition[1] = oldXPos;
-        } else {
-          newPosition[1] = (int) Math.floor(Math.random() * 3 - 1) + oldXPos;
-        }
-      } while ((newPosition[0] >= mapPortion.length) || (newPosition[1] >= mapPortion[0].length) 
+        int move = world.getRandom().nextInt(world.getTurn(), cell, attempt, MOVE_Y.length);
+        attempt++;
+        newPosition[0] = oldYPos + MOVE_Y[move];
+        newPosition[1] = oldXPos + MOVE_X[move];
+      } while ((newPosition[0] >= mapPortion.getLenY()) || (newPosition[1] >= mapPortion.getLenX()) 
                  || (newPosition[0] < 0) || (newPosition[1] < 0) 
-                 || ((notMovePos != null) && (newPosition[0] == notMovePos[0]) && (newPosition[1] == notMovePos[1])));
+                 || mapPortion.isBlocked(newPosition[0], newPosition[1]));
     }
     
     return newPosition;
   }
   
-  abstract Organism[][] movement(int oldYPos, int oldXPos, int[] newPosition, Organism[][] nextMap); // forces each animal to have implementation for movement
-  
   /*
    * simpleMovement
-   * This method changes the Organism map 2D array such that the position on the map defined by the oldYPos and oldXPos
-   * coordinates is copied to the position on the map whose coordinates are defined by the newPosition array
-   * and then made null
-   * @param map, a 2D Organism array representing the relevant portion of the map that will be changed
+   * This method changes the map such that the position on the window defined by the oldYPos and oldXPos
+   * coordinates is copied to the position on the window whose coordinates are defined by the newPosition array
+   * and then made empty
+   * @param map, a MapWindow over the relevant portion of the map that will be changed
    * @param newPosition, an integer array holding the y and x coordinates, in that order, of the position on the map that
    * will be copied to
    * @param oldYPos and oldXPos, integers that hold the y and x coordinates of the position on the map that will
-   * be copied from and made null
+   * be copied from and made empty
    */
-  public void simpleMovement(Organism[][] map, int[] newPosition, int oldYPos, int oldXPos) {
-    map[newPosition[0]][newPosition[1]] = this;
-    map[oldYPos][oldXPos] = null;
-  }
-  
-  /*
-   * switchSelection
-   * This method calls the current Organism's setSelected method, passing in true to it, and the organismEaten's
-   * setSelected method, passing false into it
-   * @param organismEaten, the organism to that should have been previously selected
-   */
-  public void switchSelection(Organism organismEaten) {
-    organismEaten.setSelected(false);
-    this.setSelected(true);
+  public static void simpleMovement(MapWindow map, int[] newPosition, int oldYPos, int oldXPos) {
+    map.move(oldYPos, oldXPos, newPosition[0], newPosition[1]);
   }
 }
\ No newline at end of file
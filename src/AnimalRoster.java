@@ -0,0 +1,117 @@
+import java.util.Arrays;
+
+/*
+ * AnimalRoster
+ * Keeps the positions of the animals on the map, so that a turn only visits positions where an animal may be instead
+ * of every position on the map. Positions are added when an animal is created or moves, and are never removed
+ * directly: the compact method drops positions that no longer hold an animal, along with duplicates, once per turn.
+ * After compact is called, positions are sorted in the same order as a scan of the map row by row. They are sorted
+ * with a radix sort whose buffers are kept from one turn to the next, so compacting creates no new array once the
+ * roster has reached its largest size.
+ */
+class AnimalRoster {
+  private static final int RADIX_BITS = 11;
+  private static final int RADIX_MASK = (1 << RADIX_BITS) - 1;
+
+  private int[] cells;
+  private int size;
+  private int[] sorted; // reused by sort, as long as cells
+  private int[] counts; // reused by sort, one per value of a digit
+
+  AnimalRoster() {
+    this.cells = new int[16];
+    this.size = 0;
+    this.sorted = new int[16];
+    this.counts = new int[1 << RADIX_BITS];
+  }
+
+  /*
+   * add
+   * This method adds the position of an animal to the roster
+   * @param cell, the index of the position in the WorldStore
+   */
+  public void add(int cell) {
+    if (size == cells.length) {
+      cells = Arrays.copyOf(cells, size * 2);
+    }
+    cells[size] = cell;
+    size++;
+  }
+
+  /*
+   * get
+   * This method returns a position stored in the roster
+   * @param k, an integer between 0 and size() - 1
+   * @return the index of the position in the WorldStore
+   */
+  public int get(int k) {
+    return cells[k];
+  }
+
+  public int size() {
+    return size;
+  }
+
+  /*
+   * clear
+   * This method removes every position from the roster
+   */
+  public void clear() {
+    size = 0;
+  }
+
+  /*
+   * compact
+   * This method sorts the roster and removes positions that are repeated or that no longer hold an animal
+   * @param world, the WorldStore the positions belong to
+   */
+  public void compact(WorldStore world) {
+    sort();
+
+    int newSize = 0;
+    int previous = -1;
+    for (int k = 0; k < size; k++) {
+      if ((cells[k] != previous) && world.isAnimal(cells[k])) {
+        cells[newSize] = cells[k];
+        newSize++;
+      }
+      previous = cells[k];
+    }
+    size = newSize;
+  }
+
+  /*
+   * sort
+   * This method sorts the positions of the roster in increasing order, RADIX_BITS bits at a time, starting with the
+   * lowest bits, and only for as many digits as the largest position has
+   */
+  private void sort() {
+    if (sorted.length < cells.length) {
+      sorted = new int[cells.length];
+    }
+    int allBits = 0;
+    for (int k = 0; k < size; k++) {
+      allBits |= cells[k];
+    }
+
+    for (int shift = 0; (allBits >>> shift) != 0; shift += RADIX_BITS) {
+      Arrays.fill(counts, 0);
+      for (int k = 0; k < size; k++) {
+        counts[(cells[k] >>> shift) & RADIX_MASK]++;
+      }
+      int start = 0;
+      for (int digit = 0; digit < counts.length; digit++) {
+        int count = counts[digit];
+        counts[digit] = start; // where the positions with this digit start
+        start += count;
+      }
+      for (int k = 0; k < size; k++) {
+        sorted[counts[(cells[k] >>> shift) & RADIX_MASK]++] = cells[k];
+      }
+
+      int[] swap = cells;
+      cells = sorted;
+      sorted = swap;
+    }
+  }
+}
@@ -0,0 +1,497 @@
+import java.io.FileReader;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Properties;
+
+/*
+ * BatchRunner
+ * Runs the simulation without a display, as fast as possible, and reports how fast it ran. The parameters are read
+ * from the command line as key=value pairs, or from properties files given as config=path, later values replacing
+ * earlier ones. For example:
+ *   java BatchRunner xSize=500 ySize=500 numSheep=20000 numWolves=2000 maxTurns=1000 seed=42 movement=twophase
+ * The run stops after maxTurns turns or once the wolves have died out, as continueSimulation decides for the user
+ * interface too, and then prints the number of turns per second, percentiles of the time taken by a turn, the memory
+ * allocated by a turn over the second half of the run, up to its last 1000 turns, and the final populations. The
+ * percentiles are found from a LatencyHistogram, so no memory is kept for each turn. No AWT class is loaded, except
+ * to read a layout or write heatmap images.
+ * With runs=N, N runs seeded seed, seed + 1, ... are run as an Ensemble on the given number of threads instead, each
+ * for maxTurns turns whatever dies out, and the extinction statistics of the ensemble are printed. With layout=path,
+ * the initial organisms are read from a PNG image or raw byte mask of the map's size by a LayoutImporter instead of
+ * being generated. With grass=field, grass grows as a GrassField instead of spawning at random. With stats=path, the
+ * populations before the first turn and after each turn are written to a CSV file by a StatsWriter, whose thread writes
+ * them at least every statsFlushMillis milliseconds. With statsFormat=series as well, they are written with the turn
+ * and the time it took in nanoseconds to the binary files of a SeriesWriter whose names start with path, a new file
+ * being started every statsFileBytes bytes. With checkpoint=path, a CheckpointWriter writes a checkpoint to that file
+ * every checkpointEvery turns, and with resume=path, the map, its parameters and its seed are read from the newest
+ * checkpoint of that file instead of being created, the run going on from the turn of the checkpoint for maxTurns more
+ * turns. With events=path, every change made to the map is recorded to that file by an EventLog, along with a keyframe
+ * of the whole map every keyframeEvery turns, so that an EventReplayer can rebuild the map at any turn of the run. With
+ * heatmap=path, a Heatmap counts the turns each type of organism spent in each block of heatmapBlock by heatmapBlock
+ * positions of the map, and where sheep were eaten, animals starved and animals were born, and is written every
+ * heatmapEvery turns and after the last turn to binary files whose names start with path, or with heatmapFormat=png, to
+ * a PNG image per layer by HeatmapImages. Blocks are as small as a heatmap of 64 MB allows unless heatmapBlock is
+ * given.
+ */
+public class BatchRunner {
+  private static final String[] KEYS = {"config", "xSize", "ySize", "numGrass", "numSheep", "numWolves", "grassValue",
+    "healthSheep", "healthWolves", "seed", "maxTurns", "movement", "threads", "tileSize", "runs",
+    "densityRadius", "minBirthDistance", "maxBirthDistance", "grassLayout", "layout", "grass", "stats",
+    "statsFlushMillis", "statsFormat", "statsFileBytes",
+    "checkpoint", "checkpointEvery", "resume", "events", "keyframeEvery", "heatmap", "heatmapEvery", "heatmapBlock",
+    "heatmapFormat"};
+  private static final int ALLOCATION_WINDOW = 1000; // turns over which the memory allocated by a turn is measured
+
+  public static void main(String[] args) {
+    Properties settings = readSettings(args, KEYS);
+
+    int xSize = getInt(settings, "xSize", 100);
+    int ySize = getInt(settings, "ySize", 100);
+    int[] numOrganismsInitial = new int[3];
+    numOrganismsInitial[0] = getInt(settings, "numGrass", xSize * ySize / 10);
+    numOrganismsInitial[1] = getInt(settings, "numSheep", xSize * ySize / 20);
+    numOrganismsInitial[2] = getInt(settings, "numWolves", xSize * ySize / 80);
+    int grassValue = getInt(settings, "grassValue", 10);
+    int healthSheep = getInt(settings, "healthSheep", 70);
+    int healthWolves = getInt(settings, "healthWolves", 70);
+    long seed = Long.parseLong(settings.getProperty("seed", Long.toString(System.nanoTime())));
+    int maxTurns = getInt(settings, "maxTurns", 1000);
+    String movement = settings.getProperty("movement", "sequential");
+    int threads = getInt(settings, "threads", Runtime.getRuntime().availableProcessors());
+    int runs = getInt(settings, "runs", 1);
+    int densityRadius = getInt(settings, "densityRadius", OrganismCreator.DEFAULT_DENSITY_RADIUS);
+    int minBirthDistance = getInt(settings, "minBirthDistance", OrganismCreator.DEFAULT_MIN_BIRTH_DISTANCE);
+    int maxBirthDistance = getInt(settings, "maxBirthDistance", OrganismCreator.DEFAULT_MAX_BIRTH_DISTANCE);
+    String layoutName = settings.getProperty("grassLayout", "uniform");
+    int grassLayout = WorldGenerator.UNIFORM;
+    if (layoutName.equals("clustered")) {
+      grassLayout = WorldGenerator.CLUSTERED;
+    } else if (layoutName.equals("banded")) {
+      grassLayout = WorldGenerator.BANDED;
+    } else if (!layoutName.equals("uniform")) {
+      System.out.println("The grass layout must be one of uniform, clustered or banded.");
+      System.exit(1);
+    }
+    String grass = settings.getProperty("grass", "spawned");
+    if (!grass.equals("spawned") && !grass.equals("field")) {
+      System.out.println("The grass must be either spawned or field.");
+      System.exit(1);
+    }
+
+    if ((xSize <= 0) || (ySize <= 0) || (maxTurns < 0) || (threads <= 0) || (runs <= 0) || (densityRadius <= 0)) {
+      System.out.println("The map dimensions, the numbers of turns, threads and runs and the density radius must be "
+                           + "positive.");
+      System.exit(1);
+    } else if ((numOrganismsInitial[0] < 0) || (numOrganismsInitial[1] < 0) || (numOrganismsInitial[2] < 0)) {
+      System.out.println("The number of any organism on the map must be positive.");
+      System.exit(1);
+    } else if ((long) numOrganismsInitial[0] + numOrganismsInitial[1] + numOrganismsInitial[2] > (long) xSize * ySize) {
+      System.out.println("Too many organisms have been entered for the map size specified.");
+      System.exit(1);
+    } else if ((grassValue < 0) || (healthSheep < 0) || (healthWolves < 0)) {
+      System.out.println("The health of any organism on the map must be positive.");
+      System.exit(1);
+    } else if ((minBirthDistance <= 0) || (maxBirthDistance < minBirthDistance)) {
+      System.out.println("The minimum birth distance must be positive and at most the maximum birth distance.");
+      System.exit(1);
+    }
+    String layoutPath = settings.getProperty("layout");
+
+    if (runs > 1) {
+      Ensemble ensemble = new Ensemble(ySize, xSize, grassValue, healthSheep, healthWolves, numOrganismsInitial);
+      ensemble.setDensityRadius(densityRadius);
+      ensemble.setBirthDistances(minBirthDistance, maxBirthDistance);
+      ensemble.setGrassLayout(grassLayout);
+      ensemble.setLayoutPath(layoutPath);
+      ensemble.setGrassField(grass.equals("field"));
+      long start = System.nanoTime();
+      EnsembleResult result = ensemble.run(runs, maxTurns, seed, threads);
+      reportEnsemble(result, seed, System.nanoTime() - start);
+      return;
+    }
+
+    OrganismManager environment = null;
+    String resumePath = settings.getProperty("resume");
+    long setupStart = System.nanoTime();
+    if (resumePath != null) {
+      try {
+        CheckpointReader checkpoint = new CheckpointReader(resumePath);
+        environment = new OrganismManager(checkpoint);
+        seed = checkpoint.getSeed();
+      } catch (IOException e) {
+        System.out.println("The checkpoint could not be read: " + e.getMessage());
+        System.exit(1);
+      }
+    } else if (layoutPath == null) {
+      environment = new OrganismManager(ySize, xSize, 0, ySize - 1, grassValue, healthSheep, healthWolves,
+                                        numOrganismsInitial, seed, grassLayout);
+    } else {
+      try {
+        environment = new OrganismManager(ySize, xSize, layoutPath, grassValue, healthSheep, healthWolves, seed);
+      } catch (IOException e) {
+        System.out.println("The layout could not be read: " + e.getMessage());
+        System.exit(1);
+      }
+    }
+    if (resumePath == null) { // a resumed map keeps the density radius, birth distances and grass of its checkpoint
+      environment.setDensityRadius(densityRadius);
+      environment.setBirthDistances(minBirthDistance, maxBirthDistance);
+      environment.setGrassField(grass.equals("field"));
+    }
+    long setupTime = System.nanoTime() - setupStart;
+    if (movement.equals("tiled")) {
+      environment.setParallelMovement(getInt(settings, "tileSize", 32), threads);
+    } else if (movement.equals("claimed")) {
+      environment.setClaimedMovement(threads);
+    } else if (movement.equals("twophase")) {
+      environment.setTwoPhaseMovement(threads);
+    } else if (!movement.equals("sequential")) {
+      System.out.println("The movement must be one of sequential, tiled, claimed or twophase.");
+      System.exit(1);
+    }
+
+    StatsWriter populationWriter = null;
+    long[] metrics = new long[1]; // time taken by the turn, written with the populations in binary files
+    String statsFormat = settings.getProperty("statsFormat", "csv");
+    int statsFlushMillis = getInt(settings, "statsFlushMillis", (int) StatsWriter.DEFAULT_FLUSH_MILLIS);
+    if (!statsFormat.equals("csv") && !statsFormat.equals("series")) {
+      System.out.println("The stats format must be either csv or series.");
+      System.exit(1);
+    }
+    if (settings.getProperty("stats") != null) {
+      if (statsFormat.equals("series")) {
+        populationWriter = new StatsWriter(settings.getProperty("stats"), new String[] {"turnNanos"},
+                                           getInt(settings, "statsFileBytes", (int) StatsWriter.DEFAULT_FILE_BYTES),
+                                           statsFlushMillis);
+      } else {
+        populationWriter = new StatsWriter(settings.getProperty("stats"), statsFlushMillis);
+      }
+      populationWriter.writeOut(environment.getWorld(), metrics);
+    }
+
+    CheckpointWriter checkpointWriter = null;
+    int checkpointEvery = getInt(settings, "checkpointEvery", 1000);
+    int numCheckpoints = 0;
+    long checkpointTime = 0;
+    if (checkpointEvery <= 0) {
+      System.out.println("The number of turns between checkpoints must be positive.");
+      System.exit(1);
+    }
+    if (settings.getProperty("checkpoint") != null) {
+      try {
+        checkpointWriter = new CheckpointWriter(settings.getProperty("checkpoint"), environment.getWorld());
+      } catch (IOException e) {
+        System.out.println("The checkpoint file could not be created: " + e.getMessage());
+        System.exit(1);
+      }
+    }
+
+    EventLog eventLog = null;
+    int keyframeEvery = getInt(settings, "keyframeEvery", 1000);
+    if (keyframeEvery <= 0) {
+      System.out.println("The number of turns between keyframes must be positive.");
+      System.exit(1);
+    }
+    if (settings.getProperty("events") != null) {
+      try {
+        eventLog = new EventLog(settings.getProperty("events"), environment.getWorld(), keyframeEvery);
+        environment.getWorld().setEventLog(eventLog);
+      } catch (IOException e) {
+        System.out.println("The event log could not be created: " + e.getMessage());
+        System.exit(1);
+      }
+    }
+
+    Heatmap heatmap = null;
+    String heatmapPath = settings.getProperty("heatmap");
+    boolean heatmapImages = settings.getProperty("heatmapFormat", "binary").equals("png");
+    int heatmapEvery = getInt(settings, "heatmapEvery", 100);
+    int heatmapBlock = 1;
+    if (heatmapPath != null) { // finding the default block size loads Heatmap, which is only needed for a heatmap
+      heatmapBlock = getInt(settings, "heatmapBlock",
+                            Heatmap.getBlockSize(environment.getWorld(), Heatmap.DEFAULT_MAX_BYTES));
+    }
+    int numHeatmaps = 0;
+    long heatmapTime = 0;
+    if (!heatmapImages && !settings.getProperty("heatmapFormat", "binary").equals("binary")) {
+      System.out.println("The heatmap format must be either binary or png.");
+      System.exit(1);
+    } else if ((heatmapEvery <= 0) || (heatmapBlock <= 0)) {
+      System.out.println("The number of turns between heatmaps and the size of their blocks must be positive.");
+      System.exit(1);
+    }
+    if (heatmapPath != null) {
+      heatmap = new Heatmap(environment.getWorld(), heatmapBlock);
+      environment.getWorld().setHeatmap(heatmap);
+    }
+
+    // the simulation itself
+    LatencyHistogram turnTimes = new LatencyHistogram();
+    // bytes allocated by this thread since the start, after each of the last ALLOCATION_WINDOW turns
+    long[] allocated = new long[ALLOCATION_WINDOW + 1];
+    long allocatedStart = allocatedBytes();
+    int numTurns = 0;
+    long start = System.nanoTime();
+    while ((numTurns < maxTurns) && environment.continueSimulation()) {
+      long turnStart = System.nanoTime();
+      environment.movementCycle();
+      long turnTime = System.nanoTime() - turnStart;
+      turnTimes.record(turnTime);
+      allocated[numTurns % allocated.length] = allocatedBytes() - allocatedStart;
+      if (populationWriter != null) {
+        metrics[0] = turnTime;
+        populationWriter.writeOut(environment.getWorld(), metrics);
+      }
+      if ((checkpointWriter != null) && (environment.getWorld().getTurn() % checkpointEvery == 0)) {
+        long checkpointStart = System.nanoTime();
+        environment.writeCheckpoint(checkpointWriter);
+        checkpointTime += System.nanoTime() - checkpointStart;
+        numCheckpoints++;
+      }
+      if (eventLog != null) {
+        try {
+          eventLog.endTurn();
+        } catch (IOException e) {
+          System.out.println("The event log could not be written, no more events are recorded: " + e.getMessage());
+          environment.getWorld().setEventLog(null);
+          eventLog = null;
+        }
+      }
+      if ((heatmap != null) && (environment.getWorld().getTurn() % heatmapEvery == 0)) {
+        long heatmapStart = System.nanoTime();
+        if (writeHeatmap(heatmap, heatmapPath, heatmapImages, environment.getWorld().getTurn())) {
+          heatmapTime += System.nanoTime() - heatmapStart;
+          numHeatmaps++;
+        } else {
+          environment.getWorld().setHeatmap(null);
+          heatmap = null;
+        }
+      }
+      numTurns++;
+    }
+    long elapsed = System.nanoTime() - start;
+    environment.setSequentialMovement(); // stops the threads of parallel movement, if any
+    if (populationWriter != null) {
+      populationWriter.exit();
+      if (populationWriter.getDropped() > 0) {
+        System.out.println(populationWriter.getDropped() + " turns were left out of " + settings.getProperty("stats")
+                             + " because it could not be written fast enough.");
+      }
+    }
+
+    if (checkpointWriter != null) {
+      try {
+        checkpointWriter.close();
+      } catch (IOException e) {
+        System.out.println("The checkpoint file could not be closed: " + e.getMessage());
+      }
+    }
+    if (eventLog != null) {
+      try {
+        eventLog.close();
+      } catch (IOException e) {
+        System.out.println("The event log could not be closed: " + e.getMessage());
+      }
+    }
+    if ((heatmap != null) && (environment.getWorld().getTurn() % heatmapEvery != 0)) {
+      long heatmapStart = System.nanoTime();
+      if (writeHeatmap(heatmap, heatmapPath, heatmapImages, environment.getWorld().getTurn())) {
+        heatmapTime += System.nanoTime() - heatmapStart;
+        numHeatmaps++;
+      }
+    }
+
+    report(environment.getWorld(), seed, movement, setupTime, numTurns, elapsed, turnTimes,
+           (allocatedStart < 0) ? null : allocated);
+    if (numCheckpoints > 0) {
+      System.out.println("Checkpoints: " + numCheckpoints + " written to " + settings.getProperty("checkpoint") + ", "
+                           + String.format("%.3f", checkpointTime / 1e6 / numCheckpoints) + " ms each");
+    }
+    if (eventLog != null) {
+      System.out.println("Events: " + eventLog.getCount() + " recorded to " + settings.getProperty("events") + ", with "
+                           + eventLog.getNumKeyframes() + " keyframes");
+    }
+    if (numHeatmaps > 0) {
+      System.out.println("Heatmaps: " + numHeatmaps + " written to " + heatmapPath + ", in blocks of " + heatmapBlock
+                           + " by " + heatmapBlock + " positions, "
+                           + String.format("%.3f", heatmapTime / 1e6 / numHeatmaps) + " ms each");
+    }
+    if (numTurns < maxTurns) {
+      System.out.println("\nOne of the organisms has ceased to exist.");
+    }
+  }
+
+  /*
+   * readSettings
+   * This method reads key=value pairs from the command line, loading the properties file of every config=path pair,
+   * and exits the program if an argument is not a pair or if a file cannot be read
+   * @param args, the arguments of the program
+   * @param keys, a String array holding the accepted keys
+   * @return settings, the Properties holding the parameters, later pairs replacing earlier ones
+   */
+  static Properties readSettings(String[] args, String[] keys) {
+    Properties settings = new Properties();
+    try {
+      for (int i = 0; i < args.length; i++) {
+        int split = args[i].indexOf('=');
+        if ((split <= 0) || !Arrays.asList(keys).contains(args[i].substring(0, split))) {
+          System.out.println("Invalid argument " + args[i] + ". Arguments must be key=value pairs, the keys being "
+                               + String.join(", ", keys));
+          System.exit(1);
+        }
+
+        String key = args[i].substring(0, split);
+        String value = args[i].substring(split + 1);
+        if (key.equals("config")) {
+          try (FileReader reader = new FileReader(value)) {
+            settings.load(reader);
+          }
+        } else {
+          settings.setProperty(key, value);
+        }
+      }
+    } catch (IOException e) {
+      System.out.println("The properties file could not be read: " + e.getMessage());
+      System.exit(1);
+    }
+    return settings;
+  }
+
+  /*
+   * getInt
+   * This method reads an integer parameter, exiting the program if it is not an integer
+   * @param settings, the Properties holding the parameters
+   * @param key, the name of the parameter
+   * @param defaultValue, the value used if the parameter is missing
+   * @return the value of the parameter
+   */
+  static int getInt(Properties settings, String key, int defaultValue) {
+    String value = settings.getProperty(key);
+    if (value == null) {
+      return defaultValue;
+    }
+    try {
+      return Integer.parseInt(value.trim());
+    } catch (NumberFormatException e) {
+      System.out.println("The value of " + key + " must be an integer, not " + value);
+      System.exit(1);
+      return defaultValue;
+    }
+  }
+
+  /*
+   * report
+   * This method prints the parameters of the run, the time taken to create or resume the map, its throughput, the
+   * 50th, 90th, 99th percentiles and maximum of the time taken by a turn, the mean number of bytes a turn allocated
+   * over the second half of the run, once the arrays of the simulation have grown to their final size, or over its
+   * last ALLOCATION_WINDOW turns if fewer, and the number of organisms of each type left on the map
+   * @param world, the WorldStore at the end of the run
+   * @param seed, the seed of the run, printed so the run can be repeated
+   * @param movement, the name of the movement used
+   * @param setupTime, the time taken to create or resume the map in nanoseconds
+   * @param numTurns, the number of turns run
+   * @param elapsed, the time taken by the entire run in nanoseconds
+   * @param turnTimes, the LatencyHistogram of the time taken by each turn
+   * @param allocated, the bytes allocated by the thread running the simulation from its start to the end of each of
+   * the last ALLOCATION_WINDOW turns, the turn numbered k being at k modulo its length, or null if the virtual
+   * machine does not measure them
+   */
+  private static void report(WorldStore world, long seed, String movement, long setupTime, int numTurns, long elapsed,
+                             LatencyHistogram turnTimes, long[] allocated) {
+    int[] count = world.getPopulations();
+
+    System.out.println("Map: " + world.getLenX() + "x" + world.getLenY() + ", seed " + seed + ", " + movement
+                         + " movement");
+    System.out.println("Setup: " + String.format("%.3f", setupTime / 1e6) + " ms, starting at turn "
+                         + (world.getTurn() - numTurns));
+    System.out.println("Turns: " + numTurns + " in " + String.format("%.3f", elapsed / 1e9) + " s");
+    System.out.println("Turns per second: " + String.format("%.1f", numTurns / (elapsed / 1e9)));
+    if (numTurns > 0) {
+      System.out.println("Turn latency (ms): p50 " + millis(turnTimes, 0.50) + ", p90 " + millis(turnTimes, 0.90)
+                           + ", p99 " + millis(turnTimes, 0.99) + ", max " + millis(turnTimes, 1.0));
+    }
+    if ((allocated != null) && (numTurns >= 2)) {
+      int span = Math.min(numTurns - numTurns / 2, allocated.length - 1);
+      long bytes = allocated[(numTurns - 1) % allocated.length] - allocated[(numTurns - 1 - span) % allocated.length];
+      System.out.println("Allocated per turn: " + bytes / span + " bytes on the main thread, over the last " + span
+                           + " turns");
+    }
+    System.out.println("Final populations: grass " + count[WorldStore.GRASS] + ", sheep " + count[WorldStore.SHEEP]
+                         + ", wolves " + count[WorldStore.WOLF]);
+  }
+
+  /*
+   * reportEnsemble
+   * This method prints, for each type of organism, the fraction of runs in which it went extinct, the mean turn in
+   * which it did, and its mean population and standard deviation after the last turn, over every run
+   * @param result, the EnsembleResult of the runs
+   * @param seed, the seed of the first run
+   * @param elapsed, the time taken by the entire ensemble in nanoseconds
+   */
+  private static void reportEnsemble(EnsembleResult result, long seed, long elapsed) {
+    String[] names = {"", "Grass", "Sheep", "Wolves"};
+    int last = result.getMaxTurns();
+
+    System.out.println("Runs: " + result.getNumRuns() + " from seed " + seed + " in " 
+                         + String.format("%.3f", elapsed / 1e9) + " s");
+    for (int type = WorldStore.GRASS; type <= WorldStore.WOLF; type++) {
+      System.out.println(names[type] + ": extinct in " 
+                           + String.format("%.1f", 100 * result.getExtinctionProbability(type)) + "% of runs"
+                           + (result.getMeanExtinctionTurn(type) >= 0 
+                                ? String.format(" (mean turn %.1f)", result.getMeanExtinctionTurn(type)) : "")
+                           + String.format(", population at turn %d: %.1f +/- %.1f", last, result.getMean(type, last), 
+                                           Math.sqrt(result.getVariance(type, last))));
+    }
+  }
+
+  /*
+   * writeHeatmap
+   * This method writes a Heatmap as it is at a turn, printing why if it cannot
+   * @param heatmap, the Heatmap
+   * @param path, the path of the files without their layer, turn and extension
+   * @param images, true to write a PNG image per layer, false to write a binary file
+   * @param turn, the current turn
+   * @return true if the heatmap was written
+   */
+  private static boolean writeHeatmap(Heatmap heatmap, String path, boolean images, int turn) {
+    try {
+      if (images) {
+        HeatmapImages.write(heatmap, path, turn);
+      } else {
+        heatmap.writeBinary(path, turn);
+      }
+      return true;
+    } catch (IOException e) {
+      System.out.println("The heatmap could not be written, no more heatmaps are written: " + e.getMessage());
+      return false;
+    }
+  }
+
+  /*
+   * allocatedBytes
+   * This method returns the number of bytes allocated by the current thread so far, if the virtual machine 
+   * measures it
+   * @return the number of bytes, or -1 if it is not measured
+   */
+  private static long allocatedBytes() {
+    java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    if (threads instanceof com.sun.management.ThreadMXBean) {
+      com.sun.management.ThreadMXBean hotspotThreads = (com.sun.management.ThreadMXBean) threads;
+      if (hotspotThreads.isThreadAllocatedMemoryEnabled()) {
+        return hotspotThreads.getCurrentThreadAllocatedBytes();
+      }
+    }
+    return -1;
+  }
+
+  /*
+   * millis
+   * This method finds a percentile of the turn times
+   * @param turnTimes, the LatencyHistogram of the time taken by each turn, not empty
+   * @param fraction, the percentile as a fraction between 0 and 1
+   * @return the percentile in milliseconds, formatted with three decimals
+   */
+  private static String millis(LatencyHistogram turnTimes, double fraction) {
+    return String.format("%.3f", turnTimes.getPercentile(fraction) / 1e6);
+  }
+}
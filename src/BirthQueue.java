@@ -0,0 +1,68 @@
+import java.util.Arrays;
+
+/*
+ * BirthQueue
+ * Keeps the animals born during a turn until they are placed on the map, all at once, at the end of the turn. For each
+ * birth, the queue stores the type of animal and the positions of both parents at the time they bred, so that the
+ * new animal can be placed near them.
+ */
+class BirthQueue {
+  private byte[] types;
+  private int[] parents; // two positions per birth
+  private int size;
+
+  BirthQueue() {
+    this.types = new byte[16];
+    this.parents = new int[32];
+    this.size = 0;
+  }
+
+  /*
+   * add
+   * This method adds a birth to the queue
+   * @param type, either WorldStore.SHEEP or WorldStore.WOLF
+   * @param parent and otherParent, the indices of the positions of the parents in the WorldStore
+   */
+  public void add(byte type, int parent, int otherParent) {
+    if (size == types.length) {
+      types = Arrays.copyOf(types, size * 2);
+      parents = Arrays.copyOf(parents, size * 4);
+    }
+    types[size] = type;
+    parents[2 * size] = parent;
+    parents[2 * size + 1] = otherParent;
+    size++;
+  }
+
+  /*
+   * addAll
+   * This method moves every birth of another queue to the end of this queue
+   * @param other, the BirthQueue being emptied
+   */
+  public void addAll(BirthQueue other) {
+    for (int k = 0; k < other.size; k++) {
+      add(other.types[k], other.parents[2 * k], other.parents[2 * k + 1]);
+    }
+    other.clear();
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public byte getType(int k) {
+    return types[k];
+  }
+
+  public int getParent(int k) {
+    return parents[2 * k];
+  }
+
+  public int getOtherParent(int k) {
+    return parents[2 * k + 1];
+  }
+
+  public void clear() {
+    size = 0;
+  }
+}
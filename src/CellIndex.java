@@ -0,0 +1,216 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+
+/*
+ * CellIndex
+ * A set of positions on the map stored as a bitset, one bit per position, along with a Fenwick tree holding the number
+ * of positions in each 64-bit word of the bitset. Adding or removing a position, counting the positions before a given
+ * one and finding the position of a given rank (the k-th position of the set in the order of a scan of the map row by
+ * row) all take O(log n) time, so a random position of the set can be chosen without scanning the map.
+ * While several threads change the map at once, the set can be put in concurrent mode, in which positions are added 
+ * and removed with atomic operations on the bitset alone. The Fenwick tree is then rebuilt from the bitset in a 
+ * single pass once concurrent mode ends, and counts are only correct after that.
+ */
+class CellIndex {
+  private static final VarHandle WORDS = MethodHandles.arrayElementVarHandle(long[].class);
+
+  private long[] words;
+  private int[] tree; // tree[w] holds the number of positions in a range of words ending at word w - 1
+  private int size;
+  private boolean concurrent;
+
+  /*
+   * Creates a set able to hold the positions from 0 to capacity - 1
+   * @param capacity, the number of positions on the map
+   * @param full, true if every position starts in the set, false if the set starts empty
+   */
+  CellIndex(int capacity, boolean full) {
+    this.words = new long[(capacity + 63) / 64];
+    this.tree = new int[words.length + 1];
+    this.size = 0;
+    this.concurrent = false;
+
+    if (full) {
+      for (int w = 0; w < words.length; w++) {
+        int numBits = Math.min(64, capacity - w * 64);
+        words[w] = (numBits == 64) ? -1L : (1L << numBits) - 1;
+      }
+      rebuild();
+    }
+  }
+
+  /*
+   * setConcurrent
+   * This method starts or ends concurrent mode, rebuilding the Fenwick tree when it ends
+   * @param concurrent, true if positions may be added and removed by several threads at once until the next call
+   */
+  public void setConcurrent(boolean concurrent) {
+    this.concurrent = concurrent;
+    if (!concurrent) {
+      rebuild();
+    }
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public boolean contains(int cell) {
+    return (words[cell >>> 6] & (1L << cell)) != 0;
+  }
+
+  /*
+   * intersect
+   * This method replaces the positions of the set with the positions found in both of two other sets
+   * @param first and second, CellIndex sets able to hold the same positions as this set
+   */
+  public void intersect(CellIndex first, CellIndex second) {
+    for (int w = 0; w < words.length; w++) {
+      words[w] = first.words[w] & second.words[w];
+    }
+    rebuild();
+  }
+
+  /*
+   * getStateBytes
+   * This method finds the number of bytes writeState writes
+   * @return the number of bytes of the bitset
+   */
+  public int getStateBytes() {
+    return 8 * words.length;
+  }
+
+  /*
+   * writeState
+   * This method copies the bitset to a buffer, in the byte order of the buffer
+   * @param out, the ByteBuffer written to, from its position, which is moved past the bitset
+   */
+  public void writeState(ByteBuffer out) {
+    out.asLongBuffer().put(words);
+    out.position(out.position() + getStateBytes());
+  }
+
+  /*
+   * readState
+   * This method replaces the positions of the set with those of a bitset written by writeState, or built in the same
+   * way, and rebuilds the Fenwick tree
+   * @param in, the ByteBuffer read from, from its position, which is moved past the bitset
+   */
+  public void readState(ByteBuffer in) {
+    in.asLongBuffer().get(words);
+    in.position(in.position() + getStateBytes());
+    rebuild();
+  }
+
+  /*
+   * assign
+   * This method replaces the positions of the set with those of a bitset, and rebuilds the Fenwick tree
+   * @param bits, a long array holding one bit per position, 64 positions per long, as long as the bitset of the set
+   */
+  public void assign(long[] bits) {
+    System.arraycopy(bits, 0, words, 0, words.length);
+    rebuild();
+  }
+
+  /*
+   * add
+   * This method adds a position to the set if it is not already in it
+   * @param cell, the index of the position
+   */
+  public void add(int cell) {
+    if (concurrent) {
+      WORDS.getAndBitwiseOr(words, cell >>> 6, 1L << cell);
+    } else if (!contains(cell)) {
+      words[cell >>> 6] |= 1L << cell;
+      update(cell >>> 6, 1);
+    }
+  }
+
+  /*
+   * remove
+   * This method removes a position from the set if it is in it
+   * @param cell, the index of the position
+   */
+  public void remove(int cell) {
+    if (concurrent) {
+      WORDS.getAndBitwiseAnd(words, cell >>> 6, ~(1L << cell));
+    } else if (contains(cell)) {
+      words[cell >>> 6] &= ~(1L << cell);
+      update(cell >>> 6, -1);
+    }
+  }
+
+  /*
+   * countBefore
+   * This method counts the positions of the set smaller than a given position
+   * @param cell, the index of a position, or the number of positions on the map to count the entire set
+   * @return the number of positions of the set before cell
+   */
+  public int countBefore(int cell) {
+    int w = cell >>> 6;
+    int count = 0;
+    for (int i = w; i > 0; i -= i & -i) {
+      count += tree[i];
+    }
+    if ((cell & 63) != 0) {
+      count += Long.bitCount(words[w] & ((1L << cell) - 1));
+    }
+    return count;
+  }
+
+  /*
+   * select
+   * This method finds the position of a given rank in the set
+   * @param rank, an integer from 0 to size() - 1
+   * @return the index of the position preceded by exactly rank positions of the set
+   */
+  public int select(int rank) {
+    int w = 0;
+    for (int step = Integer.highestOneBit(tree.length - 1); step > 0; step >>= 1) {
+      if ((w + step < tree.length) && (tree[w + step] <= rank)) {
+        w += step;
+        rank -= tree[w];
+      }
+    }
+
+    long word = words[w];
+    for (int i = 0; i < rank; i++) {
+      word &= word - 1; // drops the lowest position of the word
+    }
+    return (w << 6) + Long.numberOfTrailingZeros(word);
+  }
+
+  /*
+   * rebuild
+   * This method recomputes the Fenwick tree and the size of the set from the bitset in O(n / 64) time
+   */
+  private void rebuild() {
+    size = 0;
+    for (int i = 1; i < tree.length; i++) {
+      tree[i] = 0;
+    }
+    for (int w = 0; w < words.length; w++) {
+      int count = Long.bitCount(words[w]);
+      size += count;
+      tree[w + 1] += count;
+      int parent = (w + 1) + ((w + 1) & -(w + 1));
+      if (parent < tree.length) {
+        tree[parent] += tree[w + 1];
+      }
+    }
+  }
+
+  /*
+   * update
+   * This method changes the number of positions of a word stored in the Fenwick tree
+   * @param w, the index of the word
+   * @param change, 1 or -1
+   */
+  private void update(int w, int change) {
+    size += change;
+    for (int i = w + 1; i < tree.length; i += i & -i) {
+      tree[i] += change;
+    }
+  }
+}
@@ -0,0 +1,114 @@
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/*
+ * CheckpointReader
+ * Reads the newest complete checkpoint of a file written by a CheckpointWriter. The file is mapped into memory and
+ * only the headers of its two slots are read when it is opened. The arrays of the checkpoint are copied in bulk into
+ * a WorldStore by restore, which is how an OrganismManager resumes a simulation from a checkpoint.
+ */
+class CheckpointReader {
+  private MappedByteBuffer slot; // the slot holding the newest complete checkpoint
+
+  /*
+   * Maps a file and finds its newest complete checkpoint
+   * @param path, the path of the file
+   */
+  CheckpointReader(String path) throws IOException {
+    try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+      long slotBytes = channel.size() / 2;
+      if ((slotBytes < CheckpointWriter.HEADER_BYTES) || (slotBytes > Integer.MAX_VALUE)) {
+        throw new IOException(path + " was not written by a CheckpointWriter");
+      }
+
+      long newest = -1;
+      for (int s = 0; s < 2; s++) {
+        MappedByteBuffer candidate = channel.map(FileChannel.MapMode.READ_ONLY, s * slotBytes, slotBytes);
+        candidate.order(ByteOrder.LITTLE_ENDIAN);
+        if ((candidate.getLong(CheckpointWriter.MAGIC_OFFSET) == CheckpointWriter.MAGIC)
+              && (candidate.getLong(CheckpointWriter.SEQUENCE_OFFSET) > newest)) {
+          slot = candidate;
+          newest = candidate.getLong(CheckpointWriter.SEQUENCE_OFFSET);
+        }
+      }
+      if (slot == null) {
+        throw new IOException(path + " holds no complete checkpoint");
+      } else if (slot.getInt(CheckpointWriter.VERSION_OFFSET) != CheckpointWriter.VERSION) {
+        throw new IOException(path + " has version " + slot.getInt(CheckpointWriter.VERSION_OFFSET) + " instead of "
+                                + CheckpointWriter.VERSION);
+      }
+    }
+  }
+
+  public int getLenY() {
+    return slot.getInt(CheckpointWriter.LEN_Y_OFFSET);
+  }
+
+  public int getLenX() {
+    return slot.getInt(CheckpointWriter.LEN_X_OFFSET);
+  }
+
+  public int getTurn() {
+    return slot.getInt(CheckpointWriter.TURN_OFFSET);
+  }
+
+  public long getSeed() {
+    return slot.getLong(CheckpointWriter.SEED_OFFSET);
+  }
+
+  public int getGrassHealth() {
+    return slot.getInt(CheckpointWriter.GRASS_HEALTH_OFFSET);
+  }
+
+  public int getSheepHealth() {
+    return slot.getInt(CheckpointWriter.SHEEP_HEALTH_OFFSET);
+  }
+
+  public int getWolfHealth() {
+    return slot.getInt(CheckpointWriter.WOLF_HEALTH_OFFSET);
+  }
+
+  public int getDensityRadius() {
+    return slot.getInt(CheckpointWriter.DENSITY_RADIUS_OFFSET);
+  }
+
+  public int getMinBirthDistance() {
+    return slot.getInt(CheckpointWriter.MIN_BIRTH_DISTANCE_OFFSET);
+  }
+
+  public int getMaxBirthDistance() {
+    return slot.getInt(CheckpointWriter.MAX_BIRTH_DISTANCE_OFFSET);
+  }
+
+  public boolean hasGrassField() {
+    return (slot.getInt(CheckpointWriter.FLAGS_OFFSET) & CheckpointWriter.GRASS_FIELD) != 0;
+  }
+
+  /*
+   * restore
+   * This method replaces the map of a WorldStore with the map of the checkpoint, along with its turn and its biomass,
+   * and records in the OrganismCreator whether the initial grass had been created
+   * @param world, an empty WorldStore of the same size, with a GrassField if the checkpoint has one
+   * @param creator, the OrganismCreator of the map
+   */
+  public void restore(WorldStore world, OrganismCreator creator) {
+    if ((world.getLenY() != getLenY()) || (world.getLenX() != getLenX())
+          || ((world.getGrassField() != null) != hasGrassField())) {
+      throw new IllegalArgumentException("The map does not match the one of the checkpoint");
+    } else if (slot.capacity() < CheckpointWriter.getSlotBytes(world)) {
+      throw new IllegalArgumentException("The checkpoint is shorter than the map it holds");
+    }
+
+    slot.position(CheckpointWriter.HEADER_BYTES);
+    world.readState(slot, getTurn());
+    if (hasGrassField()) {
+      world.getGrassField().readState(slot);
+    }
+    creator.setInitialGrassCreated((slot.getInt(CheckpointWriter.FLAGS_OFFSET)
+                                      & CheckpointWriter.INITIAL_GRASS_CREATED) != 0);
+  }
+}
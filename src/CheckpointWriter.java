@@ -0,0 +1,155 @@
+import java.io.IOException;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/*
+ * CheckpointWriter
+ * Writes checkpoints of a simulation to a file that a CheckpointReader can resume it from. A checkpoint holds the
+ * parameters of the OrganismCreator, the turn, the seed of the CounterRandom, everything the WorldStore stores for
+ * each position along with the positions where grass can spawn, and the biomass of the GrassField if grass grows as
+ * a field. The file holds two slots of the same size, mapped into memory once, and checkpoints are written to either
+ * slot in turn, so the previous checkpoint stays whole while the next one is written. Each slot starts with a header
+ * of HEADER_BYTES bytes, followed by the arrays of the WorldStore and of the GrassField, each copied in bulk in
+ * little-endian order. The magic number of a slot is cleared before it is written and set once everything else is,
+ * so a slot whose writing was cut short by the program dying is never resumed from. Nothing is forced to the disk:
+ * the operating system writes the slots out on its own, which survives the program dying but not the machine.
+ * A slot can hold at most Integer.MAX_VALUE bytes, about 190 million positions.
+ */
+class CheckpointWriter {
+  public static final long MAGIC = 0x45434F434B50543AL; // "ECOCKPT:"
+  public static final int VERSION = 3;
+  public static final int HEADER_BYTES = 72;
+  public static final int GRASS_FIELD = 0x01; // flags of the header
+  public static final int INITIAL_GRASS_CREATED = 0x02;
+
+  // layout of the header
+  public static final int MAGIC_OFFSET = 0;
+  public static final int VERSION_OFFSET = 8;
+  public static final int LEN_Y_OFFSET = 12;
+  public static final int LEN_X_OFFSET = 16;
+  public static final int TURN_OFFSET = 20;
+  public static final int SEED_OFFSET = 24;
+  public static final int SEQUENCE_OFFSET = 32;
+  public static final int GRASS_HEALTH_OFFSET = 40;
+  public static final int SHEEP_HEALTH_OFFSET = 44;
+  public static final int WOLF_HEALTH_OFFSET = 48;
+  public static final int DENSITY_RADIUS_OFFSET = 52;
+  public static final int FLAGS_OFFSET = 56;
+  public static final int MIN_BIRTH_DISTANCE_OFFSET = 60;
+  public static final int MAX_BIRTH_DISTANCE_OFFSET = 64;
+
+  private FileChannel channel;
+  private MappedByteBuffer[] slots;
+  private int lenY, lenX;
+  private boolean hasGrassField;
+  private long sequence; // number of the next checkpoint, whose parity is the slot it is written to
+
+  /*
+   * Opens or creates the file and maps its two slots, sized for a map. If the file already holds slots of that size,
+   * the checkpoints it holds are kept, and the next one replaces the older of them
+   * @param path, the path of the file
+   * @param world, the WorldStore of the map
+   */
+  CheckpointWriter(String path, WorldStore world) throws IOException {
+    this.lenY = world.getLenY();
+    this.lenX = world.getLenX();
+    this.hasGrassField = world.getGrassField() != null;
+    long slotBytes = getSlotBytes(world);
+    if (slotBytes > Integer.MAX_VALUE) {
+      throw new IOException("A map of " + lenY + " by " + lenX + " positions is too large for a checkpoint");
+    }
+
+    channel = FileChannel.open(Paths.get(path), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                               StandardOpenOption.WRITE);
+    if (channel.size() != 2 * slotBytes) {
+      channel.truncate(0);
+    }
+    slots = new MappedByteBuffer[2];
+    sequence = 0;
+    for (int s = 0; s < 2; s++) {
+      slots[s] = channel.map(FileChannel.MapMode.READ_WRITE, s * slotBytes, slotBytes);
+      slots[s].order(ByteOrder.LITTLE_ENDIAN);
+      if ((slots[s].getLong(MAGIC_OFFSET) == MAGIC) && (slots[s].getInt(VERSION_OFFSET) == VERSION)) {
+        sequence = Math.max(sequence, slots[s].getLong(SEQUENCE_OFFSET) + 1);
+      }
+    }
+  }
+
+  /*
+   * getSlotBytes
+   * This method finds the size of a slot holding the checkpoint of a map
+   * @param world, the WorldStore of the map
+   * @return the number of bytes of the header, of the state of the WorldStore and of the biomass, if any
+   */
+  public static long getSlotBytes(WorldStore world) {
+    long bytes = HEADER_BYTES + world.getStateBytes();
+    if (world.getGrassField() != null) {
+      bytes += 4L * world.getArea();
+    }
+    return bytes;
+  }
+
+  /*
+   * getCount
+   * This method returns the number of checkpoints written to the file, including those written before it was opened
+   * @return a long holding the number of checkpoints
+   */
+  public long getCount() {
+    return sequence;
+  }
+
+  /*
+   * write
+   * This method writes a checkpoint of a map to the slot holding the older checkpoint
+   * @param world, the WorldStore of the map, whose RandomSource must be a CounterRandom
+   * @param creator, the OrganismCreator of the map
+   */
+  public void write(WorldStore world, OrganismCreator creator) {
+    if ((world.getLenY() != lenY) || (world.getLenX() != lenX) || ((world.getGrassField() != null) != hasGrassField)) {
+      throw new IllegalArgumentException("The map does not match the one the checkpoint file was created for");
+    } else if (!(world.getRandom() instanceof CounterRandom)) {
+      throw new IllegalArgumentException("Only a map whose random numbers come from a CounterRandom can be resumed");
+    }
+
+    ByteBuffer slot = slots[(int) (sequence & 1)];
+    slot.putLong(MAGIC_OFFSET, 0);
+    VarHandle.releaseFence(); // the slot is marked as incomplete before anything else is stored
+    slot.putInt(VERSION_OFFSET, VERSION);
+    slot.putInt(LEN_Y_OFFSET, lenY);
+    slot.putInt(LEN_X_OFFSET, lenX);
+    slot.putInt(TURN_OFFSET, world.getTurn());
+    slot.putLong(SEED_OFFSET, ((CounterRandom) world.getRandom()).getSeed());
+    slot.putLong(SEQUENCE_OFFSET, sequence);
+    slot.putInt(GRASS_HEALTH_OFFSET, creator.getGrassHealth());
+    slot.putInt(SHEEP_HEALTH_OFFSET, creator.getSheepHealth());
+    slot.putInt(WOLF_HEALTH_OFFSET, creator.getWolfHealth());
+    slot.putInt(DENSITY_RADIUS_OFFSET, creator.getDensityRadius());
+    slot.putInt(FLAGS_OFFSET, (hasGrassField ? GRASS_FIELD : 0)
+                                | (creator.getInitialGrassCreated() ? INITIAL_GRASS_CREATED : 0));
+    slot.putInt(MIN_BIRTH_DISTANCE_OFFSET, creator.getMinBirthDistance());
+    slot.putInt(MAX_BIRTH_DISTANCE_OFFSET, creator.getMaxBirthDistance());
+
+    slot.position(HEADER_BYTES);
+    world.writeState(slot);
+    if (hasGrassField) {
+      world.getGrassField().writeState(slot);
+    }
+
+    VarHandle.releaseFence(); // everything else is stored before the magic number
+    slot.putLong(MAGIC_OFFSET, MAGIC);
+    sequence++;
+  }
+
+  /*
+   * close
+   * This method closes the file. The slots stay mapped until they are garbage collected, but are not written anymore
+   */
+  public void close() throws IOException {
+    channel.close();
+  }
+}
@@ -0,0 +1,64 @@
+/*
+ * CounterRandom
+ * A RandomSource that hashes the seed, the turn, the key and the counter together with the SplitMix64 mixing 
+ * function, so the same arguments always give the same number no matter which thread asks for it or in what order.
+ * Bounded numbers are found with a multiplication and a shift instead of floating point arithmetic.
+ */
+class CounterRandom implements RandomSource {
+  private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+  private long seed;
+  
+  CounterRandom(long seed) {
+    this.seed = seed;
+  }
+  
+  public long getSeed() {
+    return seed;
+  }
+  
+  /*
+   * nextInt
+   * This method returns a number between 0 and bound - 1
+   * @param turn, key and counter, integers identifying the number
+   * @param bound, a positive integer
+   * @return an integer from 0 to bound - 1
+   */
+  @Override
+  public int nextInt(int turn, int key, int counter, int bound) {
+    return (int) (((bits(turn, key, counter) >>> 32) * bound) >>> 32);
+  }
+  
+  /*
+   * nextBoolean
+   * This method returns true or false with the same probability
+   * @param turn, key and counter, integers identifying the number
+   * @return a boolean identified by the parameters
+   */
+  @Override
+  public boolean nextBoolean(int turn, int key, int counter) {
+    return bits(turn, key, counter) < 0;
+  }
+  
+  /*
+   * bits
+   * This method mixes the seed with the turn, and then with the key and the counter
+   * @param turn, key and counter, integers identifying the number
+   * @return 64 random bits
+   */
+  private long bits(int turn, int key, int counter) {
+    long z = mix(seed + (turn + 1) * GOLDEN_GAMMA);
+    return mix(z + ((((long) key) << 32) | (counter & 0xFFFFFFFFL)) * GOLDEN_GAMMA);
+  }
+  
+  /*
+   * mix
+   * This method is the finalizer of the SplitMix64 generator
+   * @param z, the long being mixed
+   * @return the mixed long
+   */
+  private static long mix(long z) {
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    return z ^ (z >>> 31);
+  }
+}
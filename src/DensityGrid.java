@@ -0,0 +1,99 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/*
+ * DensityGrid
+ * Counts the animals in each square block of the map. The counts are changed by the WorldStore every time an animal
+ * appears at or leaves a position, so the number of animals around a position is found by adding up the few blocks
+ * overlapping the area around it, without scanning the map. The area is widened to whole blocks, so blocks are made
+ * about half as wide as the areas looked up.
+ * While several threads change the map at once, the grid can be put in concurrent mode, in which the counts are
+ * changed with atomic operations.
+ */
+class DensityGrid {
+  private static final VarHandle COUNTS = MethodHandles.arrayElementVarHandle(int[].class);
+
+  private int lenY, lenX;
+  private int blockSize;
+  private int blocksY, blocksX;
+  private int[] counts; // number of animals in each block, row by row
+  private boolean concurrent;
+
+  /*
+   * Creates a grid of blocks covering the map, counting the animals already stored in a WorldStore
+   * @param world, the WorldStore of the map
+   * @param blockSize, the width and height of a block
+   */
+  DensityGrid(WorldStore world, int blockSize) {
+    this.lenY = world.getLenY();
+    this.lenX = world.getLenX();
+    this.blockSize = blockSize;
+    this.blocksY = (lenY + blockSize - 1) / blockSize;
+    this.blocksX = (lenX + blockSize - 1) / blockSize;
+    this.counts = new int[blocksY * blocksX];
+    this.concurrent = false;
+
+    for (int cell = 0; cell < world.getArea(); cell++) {
+      if (world.isAnimal(cell)) {
+        counts[blockOf(cell)]++;
+      }
+    }
+  }
+
+  public int getBlockSize() {
+    return blockSize;
+  }
+
+  public void setConcurrent(boolean concurrent) {
+    this.concurrent = concurrent;
+  }
+
+  /*
+   * change
+   * This method changes the number of animals in the block holding a position
+   * @param cell, the index of the position in the WorldStore
+   * @param change, 1 if an animal appeared at the position, -1 if one left it
+   */
+  public void change(int cell, int change) {
+    if (concurrent) {
+      COUNTS.getAndAdd(counts, blockOf(cell), change);
+    } else {
+      counts[blockOf(cell)] += change;
+    }
+  }
+
+  /*
+   * countAround
+   * This method counts the animals in the blocks overlapping the square of a given radius around a position
+   * @param yPos and xPos, integers containing vertical and horizontal coordinates on the map
+   * @param radius, the number of positions the square reaches on each side of the position
+   * @param local, an integer array of two elements in which the number of animals and the number of positions of 
+   * the blocks are stored, in that order
+   */
+  public void countAround(int yPos, int xPos, int radius, int[] local) {
+    int minBlockY = Math.max(yPos - radius, 0) / blockSize;
+    int maxBlockY = Math.min(yPos + radius, lenY - 1) / blockSize;
+    int minBlockX = Math.max(xPos - radius, 0) / blockSize;
+    int maxBlockX = Math.min(xPos + radius, lenX - 1) / blockSize;
+
+    local[0] = 0;
+    for (int i = minBlockY; i <= maxBlockY; i++) {
+      for (int j = minBlockX; j <= maxBlockX; j++) {
+        local[0] += counts[i * blocksX + j];
+      }
+    }
+    int height = Math.min((maxBlockY + 1) * blockSize, lenY) - minBlockY * blockSize;
+    int width = Math.min((maxBlockX + 1) * blockSize, lenX) - minBlockX * blockSize;
+    local[1] = height * width;
+  }
+
+  /*
+   * blockOf
+   * This method finds the block holding a position
+   * @param cell, the index of the position in the WorldStore
+   * @return the index of the block
+   */
+  private int blockOf(int cell) {
+    return (cell / lenX / blockSize) * blocksX + (cell % lenX) / blockSize;
+  }
+}
@@ -26,11 +26,11 @@ class DisplayEcosim {
   private JFrame frame;
   private double maxX, maxY;
   private int GridToScreenRatio;
-  private Organism[][] world;
+  private WorldStore world;
   private int numCyclesPassed;
   private boolean resetSelected;
   
-  DisplayEcosim(Organism[][] w) { 
+  DisplayEcosim(WorldStore w) { 
     this.world = w;
     numCyclesPassed = 0;
     
@@ -38,9 +38,9 @@ class DisplayEcosim {
     
     maxX = Toolkit.getDefaultToolkit().getScreenSize().width;
     maxY = Toolkit.getDefaultToolkit().getScreenSize().height - 10;
-    GridToScreenRatio = (int) ((maxY - 53) / (world.length + 1));  // ratio to fit in screen as square map
+    GridToScreenRatio = (int) ((maxY - 53) / (world.getLenY() + 1));  // ratio to fit in screen as square map
     
-    System.out.println("Map size: " + world.length + " by " + world[0].length + "\nScreen size: " + maxX + "x" + maxY +
+    System.out.println("Map size: " + world.getLenY() + " by " + world.getLenX() + "\nScreen size: " + maxX + "x" + maxY +
                        " Ratio: " + GridToScreenRatio);
     
     this.frame = new JFrame("Map of World");
@@ -105,8 +105,6 @@ class DisplayEcosim {
     private int animalImgX;
     private int grassImgX;
     
-    private int populationCount;
-    
     // position markers for images and statistics
     private final int POPULATION_STATS_X = (int) maxX - 200;
     private final int POPULATION_STATS_MINY = 100;
@@ -126,12 +124,11 @@ class DisplayEcosim {
       newImageWidth = (int) (sheepImage.getWidth() * 0.5);
       newImageHeight = (int) (sheepImage.getHeight() * 0.5);
       
-      animalImgX = (int) (world[0].length * GridToScreenRatio * 1.05);
+      animalImgX = (int) (world.getLenX() * GridToScreenRatio * 1.05);
       grassImgX = animalImgX * (22 / 21);
       selectedStatsMinY = IMAGE_Y + newImageHeight + TEXT_DELTA_Y;
       selectedStatsX = (int) (animalImgX * 1.05);
       
-      populationCount = 0;
       findOrganism = new Inspector(world);
       selectedYX = findOrganism.getCoordinates();
       
@@ -158,7 +155,7 @@ class DisplayEcosim {
     /*
      * paintComponent
      * This method calls the methods that draw the grid, images, and statistics, making sure the correct colours
-     * and selected organism are chosen. It also finds the total population count.
+     * and selected organism are chosen.
      * @param g, a Graphics object
      */
     public void paintComponent(Graphics g) {   
@@ -169,14 +166,14 @@ class DisplayEcosim {
       drawPopulationStats(g);
       
       someOrganismSelected = false;
-      populationCount = 0;
       
-      for (int i = 0; i < world.length; i++) { 
-        for (int j = 0; j < world[0].length; j++) { 
+      int cell = 0;
+      for (int i = 0; i < world.getLenY(); i++) { 
+        for (int j = 0; j < world.getLenX(); j++) { 
           
           Color colorBlock = chooseColor(i, j);
           
-          if ((world[i][j] != null) && world[i][j].getIsSelected()) {
+          if (!world.isEmpty(cell) && world.getIsSelected(cell)) {
             someOrganismSelected = true;
             findOrganism.setCoordinates(i, j);
             
@@ -194,10 +191,7 @@ class DisplayEcosim {
           } else {
             drawBlock(colorBlock, g, i, j);
           }
-          
-          if (world[i][j] != null) {
-            populationCount += 1;
-          }
+          cell++;
         }
       }  
       
@@ -220,6 +214,7 @@ class DisplayEcosim {
     private void drawPopulationStats(Graphics g) {
       g.setFont(new Font("Helvetica", Font.PLAIN, 23));
       g.drawString("Turns: " + numCyclesPassed, POPULATION_STATS_X, POPULATION_STATS_MINY);
+      int populationCount = world.getArea() - world.getPopulation(WorldStore.EMPTY);
       g.drawString("Population: " + populationCount, POPULATION_STATS_X, POPULATION_STATS_MINY + TEXT_DELTA_Y);
     }
     
@@ -231,11 +226,12 @@ class DisplayEcosim {
      */
     private void drawSelectedStats(Graphics g) {
       selectedYX = findOrganism.getCoordinates();
-      if (selectedYX != null && world[selectedYX[0]][selectedYX[1]] != null) { // attempt to avoid any possible null pointer exceptions
+      if (selectedYX != null && !world.isEmpty(world.index(selectedYX[0], selectedYX[1]))) { // attempt to avoid any possible null pointer exceptions
+        int cell = world.index(selectedYX[0], selectedYX[1]);
         g.setFont(new Font("Helvetica", Font.PLAIN, 20));
         try {
-        g.drawString("Health: " + world[selectedYX[0]][selectedYX[1]].getHealth(), selectedStatsX, selectedStatsMinY);
-        g.drawString("Turns survived: " + world[selectedYX[0]][selectedYX[1]].getTurnsSurvived(), selectedStatsX, 
+        g.drawString("Health: " + world.getHealth(cell), selectedStatsX, selectedStatsMinY);
+        g.drawString("Turns survived: " + world.getTurnsSurvived(cell), selectedStatsX, 
                      selectedStatsMinY + TEXT_DELTA_Y);
         } catch(Exception e) {
           ; // in case a null pointer exception does appear
@@ -265,16 +261,17 @@ class DisplayEcosim {
      * chooseColor
      * This method chooses a colour corresponding to the organism whose x and y coordinates are passed in as parameters
      * and returns it
-     * @param yPos and xPos, integers that hold the position of the organism in question in the 2D world array
+     * @param yPos and xPos, integers that hold the position of the organism in question in the world
      * @return c, the colour chosen
      */
     private Color chooseColor(int yPos, int xPos) {
       Color c;
-      if (world[yPos][xPos] instanceof Grass) {
+      byte type = world.getType(world.index(yPos, xPos));
+      if (type == WorldStore.GRASS) {
         c = new Color(96, 128, 56);
-      } else if (world[yPos][xPos] instanceof Sheep) {
+      } else if (type == WorldStore.SHEEP) {
         c = new Color(192, 192, 192);
-      } else if (world[yPos][xPos] instanceof Wolf) {
+      } else if (type == WorldStore.WOLF) {
         c = new Color(50, 50, 50);
       } else {
         c = new Color(88, 66, 37);
@@ -301,15 +298,16 @@ class DisplayEcosim {
     /*
      * drawImage
      * This method draws a sheep, wolf or grass image at a given location based on the type of the organism at 
-     * the position specified by the selectedYX array on the 2D world array
+     * the position specified by the selectedYX array on the world
      * @param g, a Graphics object
      */
     public void drawImage(Graphics g) {
-      if (world[selectedYX[0]][selectedYX[1]] instanceof Sheep) {
+      byte type = world.getType(world.index(selectedYX[0], selectedYX[1]));
+      if (type == WorldStore.SHEEP) {
         g.drawImage(sheepImage, animalImgX, IMAGE_Y, newImageWidth, newImageHeight, this);
-      } else if (world[selectedYX[0]][selectedYX[1]] instanceof Wolf) {
+      } else if (type == WorldStore.WOLF) {
         g.drawImage(wolfImage, animalImgX, IMAGE_Y, newImageWidth, newImageHeight, this);
-      } else if (world[selectedYX[0]][selectedYX[1]] instanceof Grass) {
+      } else if (type == WorldStore.GRASS) {
         g.drawImage(grassImage, grassImgX, IMAGE_Y, newImageWidth, newImageHeight, this);
       } 
     }
@@ -325,7 +323,7 @@ class DisplayEcosim {
     public void keyReleased(KeyEvent e) { 
       if (e.getKeyCode() == KeyEvent.VK_UP || e.getKeyCode() == KeyEvent.VK_RIGHT || e.getKeyCode() == KeyEvent.VK_DOWN 
             || e.getKeyCode() == KeyEvent.VK_LEFT && findOrganism.getCoordinates() != null) { 
-        world[selectedYX[0]][selectedYX[1]].setSelected(false);
+        world.setSelected(world.index(selectedYX[0], selectedYX[1]), false);
         resetSelected = true; // makes sure the previous colour is not shown after the selected organism is changed
         
         if (e.getKeyCode() == KeyEvent.VK_UP) {
@@ -339,7 +337,7 @@ class DisplayEcosim {
         }
         
         selectedYX = findOrganism.getCoordinates();
-        world[selectedYX[0]][selectedYX[1]].setSelected(true);
+        world.setSelected(world.index(selectedYX[0], selectedYX[1]), true);
       }
     }
     
@@ -0,0 +1,173 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/*
+ * Ensemble
+ * Runs many independent simulations with the same parameters on a fixed number of threads, each with its own
+ * OrganismManager and a seed derived from the seed of the ensemble, for Monte Carlo studies. The populations of each
+ * run are counted after every turn and added to a single EnsembleResult as the run goes. Every run goes on for
+ * maxTurns turns, even after a type has gone extinct, so that the statistics of every turn cover every run and
+ * extinctions that happen after the wolves have died out are counted.
+ */
+class Ensemble {
+  private int ySize, xSize;
+  private int grassValue, healthSheep, healthWolves;
+  private int[] numOrganismsInitial;
+  private int densityRadius;
+  private int minBirthDistance, maxBirthDistance;
+  private int grassLayout;
+  private String layoutPath; // null unless the initial organisms are read from a layout file
+  private boolean grassField;
+
+  Ensemble(int ySize, int xSize, int grassValue, int healthSheep, int healthWolves, int[] numOrganismsInitial) {
+    this.ySize = ySize;
+    this.xSize = xSize;
+    this.grassValue = grassValue;
+    this.healthSheep = healthSheep;
+    this.healthWolves = healthWolves;
+    this.numOrganismsInitial = numOrganismsInitial.clone();
+    this.densityRadius = OrganismCreator.DEFAULT_DENSITY_RADIUS;
+    this.minBirthDistance = OrganismCreator.DEFAULT_MIN_BIRTH_DISTANCE;
+    this.maxBirthDistance = OrganismCreator.DEFAULT_MAX_BIRTH_DISTANCE;
+    this.grassLayout = WorldGenerator.UNIFORM;
+    this.layoutPath = null;
+    this.grassField = false;
+  }
+
+  /*
+   * setDensityRadius
+   * This method sets the distance within which animals are counted to determine the health of new animals in every
+   * run started from then on
+   * @param radius, a positive integer
+   */
+  public void setDensityRadius(int radius) {
+    this.densityRadius = radius;
+  }
+
+  /*
+   * setBirthDistances
+   * This method sets how far from their parents the animals born near them can be placed in every run started from 
+   * then on
+   * @param minDistance, a positive integer
+   * @param maxDistance, an integer at least minDistance
+   */
+  public void setBirthDistances(int minDistance, int maxDistance) {
+    this.minBirthDistance = minDistance;
+    this.maxBirthDistance = maxDistance;
+  }
+
+  /*
+   * setGrassLayout
+   * This method sets how the initial grass is laid out in every run started from then on
+   * @param grassLayout, one of the WorldGenerator.UNIFORM, CLUSTERED or BANDED constants
+   */
+  public void setGrassLayout(int grassLayout) {
+    this.grassLayout = grassLayout;
+  }
+
+  /*
+   * setLayoutPath
+   * This method makes every run started from then on read its initial organisms from a layout file instead of
+   * generating them, only the sex and health of the animals then differing between runs
+   * @param layoutPath, the path of a layout file read by LayoutImporter, or null to generate the organisms
+   */
+  public void setLayoutPath(String layoutPath) {
+    this.layoutPath = layoutPath;
+  }
+
+  /*
+   * setGrassField
+   * This method sets whether grass grows as a GrassField in every run started from then on
+   * @param enabled, true for grass to grow as a field, false for it to spawn at random
+   */
+  public void setGrassField(boolean enabled) {
+    this.grassField = enabled;
+  }
+
+  /*
+   * run
+   * This method runs the simulations and waits for all of them to finish. Run number i uses the seed seed + i, so a
+   * single run of the ensemble can be repeated on its own
+   * @param numRuns, the number of simulations
+   * @param maxTurns, the maximum number of turns of each simulation
+   * @param seed, the seed of the first simulation
+   * @param threads, the number of simulations run at once
+   * @return result, the EnsembleResult holding the statistics of every run
+   */
+  public EnsembleResult run(int numRuns, int maxTurns, long seed, int threads) {
+    EnsembleResult result = new EnsembleResult(maxTurns);
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<Void>> runs = new ArrayList<>();
+      for (int i = 0; i < numRuns; i++) {
+        long runSeed = seed + i;
+        runs.add(executor.submit(new Callable<Void>() {
+          @Override
+          public Void call() throws IOException {
+            runOne(runSeed, maxTurns, result);
+            return null;
+          }
+        }));
+      }
+
+      for (Future<Void> future : runs) {
+        future.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("The ensemble was interrupted", e);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("A run of the ensemble failed", e.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
+    return result;
+  }
+
+  /*
+   * runOne
+   * This method runs one simulation, adding its populations after every turn to the result
+   * @param seed, the seed of the simulation
+   * @param maxTurns, the maximum number of turns of the simulation
+   * @param result, the EnsembleResult shared by every run
+   */
+  private void runOne(long seed, int maxTurns, EnsembleResult result) throws IOException {
+    OrganismManager environment;
+    if (layoutPath == null) {
+      environment = new OrganismManager(ySize, xSize, 0, ySize - 1, grassValue, healthSheep, healthWolves, 
+                                        numOrganismsInitial, seed, grassLayout);
+    } else {
+      environment = new OrganismManager(ySize, xSize, layoutPath, grassValue, healthSheep, healthWolves, seed);
+    }
+    environment.setDensityRadius(densityRadius);
+    environment.setBirthDistances(minBirthDistance, maxBirthDistance);
+    environment.setGrassField(grassField);
+    WorldStore world = environment.getWorld();
+    boolean[] extinct = new boolean[4];
+
+    int turn = 0;
+    while (true) {
+      int[] populations = world.getPopulations();
+      result.record(turn, populations);
+      for (int type = WorldStore.GRASS; type <= WorldStore.WOLF; type++) {
+        if ((populations[type] == 0) && !extinct[type]) {
+          extinct[type] = true;
+          result.recordExtinction(type, turn);
+        }
+      }
+
+      if (turn == maxTurns) {
+        break;
+      }
+      environment.movementCycle();
+      turn++;
+    }
+    result.finishRun();
+  }
+}
@@ -0,0 +1,143 @@
+/*
+ * EnsembleResult
+ * Aggregates the populations of many runs of the simulation as they are produced, turn by turn, without keeping the
+ * populations of each run. For each turn and type of organism, the mean and variance over the runs are updated with
+ * Welford's method, so every run must record every turn for them to cover the whole ensemble. For each type, the
+ * turn in which its population first reached 0 is counted in a distribution of extinction turns. Turn 0 is the map
+ * before the first movement cycle.
+ * Types are indexed by the WorldStore.GRASS, SHEEP and WOLF constants.
+ */
+class EnsembleResult {
+  private int maxTurns;
+  private int numRuns;
+  private long[] numRecorded; // number of runs recorded at each turn
+  private double[][] mean, sumSquares;
+  private int[][] extinctions; // number of runs in which each type went extinct in each turn
+
+  EnsembleResult(int maxTurns) {
+    this.maxTurns = maxTurns;
+    this.numRuns = 0;
+    this.numRecorded = new long[maxTurns + 1];
+    this.mean = new double[4][maxTurns + 1];
+    this.sumSquares = new double[4][maxTurns + 1];
+    this.extinctions = new int[4][maxTurns + 1];
+  }
+
+  /*
+   * record
+   * This method adds the populations of one run at one turn to the statistics of that turn
+   * @param turn, an integer from 0 to maxTurns
+   * @param populations, an integer array holding the number of organisms of each type, indexed by type
+   */
+  public synchronized void record(int turn, int[] populations) {
+    numRecorded[turn]++;
+    for (int type = WorldStore.GRASS; type <= WorldStore.WOLF; type++) {
+      double delta = populations[type] - mean[type][turn];
+      mean[type][turn] += delta / numRecorded[turn];
+      sumSquares[type][turn] += delta * (populations[type] - mean[type][turn]);
+    }
+  }
+
+  /*
+   * recordExtinction
+   * This method counts the turn in which the population of a type first reached 0 during one run
+   * @param type, one of the WorldStore.GRASS, SHEEP or WOLF constants
+   * @param turn, an integer from 0 to maxTurns
+   */
+  public synchronized void recordExtinction(int type, int turn) {
+    extinctions[type][turn]++;
+  }
+
+  /*
+   * finishRun
+   * This method counts a run that has ended
+   */
+  public synchronized void finishRun() {
+    numRuns++;
+  }
+
+  public synchronized int getNumRuns() {
+    return numRuns;
+  }
+
+  public int getMaxTurns() {
+    return maxTurns;
+  }
+
+  public synchronized long getNumRecorded(int turn) {
+    return numRecorded[turn];
+  }
+
+  /*
+   * getMean
+   * This method returns the mean population of a type at a turn, over the runs recorded at that turn
+   * @param type, one of the WorldStore.GRASS, SHEEP or WOLF constants
+   * @param turn, an integer from 0 to maxTurns
+   * @return the mean, 0 if no run was recorded at the turn
+   */
+  public synchronized double getMean(int type, int turn) {
+    return mean[type][turn];
+  }
+
+  /*
+   * getVariance
+   * This method returns the sample variance of the population of a type at a turn, over the runs recorded at
+   * that turn
+   * @param type, one of the WorldStore.GRASS, SHEEP or WOLF constants
+   * @param turn, an integer from 0 to maxTurns
+   * @return the variance, 0 if fewer than two runs were recorded at the turn
+   */
+  public synchronized double getVariance(int type, int turn) {
+    if (numRecorded[turn] < 2) {
+      return 0;
+    }
+    return sumSquares[type][turn] / (numRecorded[turn] - 1);
+  }
+
+  /*
+   * getExtinctions
+   * This method returns the number of runs in which a type went extinct in a given turn
+   * @param type, one of the WorldStore.GRASS, SHEEP or WOLF constants
+   * @param turn, an integer from 0 to maxTurns
+   * @return the number of runs
+   */
+  public synchronized int getExtinctions(int type, int turn) {
+    return extinctions[type][turn];
+  }
+
+  /*
+   * getExtinctionProbability
+   * This method returns the fraction of the finished runs in which a type went extinct within maxTurns turns
+   * @param type, one of the WorldStore.GRASS, SHEEP or WOLF constants
+   * @return a double between 0 and 1
+   */
+  public synchronized double getExtinctionProbability(int type) {
+    if (numRuns == 0) {
+      return 0;
+    }
+    int numExtinct = 0;
+    for (int turn = 0; turn <= maxTurns; turn++) {
+      numExtinct += extinctions[type][turn];
+    }
+    return numExtinct / (double) numRuns;
+  }
+
+  /*
+   * getMeanExtinctionTurn
+   * This method returns the mean turn in which a type went extinct, over the runs in which it did
+   * @param type, one of the WorldStore.GRASS, SHEEP or WOLF constants
+   * @return the mean turn, -1 if the type never went extinct
+   */
+  public synchronized double getMeanExtinctionTurn(int type) {
+    long numExtinct = 0;
+    long sum = 0;
+    for (int turn = 0; turn <= maxTurns; turn++) {
+      numExtinct += extinctions[type][turn];
+      sum += (long) turn * extinctions[type][turn];
+    }
+    if (numExtinct == 0) {
+      return -1;
+    }
+    return sum / (double) numExtinct;
+  }
+}
@@ -0,0 +1,297 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/*
+ * EventLog
+ * Records everything that changes the map during each turn to a binary file, from which an EventReplayer can rebuild
+ * the map as it was at the end of any turn. While a log is set on the WorldStore, the code that moves, feeds, breeds,
+ * creates and removes organisms records each change as an event, holding the positions involved and the health they
+ * are left with, so that applying the events in order changes a map exactly as the simulation did:
+ *   MOVE, GRAZE      the animal at cell moves to other, onto an empty position or grass, and has the health stored
+ *   PREDATION        the wolf at cell moves to other and eats the sheep there, and has the health stored
+ *   EATEN            the sheep at cell is eaten by the wolf at other, which stays there and has the health stored
+ *   FIGHT, MATING    the animals at cell and other have the two health values stored
+ *   BUMP             the animal at cell, collided with, has the health stored
+ *   BIRTH, SPAWN     an organism is placed at cell with the type, sex and health stored, grass that spawns also
+ *                    marking the positions around it as spawn places
+ *   STARVATION       the animal at cell dies
+ *   GROWTH           grass of a GrassField appears at cell with the health stored
+ *   WITHERING        grass of a GrassField disappears from cell
+ * An event starts with a varint holding its kind in the lowest 4 bits and, above them, the zigzag-encoded difference
+ * between its cell and the cell of the previous event, followed by the difference between other and cell. A health
+ * that is a whole number, as most are, is written as a zigzag varint shifted left by one, and any other health as the
+ * bits of the float shifted left by one with the lowest bit set. An event thus takes 3 to 5 bytes most of the time.
+ * The file starts with a header of HEADER_BYTES bytes holding MAGIC, VERSION, the size of the map and keyframeEvery.
+ * The events of a turn are written together as a record, and every keyframeEvery turns, as well as when the log is
+ * created, the whole map is written as a keyframe record, with WorldStore.writeState. Every record starts with a
+ * header of RECORD_HEADER_BYTES bytes holding its magic number, its turn, its number of events and its number of
+ * bytes, so a file that was never closed can still be read by scanning its records. When the log is closed, an index
+ * of the keyframes, holding the turn and position of each, is written after the last record, followed by the last
+ * turn, the position of the index and INDEX_MAGIC. Everything is in little-endian order.
+ * Events are recorded under a lock, so animals may be moved by several threads at once. The biomass of a GrassField
+ * and the selection of organisms are not recorded.
+ */
+class EventLog {
+  public static final long MAGIC = 0x45434F4556454E54L; // "ECOEVENT"
+  public static final int VERSION = 2;
+  public static final int HEADER_BYTES = 24;
+  public static final int TURN_MAGIC = 0x5455524E; // "TURN"
+  public static final int KEYFRAME_MAGIC = 0x4B455946; // "KEYF"
+  public static final int INDEX_MAGIC = 0x494E4458; // "INDX"
+  public static final int RECORD_HEADER_BYTES = 16;
+  public static final int INDEX_BYTES_PER_KEYFRAME = 12;
+
+  // kinds of events
+  public static final byte MOVE = 0;
+  public static final byte GRAZE = 1;
+  public static final byte PREDATION = 2;
+  public static final byte EATEN = 3;
+  public static final byte FIGHT = 4;
+  public static final byte MATING = 5;
+  public static final byte BUMP = 6;
+  public static final byte BIRTH = 7;
+  public static final byte SPAWN = 8;
+  public static final byte STARVATION = 9;
+  public static final byte GROWTH = 10;
+  public static final byte WITHERING = 11;
+  public static final int KIND_BITS = 4;
+  public static final int FEMALE = 0x04; // added to the type of an organism placed by a BIRTH or SPAWN
+
+  private static final int MAX_EVENT_BYTES = 32;
+  private static final int FLUSH_BYTES = 1 << 20; // records are written to the file once this many bytes are pending
+
+  private WorldStore world;
+  private int keyframeEvery;
+  private FileChannel channel;
+  private ByteBuffer pending; // records not written to the file yet, the last one being the turn being recorded
+  private int recordStart; // position in pending of the record of the turn being recorded
+  private int numEvents; // events of the turn being recorded
+  private int previousCell;
+  private ByteBuffer state; // reused to write each keyframe, allocated with the first one
+  private int[] keyframeTurns;
+  private long[] keyframePositions;
+  private int numKeyframes;
+  private int lastTurn; // turn of the last record written
+  private long numWritten; // events written since the log was created
+
+  /*
+   * Creates the file, and writes its header and a keyframe of the map as it is
+   * @param path, the path of the file
+   * @param world, the WorldStore of the map, which can hold at most Integer.MAX_VALUE bytes of state
+   * @param keyframeEvery, the number of turns between keyframes, at least 1
+   */
+  EventLog(String path, WorldStore world, int keyframeEvery) throws IOException {
+    if (world.getStateBytes() > Integer.MAX_VALUE) {
+      throw new IOException("A map of " + world.getLenY() + " by " + world.getLenX() + " positions is too large for "
+                              + "a keyframe");
+    }
+    this.world = world;
+    this.keyframeEvery = Math.max(keyframeEvery, 1);
+    this.pending = ByteBuffer.allocate(FLUSH_BYTES + RECORD_HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+    this.keyframeTurns = new int[16];
+    this.keyframePositions = new long[16];
+    this.numKeyframes = 0;
+    this.numWritten = 0;
+    channel = FileChannel.open(Paths.get(path), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                               StandardOpenOption.TRUNCATE_EXISTING);
+
+    pending.putLong(MAGIC);
+    pending.putInt(VERSION);
+    pending.putInt(world.getLenY());
+    pending.putInt(world.getLenX());
+    pending.putInt(this.keyframeEvery);
+    writeKeyframe();
+    startTurn();
+  }
+
+  /*
+   * getCount
+   * This method returns the number of events recorded during the turns that have ended
+   * @return a long holding the number of events
+   */
+  public long getCount() {
+    return numWritten;
+  }
+
+  public int getNumKeyframes() {
+    return numKeyframes;
+  }
+
+  /*
+   * record
+   * This method records a change made to the map, once it has been made, reading the health and type it needs from
+   * the WorldStore. A STARVATION may be recorded before the animal is removed, as nothing is read for it
+   * @param kind, one of the MOVE, GRAZE, PREDATION, EATEN, FIGHT, MATING, BUMP, BIRTH, SPAWN, STARVATION, GROWTH or
+   * WITHERING constants
+   * @param cell, the index of the position the event is about
+   * @param other, the index of the other position of a MOVE, GRAZE, PREDATION, EATEN, FIGHT or MATING, ignored
+   * for the other kinds
+   */
+  public synchronized void record(byte kind, int cell, int other) {
+    if (pending.remaining() < MAX_EVENT_BYTES) {
+      // the whole turn stays in the buffer until it ends, so that its header can be filled in
+      pending = ByteBuffer.allocate(2 * pending.capacity()).order(ByteOrder.LITTLE_ENDIAN).put(pending.flip());
+    }
+    putVarint(pending, (zigzag(cell - previousCell) << KIND_BITS) | kind);
+    previousCell = cell;
+    if (kind <= MATING) {
+      putVarint(pending, zigzag(other - cell));
+    }
+
+    if ((kind == FIGHT) || (kind == MATING)) {
+      putHealth(world.getHealth(cell));
+      putHealth(world.getHealth(other));
+    } else if (kind <= EATEN) {
+      putHealth(world.getHealth(other));
+    } else if ((kind == BIRTH) || (kind == SPAWN)) {
+      pending.put((byte) (world.getType(cell) | (world.getIsFemale(cell) ? FEMALE : 0)));
+      putHealth(world.getHealth(cell));
+    } else if ((kind == BUMP) || (kind == GROWTH)) {
+      putHealth(world.getHealth(cell));
+    }
+    numEvents++;
+  }
+
+  /*
+   * endTurn
+   * This method ends the record of the turn the WorldStore is at, which holds the events recorded since the previous
+   * turn ended, and writes a keyframe if the turn is a multiple of keyframeEvery. Meant to be called once the turn
+   * is over, even if nothing changed during it
+   */
+  public synchronized void endTurn() throws IOException {
+    pending.putInt(recordStart, TURN_MAGIC);
+    pending.putInt(recordStart + 4, world.getTurn());
+    pending.putInt(recordStart + 8, numEvents);
+    pending.putInt(recordStart + 12, pending.position() - recordStart - RECORD_HEADER_BYTES);
+    numWritten += numEvents;
+    lastTurn = world.getTurn();
+
+    if (world.getTurn() % keyframeEvery == 0) {
+      writeKeyframe();
+    } else if (pending.position() >= FLUSH_BYTES) {
+      flush();
+    }
+    startTurn();
+  }
+
+  /*
+   * close
+   * This method writes the turns that have ended and the index of the keyframes, and closes the file. Events 
+   * recorded since the last turn ended are left out
+   */
+  public synchronized void close() throws IOException {
+    pending.position(recordStart);
+    flush();
+
+    ByteBuffer index = ByteBuffer.allocate(8 + INDEX_BYTES_PER_KEYFRAME * numKeyframes + 16)
+                                 .order(ByteOrder.LITTLE_ENDIAN);
+    long indexPosition = channel.position();
+    index.putInt(INDEX_MAGIC);
+    index.putInt(numKeyframes);
+    for (int k = 0; k < numKeyframes; k++) {
+      index.putInt(keyframeTurns[k]);
+      index.putLong(keyframePositions[k]);
+    }
+    index.putInt(lastTurn);
+    index.putLong(indexPosition);
+    index.putInt(INDEX_MAGIC);
+    index.flip();
+    writeFully(index);
+    channel.close();
+  }
+
+  /*
+   * startTurn
+   * This method leaves room for the header of the record of the next turn
+   */
+  private void startTurn() {
+    recordStart = pending.position();
+    pending.position(recordStart + RECORD_HEADER_BYTES);
+    numEvents = 0;
+    previousCell = 0;
+  }
+
+  /*
+   * writeKeyframe
+   * This method writes the records that are pending, followed by a keyframe holding the whole map at its current
+   * turn, and adds the keyframe to the index
+   */
+  private void writeKeyframe() throws IOException {
+    flush();
+    int stateBytes = (int) world.getStateBytes();
+    if (state == null) {
+      state = ByteBuffer.allocateDirect(RECORD_HEADER_BYTES + stateBytes).order(ByteOrder.LITTLE_ENDIAN);
+    }
+    state.clear();
+    state.putInt(KEYFRAME_MAGIC);
+    state.putInt(world.getTurn());
+    state.putInt(0);
+    state.putInt(stateBytes);
+    world.writeState(state);
+    state.flip();
+
+    if (numKeyframes == keyframeTurns.length) {
+      keyframeTurns = Arrays.copyOf(keyframeTurns, 2 * numKeyframes);
+      keyframePositions = Arrays.copyOf(keyframePositions, 2 * numKeyframes);
+    }
+    keyframeTurns[numKeyframes] = world.getTurn();
+    keyframePositions[numKeyframes] = channel.position();
+    numKeyframes++;
+    lastTurn = world.getTurn();
+    writeFully(state);
+  }
+
+  /*
+   * flush
+   * This method writes the pending records to the file
+   */
+  private void flush() throws IOException {
+    pending.flip();
+    writeFully(pending);
+    pending.clear();
+  }
+
+  private void writeFully(ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+  }
+
+  /*
+   * putHealth
+   * This method writes a health as a whole number if it is one, and as the bits of the float otherwise
+   * @param health, the health
+   */
+  private void putHealth(float health) {
+    int whole = (int) health;
+    if (Float.floatToRawIntBits(whole) == Float.floatToRawIntBits(health)) {
+      putVarint(pending, zigzag(whole) << 1);
+    } else {
+      putVarint(pending, ((Float.floatToRawIntBits(health) & 0xFFFFFFFFL) << 1) | 1);
+    }
+  }
+
+  private static long zigzag(long value) {
+    return (value << 1) ^ (value >> 63);
+  }
+
+  /*
+   * putVarint
+   * This method writes a value 7 bits at a time, lowest bits first, the highest bit of each byte being set if more
+   * bytes follow
+   * @param buffer, the ByteBuffer written to
+   * @param value, the value, treated as unsigned
+   */
+  private static void putVarint(ByteBuffer buffer, long value) {
+    while ((value & ~0x7FL) != 0) {
+      buffer.put((byte) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    buffer.put((byte) value);
+  }
+}
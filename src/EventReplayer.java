@@ -0,0 +1,442 @@
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Properties;
+
+/*
+ * EventReplayer
+ * Rebuilds the map recorded by an EventLog as it was at the end of any turn of the log. The newest keyframe that is
+ * not after the turn is copied into a WorldStore in bulk, and the events of the turns after it are applied to it,
+ * which only stores what each event holds instead of deciding anything, so a turn is rebuilt much faster than it
+ * was simulated. When the map is already at an earlier turn that is not before the keyframe, the replayer goes on
+ * from there instead. Only the header and index of the file are read when it is opened. If the file was never
+ * closed and has no index, its records are scanned to build one, a record cut short being left out.
+ * The map rebuilt holds everything the WorldStore of the simulation held, except the selection of organisms and the
+ * biomass of a GrassField: grass holds the biomass it appeared with, and positions that are not animals may hold a
+ * different turn of last move. The events of a range of turns can be printed, one line per event followed by the
+ * populations at the end of each turn, either from code or from the command line:
+ *   java EventReplayer events=events.log from=1000 to=1010 out=events.txt
+ * which prints the turns from 1000 to 1010 of events.log, to the standard output if out is not given.
+ */
+class EventReplayer {
+  private static final String[] KEYS = {"events", "from", "to", "out"};
+  private static final String[] KIND_NAMES = {"move", "graze", "predation", "eaten", "fight", "mating", "bump",
+    "birth", "spawn", "starvation", "growth", "withering"};
+  private static final String[] TYPE_NAMES = {"empty", "grass", "sheep", "wolf"};
+
+  private FileChannel channel;
+  private int lenY, lenX;
+  private int[] keyframeTurns;
+  private long[] keyframePositions;
+  private int numKeyframes;
+  private int lastTurn;
+  private WorldStore world; // null until the first call to seek
+  private long position; // position of the record after the last turn applied to the map
+  private ByteBuffer header; // reused to read the header of each record
+  private ByteBuffer events; // reused to read the events of each turn
+  private ByteBuffer state; // reused to read each keyframe, allocated with the first one
+  private int previousCell;
+
+  /*
+   * Opens a file and reads its header and index
+   * @param path, the path of the file
+   */
+  EventReplayer(String path) throws IOException {
+    channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ);
+    header = ByteBuffer.allocate(EventLog.HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+    events = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+
+    readAt(header, 0, EventLog.HEADER_BYTES);
+    if ((header.limit() < EventLog.HEADER_BYTES) || (header.getLong(0) != EventLog.MAGIC)) {
+      channel.close();
+      throw new IOException(path + " was not written by an EventLog");
+    } else if (header.getInt(8) != EventLog.VERSION) {
+      channel.close();
+      throw new IOException(path + " has version " + header.getInt(8) + " instead of " + EventLog.VERSION);
+    }
+    lenY = header.getInt(12);
+    lenX = header.getInt(16);
+
+    if (!readIndex()) {
+      scanRecords();
+    }
+    if (numKeyframes == 0) {
+      channel.close();
+      throw new IOException(path + " holds no complete keyframe");
+    }
+  }
+
+  public int getLenY() {
+    return lenY;
+  }
+
+  public int getLenX() {
+    return lenX;
+  }
+
+  /*
+   * getFirstTurn
+   * This method returns the first turn that can be rebuilt, which is the turn of the first keyframe
+   * @return an int holding the turn
+   */
+  public int getFirstTurn() {
+    return keyframeTurns[0];
+  }
+
+  public int getLastTurn() {
+    return lastTurn;
+  }
+
+  public int getNumKeyframes() {
+    return numKeyframes;
+  }
+
+  /*
+   * getWorld
+   * This method returns the map rebuilt by the last call to seek, which is changed by the next call
+   * @return world, the WorldStore of the map, null if seek was never called
+   */
+  public WorldStore getWorld() {
+    return world;
+  }
+
+  /*
+   * seek
+   * This method rebuilds the map as it was at the end of a turn
+   * @param turn, a turn from getFirstTurn to getLastTurn
+   */
+  public void seek(int turn) throws IOException {
+    if ((turn < getFirstTurn()) || (turn > lastTurn)) {
+      throw new IllegalArgumentException("The turn must be from " + getFirstTurn() + " to " + lastTurn);
+    }
+
+    // newest keyframe that is not after the turn
+    int low = 0;
+    int high = numKeyframes - 1;
+    while (low < high) {
+      int middle = (low + high + 1) >>> 1;
+      if (keyframeTurns[middle] <= turn) {
+        low = middle;
+      } else {
+        high = middle - 1;
+      }
+    }
+
+    if ((world == null) || (world.getTurn() > turn) || (world.getTurn() < keyframeTurns[low])) {
+      readKeyframe(low);
+    }
+    while (world.getTurn() < turn) {
+      replayTurn(null);
+    }
+  }
+
+  /*
+   * describe
+   * This method rebuilds the map as it was at the end of a range of turns, writing a line for each event of those
+   * turns, and a line holding the populations at the end of each of them
+   * @param fromTurn and toTurn, the first and last turns described, fromTurn being after getFirstTurn
+   * @param out, the Writer the lines are written to
+   */
+  public void describe(int fromTurn, int toTurn, Writer out) throws IOException {
+    seek(Math.max(fromTurn, getFirstTurn() + 1) - 1);
+    while (world.getTurn() < Math.min(toTurn, lastTurn)) {
+      replayTurn(out);
+    }
+  }
+
+  /*
+   * readKeyframe
+   * This method replaces the map with a keyframe
+   * @param k, the index of the keyframe
+   */
+  private void readKeyframe(int k) throws IOException {
+    readAt(header, keyframePositions[k], EventLog.RECORD_HEADER_BYTES);
+    int stateBytes = header.getInt(12);
+    if (world == null) {
+      world = new WorldStore(lenY, lenX);
+    }
+    if ((state == null) || (state.capacity() < stateBytes)) {
+      state = ByteBuffer.allocateDirect(stateBytes).order(ByteOrder.LITTLE_ENDIAN);
+    }
+    readAt(state, keyframePositions[k] + EventLog.RECORD_HEADER_BYTES, stateBytes);
+    world.readState(state, header.getInt(4));
+    position = keyframePositions[k] + EventLog.RECORD_HEADER_BYTES + stateBytes;
+  }
+
+  /*
+   * replayTurn
+   * This method applies the events of the turn after the one the map is at, skipping the keyframes before them, and
+   * then marks every animal as moved, as the simulation does
+   * @param out, the Writer each event is described to, null if the events are not described
+   */
+  private void replayTurn(Writer out) throws IOException {
+    readAt(header, position, EventLog.RECORD_HEADER_BYTES);
+    while (header.getInt(0) == EventLog.KEYFRAME_MAGIC) {
+      position += EventLog.RECORD_HEADER_BYTES + header.getInt(12);
+      readAt(header, position, EventLog.RECORD_HEADER_BYTES);
+    }
+    if ((header.getInt(0) != EventLog.TURN_MAGIC) || (header.getInt(4) != world.getTurn() + 1)) {
+      throw new IOException("The record of turn " + (world.getTurn() + 1) + " is missing");
+    }
+    int numEvents = header.getInt(8);
+    int numBytes = header.getInt(12);
+    if (events.capacity() < numBytes) {
+      events = ByteBuffer.allocate(Math.max(numBytes, 2 * events.capacity())).order(ByteOrder.LITTLE_ENDIAN);
+    }
+    readAt(events, position + EventLog.RECORD_HEADER_BYTES, numBytes);
+    position += EventLog.RECORD_HEADER_BYTES + numBytes;
+
+    world.nextTurn();
+    previousCell = 0;
+    for (int e = 0; e < numEvents; e++) {
+      replayEvent(out);
+    }
+    AnimalRoster roster = world.getRoster();
+    for (int k = 0; k < roster.size(); k++) {
+      if (world.isAnimal(roster.get(k))) {
+        world.setHasMoved(roster.get(k), true);
+      }
+    }
+
+    if (out != null) {
+      out.write(world.getTurn() + " populations grass " + world.getPopulation(WorldStore.GRASS) + " sheep "
+                  + world.getPopulation(WorldStore.SHEEP) + " wolves " + world.getPopulation(WorldStore.WOLF) + "\n");
+    }
+  }
+
+  /*
+   * replayEvent
+   * This method decodes the next event of the turn and applies it to the map
+   * @param out, the Writer the event is described to, null if it is not described
+   */
+  private void replayEvent(Writer out) throws IOException {
+    long head = getVarint();
+    int kind = (int) (head & ((1 << EventLog.KIND_BITS) - 1));
+    int cell = previousCell + (int) unzigzag(head >>> EventLog.KIND_BITS);
+    int other = cell;
+    previousCell = cell;
+    if (kind <= EventLog.MATING) {
+      other = cell + (int) unzigzag(getVarint());
+    }
+    if ((kind >= KIND_NAMES.length) || (cell < 0) || (cell >= world.getArea()) || (other < 0)
+          || (other >= world.getArea())) {
+      throw new IOException("Turn " + world.getTurn() + " holds an invalid event");
+    }
+
+    String line = null;
+    if (out != null) {
+      line = world.getTurn() + " " + KIND_NAMES[kind] + " " + describeCell(cell);
+    }
+    if ((kind == EventLog.MOVE) || (kind == EventLog.GRAZE) || (kind == EventLog.PREDATION)) {
+      world.move(cell, other);
+      world.getRoster().add(other);
+      world.setHealth(other, getHealth());
+      if (out != null) {
+        line += " -> " + describeCell(other) + " health " + world.getHealth(other);
+      }
+    } else if (kind == EventLog.EATEN) {
+      world.clear(cell);
+      world.setHealth(other, getHealth());
+      if (out != null) {
+        line += " by " + describeCell(other) + " health " + world.getHealth(other);
+      }
+    } else if ((kind == EventLog.FIGHT) || (kind == EventLog.MATING)) {
+      world.setHealth(cell, getHealth());
+      world.setHealth(other, getHealth());
+      if (out != null) {
+        line += " health " + world.getHealth(cell) + " " + describeCell(other) + " health " + world.getHealth(other);
+      }
+    } else if (kind == EventLog.BUMP) {
+      world.setHealth(cell, getHealth());
+      if (out != null) {
+        line += " health " + world.getHealth(cell);
+      }
+    } else if ((kind == EventLog.BIRTH) || (kind == EventLog.SPAWN) || (kind == EventLog.GROWTH)) {
+      int typeAndSex = (kind == EventLog.GROWTH) ? WorldStore.GRASS : events.get();
+      byte type = (byte) (typeAndSex & ~EventLog.FEMALE);
+      boolean isFemale = (typeAndSex & EventLog.FEMALE) != 0;
+      if ((type < WorldStore.GRASS) || (type > WorldStore.WOLF)) {
+        throw new IOException("Turn " + world.getTurn() + " places an invalid organism");
+      }
+      world.place(cell, type, getHealth(), isFemale);
+      if ((kind == EventLog.SPAWN) && (type == WorldStore.GRASS)) {
+        world.markSpawnableAround(cell, MapManager.LEN_RESTRICTED / 2);
+      }
+      if (out != null) {
+        line += " " + ((type >= WorldStore.SHEEP) ? (isFemale ? "female " : "male ") : "") + TYPE_NAMES[type]
+                  + " health " + world.getHealth(cell);
+      }
+    } else {
+      if (out != null) {
+        line += " " + TYPE_NAMES[world.getType(cell)];
+      }
+      world.clear(cell); // STARVATION or WITHERING
+    }
+
+    if (out != null) {
+      out.write(line);
+      out.write('\n');
+    }
+  }
+
+  private String describeCell(int cell) {
+    return "(" + (cell / lenX) + ", " + (cell % lenX) + ")";
+  }
+
+  /*
+   * readIndex
+   * This method reads the index written after the last record when the file was closed
+   * @return true if the file has an index, false otherwise
+   */
+  private boolean readIndex() throws IOException {
+    long end = channel.size();
+    ByteBuffer tail = ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN);
+    if (end < EventLog.HEADER_BYTES + 8 + 16) {
+      return false;
+    }
+    readAt(tail, end - 16, 16);
+    long indexPosition = tail.getLong(4);
+    if ((tail.getInt(12) != EventLog.INDEX_MAGIC) || (indexPosition < EventLog.HEADER_BYTES)
+          || (indexPosition > end - 8 - 16)) {
+      return false;
+    }
+
+    ByteBuffer index = ByteBuffer.allocate((int) Math.min(end - 16 - indexPosition, Integer.MAX_VALUE))
+                                 .order(ByteOrder.LITTLE_ENDIAN);
+    readAt(index, indexPosition, index.capacity());
+    int size = index.getInt(4);
+    if ((index.getInt(0) != EventLog.INDEX_MAGIC) || (size < 0)
+          || (8 + (long) EventLog.INDEX_BYTES_PER_KEYFRAME * size != index.capacity())) {
+      return false;
+    }
+
+    numKeyframes = size;
+    keyframeTurns = new int[Math.max(size, 1)];
+    keyframePositions = new long[Math.max(size, 1)];
+    for (int k = 0; k < numKeyframes; k++) {
+      keyframeTurns[k] = index.getInt(8 + EventLog.INDEX_BYTES_PER_KEYFRAME * k);
+      keyframePositions[k] = index.getLong(12 + EventLog.INDEX_BYTES_PER_KEYFRAME * k);
+    }
+    lastTurn = tail.getInt(0);
+    return true;
+  }
+
+  /*
+   * scanRecords
+   * This method builds the index of a file that was not closed by going through the headers of its records
+   */
+  private void scanRecords() throws IOException {
+    keyframeTurns = new int[16];
+    keyframePositions = new long[16];
+    numKeyframes = 0;
+    long end = channel.size();
+    long recordPosition = EventLog.HEADER_BYTES;
+    while (recordPosition + EventLog.RECORD_HEADER_BYTES <= end) {
+      readAt(header, recordPosition, EventLog.RECORD_HEADER_BYTES);
+      int magic = header.getInt(0);
+      long recordBytes = EventLog.RECORD_HEADER_BYTES + (header.getInt(12) & 0xFFFFFFFFL);
+      if (((magic != EventLog.TURN_MAGIC) && (magic != EventLog.KEYFRAME_MAGIC))
+            || (recordPosition + recordBytes > end)) {
+        break; // the record was not written completely
+      }
+
+      if (magic == EventLog.KEYFRAME_MAGIC) {
+        if (numKeyframes == keyframeTurns.length) {
+          keyframeTurns = Arrays.copyOf(keyframeTurns, 2 * numKeyframes);
+          keyframePositions = Arrays.copyOf(keyframePositions, 2 * numKeyframes);
+        }
+        keyframeTurns[numKeyframes] = header.getInt(4);
+        keyframePositions[numKeyframes] = recordPosition;
+        numKeyframes++;
+      }
+      lastTurn = header.getInt(4);
+      recordPosition += recordBytes;
+    }
+  }
+
+  /*
+   * readAt
+   * This method fills a buffer with bytes of the file, stopping early at the end of the file
+   * @param buffer, the ByteBuffer filled from its start, whose limit is set to the number of bytes read
+   * @param filePosition, the position of the first byte in the file
+   * @param numBytes, the number of bytes to read
+   */
+  private void readAt(ByteBuffer buffer, long filePosition, int numBytes) throws IOException {
+    buffer.clear();
+    buffer.limit(numBytes);
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, filePosition + buffer.position()) < 0) {
+        break;
+      }
+    }
+    buffer.flip();
+  }
+
+  /*
+   * getHealth
+   * This method reads a health written by EventLog.putHealth
+   * @return the health
+   */
+  private float getHealth() {
+    long encoded = getVarint();
+    if ((encoded & 1) == 0) {
+      return (float) unzigzag(encoded >>> 1);
+    }
+    return Float.intBitsToFloat((int) (encoded >>> 1));
+  }
+
+  private static long unzigzag(long value) {
+    return (value >>> 1) ^ -(value & 1);
+  }
+
+  /*
+   * getVarint
+   * This method reads a value written 7 bits at a time by EventLog.putVarint
+   * @return the value
+   */
+  private long getVarint() {
+    long value = 0;
+    int shift = 0;
+    byte b;
+    do {
+      b = events.get();
+      value |= (long) (b & 0x7F) << shift;
+      shift += 7;
+    } while (b < 0);
+    return value;
+  }
+
+  public void close() throws IOException {
+    channel.close();
+  }
+
+  public static void main(String[] args) {
+    Properties settings = BatchRunner.readSettings(args, KEYS);
+    if (settings.getProperty("events") == null) {
+      System.err.println("The path of the event log must be given as events=path.");
+      System.exit(1);
+    }
+
+    try (Writer out = (settings.getProperty("out") == null)
+                        ? new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8))
+                        : new BufferedWriter(new FileWriter(settings.getProperty("out")))) {
+      EventReplayer replayer = new EventReplayer(settings.getProperty("events"));
+      int fromTurn = BatchRunner.getInt(settings, "from", replayer.getFirstTurn() + 1);
+      int toTurn = BatchRunner.getInt(settings, "to", replayer.getLastTurn());
+      replayer.describe(fromTurn, toTurn, out);
+      replayer.close();
+    } catch (IOException e) {
+      System.err.println("The event log could not be read: " + e.getMessage());
+      System.exit(1);
+    }
+  }
+}
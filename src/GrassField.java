@@ -0,0 +1,170 @@
+import java.nio.ByteBuffer;
+
+/*
+ * GrassField
+ * Lets grass grow as a field rather than spawn at random. Every position holds an amount of grass, its biomass, in a
+ * primitive array. Once per turn, the biomass grows logistically towards a capacity and diffuses to the four
+ * neighbouring positions, so grass regrows where it was grazed and spreads next to existing grass. A position is
+ * shown as grass in the WorldStore, whose health is then its biomass, once its biomass reaches VISIBLE_FRACTION of 
+ * the capacity and no animal stands on it, and becomes empty again when its biomass falls below that. A grazing sheep
+ * eats the biomass of a position, leaving ROOT_FRACTION of it, rather than removing a grass.
+ * The old biomass of the row being updated, of the rows above and below it, and of the row shifted by one position
+ * to the left and to the right are copied to separate buffers, and the new biomass is written to another one. The
+ * inner loop thus reads the same index of five arrays and writes it in a sixth, with no branch, which is what the JIT
+ * compiler needs to use vector instructions for it. The map is treated as closed: no grass diffuses past its edges.
+ */
+class GrassField {
+  public static final float GROWTH_RATE = 0.1f; // growth per turn of a position with little biomass
+  public static final float DIFFUSION_RATE = 0.05f; // fraction of the difference with each neighbour moved per turn
+  public static final float VISIBLE_FRACTION = 0.5f;
+  public static final float ROOT_FRACTION = 0.2f;
+
+  private int lenY, lenX;
+  private float capacity, inverseCapacity;
+  private float[] biomass;
+  private float[] above, current, below; // old biomass of the row being updated and of the rows next to it
+  private float[] left, right; // old biomass of the positions to the left and to the right of each position of the row
+  private float[] next; // new biomass of the row being updated
+  private int[] changed; // positions of the row that start or stop showing grass
+
+  /*
+   * Creates a field in which every position holding grass in a WorldStore starts with the health of that grass as
+   * its biomass, and every other position with none
+   * @param world, the WorldStore of the map
+   * @param capacity, the largest biomass a position can hold, at least 1
+   */
+  GrassField(WorldStore world, float capacity) {
+    this.lenY = world.getLenY();
+    this.lenX = world.getLenX();
+    this.capacity = Math.max(capacity, 1);
+    this.inverseCapacity = 1 / this.capacity;
+    this.biomass = new float[world.getArea()];
+    this.above = new float[lenX];
+    this.current = new float[lenX];
+    this.below = new float[lenX];
+    this.left = new float[lenX];
+    this.right = new float[lenX];
+    this.next = new float[lenX];
+    this.changed = new int[lenX];
+
+    for (int cell = 0; cell < world.getArea(); cell++) {
+      if (world.getType(cell) == WorldStore.GRASS) {
+        biomass[cell] = Math.min(world.getHealth(cell), this.capacity);
+      }
+    }
+  }
+
+  public float getBiomass(int cell) {
+    return biomass[cell];
+  }
+
+  public float getCapacity() {
+    return capacity;
+  }
+
+  /*
+   * writeState
+   * This method copies the biomass of every position to a buffer, in the byte order of the buffer
+   * @param out, the ByteBuffer written to, from its position, which is moved past the biomass
+   */
+  public void writeState(ByteBuffer out) {
+    out.asFloatBuffer().put(biomass);
+    out.position(out.position() + 4 * biomass.length);
+  }
+
+  /*
+   * readState
+   * This method replaces the biomass of every position with the biomass written by writeState
+   * @param in, the ByteBuffer read from, from its position, which is moved past the biomass
+   */
+  public void readState(ByteBuffer in) {
+    in.asFloatBuffer().get(biomass);
+    in.position(in.position() + 4 * biomass.length);
+  }
+
+  /*
+   * graze
+   * This method removes the biomass a sheep eats at a position
+   * @param cell, the index of the position
+   * @return bite, the biomass eaten
+   */
+  public float graze(int cell) {
+    float bite = biomass[cell] * (1 - ROOT_FRACTION);
+    biomass[cell] -= bite;
+    return bite;
+  }
+
+  /*
+   * grow
+   * This method updates the biomass of a band of rows for one turn, one row at a time, and then makes the positions
+   * of the row whose biomass crossed the visible threshold hold grass or become empty in the WorldStore
+   * @param world, the WorldStore of the map
+   * @param minRow and maxRow, the first and last rows updated
+   */
+  public void grow(WorldStore world, int minRow, int maxRow) {
+    System.arraycopy(biomass, Math.max(minRow - 1, 0) * lenX, above, 0, lenX);
+    System.arraycopy(biomass, minRow * lenX, current, 0, lenX);
+    for (int i = minRow; i <= maxRow; i++) {
+      System.arraycopy(biomass, Math.min(i + 1, lenY - 1) * lenX, below, 0, lenX);
+      updateRow();
+      System.arraycopy(next, 0, biomass, i * lenX, lenX);
+      showRow(world, i * lenX);
+
+      // the old biomass of this row and of the row below are those of the rows around the next row
+      float[] swap = above;
+      above = current;
+      current = below;
+      below = swap;
+    }
+  }
+
+  /*
+   * updateRow
+   * This method computes the new biomass of a row in the next buffer, from the buffers holding the old biomass of the
+   * row and of the rows above and below it. A position on an edge of the map counts as its own neighbour past the edge
+   */
+  private void updateRow() {
+    System.arraycopy(current, 0, left, 1, lenX - 1);
+    left[0] = current[0];
+    System.arraycopy(current, 1, right, 0, lenX - 1);
+    right[lenX - 1] = current[lenX - 1];
+
+    for (int j = 0; j < lenX; j++) {
+      float b = current[j];
+      float neighbours = above[j] + below[j] + left[j] + right[j];
+      float grown = b + GROWTH_RATE * b * (1 - b * inverseCapacity) + DIFFUSION_RATE * (neighbours - 4 * b);
+      next[j] = Math.min(Math.max(grown, 0f), capacity);
+    }
+  }
+
+  /*
+   * showRow
+   * This method makes the empty positions of a row whose biomass is visible hold grass, and the positions of grass
+   * whose biomass is not visible anymore empty. The positions to change are found first, so that the scan of the row 
+   * does not call into the WorldStore
+   * @param world, the WorldStore of the map
+   * @param start, the index of the first position of the row
+   */
+  private void showRow(WorldStore world, int start) {
+    float threshold = VISIBLE_FRACTION * capacity;
+    int numChanged = 0;
+    for (int cell = start; cell < start + lenX; cell++) {
+      byte type = world.getType(cell);
+      if ((type <= WorldStore.GRASS) && ((type == WorldStore.GRASS) != (biomass[cell] >= threshold))) {
+        changed[numChanged] = cell;
+        numChanged++;
+      }
+    }
+
+    for (int k = 0; k < numChanged; k++) {
+      int cell = changed[k];
+      if (world.getType(cell) == WorldStore.GRASS) {
+        world.clear(cell);
+        world.recordEvent(EventLog.WITHERING, cell, cell);
+      } else {
+        world.place(cell, WorldStore.GRASS, biomass[cell], false);
+        world.recordEvent(EventLog.GROWTH, cell, cell);
+      }
+    }
+  }
+}
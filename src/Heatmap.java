@@ -0,0 +1,283 @@
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/*
+ * Heatmap
+ * Counts where things happen on the map, in square blocks of the map, as they happen. For each block, it counts the
+ * turns each type of organism spent in it, in the GRASS_TURNS, SHEEP_TURNS and WOLF_TURNS layers, and the sheep
+ * eaten, sheep starved, wolves starved and animals born in it, in the PREDATIONS, SHEEP_STARVATIONS,
+ * WOLF_STARVATIONS and BIRTHS layers. The WorldStore changes the heatmap every time the type at a position changes,
+ * and passes it the events of the map. The turns an organism spends in a block are counted without scanning the map:
+ * the turn it arrives is taken away from the block and the turn it leaves is added, so the turns spent by the
+ * organisms still there are found from their number when the heatmap is read. A block takes BYTES_PER_BLOCK bytes, so
+ * larger blocks keep the memory used by the heatmap of a large map bounded, and getBlockSize finds the smallest
+ * blocks that fit in a given number of bytes.
+ * The heatmap can be written as a compact binary file holding every layer, or by HeatmapImages as a grayscale PNG
+ * image per layer, so that no AWT class is loaded to count or write the binary file. The binary file starts with a
+ * header of HEADER_BYTES bytes in little-endian order holding MAGIC, VERSION, the turn written, the turn counting
+ * started, the size of the map, the block size, the number of blocks down and across and the number of layers,
+ * followed by the value of each block, layer after layer and row by row, as a varint of 7 bits per byte.
+ * While several threads change the map at once, the heatmap can be put in concurrent mode, in which the counts are
+ * changed with atomic operations.
+ */
+class Heatmap {
+  public static final long MAGIC = 0x45434F484541544DL; // "ECOHEATM"
+  public static final int VERSION = 1;
+  public static final int HEADER_BYTES = 44;
+  public static final long DEFAULT_MAX_BYTES = 64L << 20;
+
+  // layers, the first three being indexed by type minus GRASS
+  public static final int GRASS_TURNS = 0;
+  public static final int SHEEP_TURNS = 1;
+  public static final int WOLF_TURNS = 2;
+  public static final int PREDATIONS = 3;
+  public static final int SHEEP_STARVATIONS = 4;
+  public static final int WOLF_STARVATIONS = 5;
+  public static final int BIRTHS = 6;
+  public static final int NUM_LAYERS = 7;
+  public static final String[] LAYER_NAMES = {"grass", "sheep", "wolves", "predations", "sheepStarvations",
+    "wolfStarvations", "births"};
+  public static final int BYTES_PER_BLOCK = 3 * 8 + 3 * 4 + 4 * 4;
+
+  private static final VarHandle LONGS = MethodHandles.arrayElementVarHandle(long[].class);
+  private static final VarHandle INTS = MethodHandles.arrayElementVarHandle(int[].class);
+
+  private int lenY, lenX;
+  private int blockSize;
+  private int blocksY, blocksX, numBlocks;
+  private int startTurn; // turn at which counting started
+  private long[] turns; // for each type and block, the turns organisms left it minus the turns they arrived in it
+  private int[] present; // for each type and block, the number of organisms in it
+  private int[] events; // for each kind of event and block, the number of events in it
+  private boolean concurrent;
+
+  /*
+   * Creates a heatmap of blocks covering the map, counting from the current turn of a WorldStore, for which the
+   * organisms already stored in it arrive
+   * @param world, the WorldStore of the map
+   * @param blockSize, the width and height of a block
+   */
+  Heatmap(WorldStore world, int blockSize) {
+    this.lenY = world.getLenY();
+    this.lenX = world.getLenX();
+    this.blockSize = Math.max(blockSize, 1);
+    this.blocksY = (lenY + this.blockSize - 1) / this.blockSize;
+    this.blocksX = (lenX + this.blockSize - 1) / this.blockSize;
+    this.numBlocks = blocksY * blocksX;
+    this.startTurn = world.getTurn();
+    this.turns = new long[3 * numBlocks];
+    this.present = new int[3 * numBlocks];
+    this.events = new int[(NUM_LAYERS - 3) * numBlocks];
+    this.concurrent = false;
+
+    for (int cell = 0; cell < world.getArea(); cell++) {
+      byte type = world.getType(cell);
+      if (type != WorldStore.EMPTY) {
+        int index = (type - WorldStore.GRASS) * numBlocks + blockOf(cell);
+        turns[index] -= startTurn;
+        present[index]++;
+      }
+    }
+  }
+
+  /*
+   * getBlockSize
+   * This method finds the smallest block size for which the heatmap of a map fits in a number of bytes
+   * @param world, the WorldStore of the map
+   * @param maxBytes, the largest number of bytes the counts of the heatmap can take
+   * @return the width and height of a block
+   */
+  public static int getBlockSize(WorldStore world, long maxBytes) {
+    int size = 1;
+    while ((size < Math.max(world.getLenY(), world.getLenX()))
+             && ((long) BYTES_PER_BLOCK * ((world.getLenY() + size - 1) / size) * ((world.getLenX() + size - 1) / size)
+                   > maxBytes)) {
+      size++;
+    }
+    return size;
+  }
+
+  public int getBlockSize() {
+    return blockSize;
+  }
+
+  public int getBlocksY() {
+    return blocksY;
+  }
+
+  public int getBlocksX() {
+    return blocksX;
+  }
+
+  public int getStartTurn() {
+    return startTurn;
+  }
+
+  /*
+   * getBlockArea
+   * This method finds the number of positions of the map in a block, which is smaller for the blocks of the last row
+   * and column when the block size does not divide the size of the map
+   * @param block, the index of the block, row by row
+   * @return the number of positions
+   */
+  public int getBlockArea(int block) {
+    int height = Math.min(blockSize, lenY - (block / blocksX) * blockSize);
+    int width = Math.min(blockSize, lenX - (block % blocksX) * blockSize);
+    return height * width;
+  }
+
+  public void setConcurrent(boolean concurrent) {
+    this.concurrent = concurrent;
+  }
+
+  /*
+   * change
+   * This method counts an organism leaving a position and another arriving at it
+   * @param cell, the index of the position in the WorldStore
+   * @param oldType and newType, the types at the position before and after the change, which are different
+   * @param turn, the current turn
+   */
+  public void change(int cell, byte oldType, byte newType, int turn) {
+    int block = blockOf(cell);
+    if (oldType != WorldStore.EMPTY) {
+      add((oldType - WorldStore.GRASS) * numBlocks + block, turn, -1);
+    }
+    if (newType != WorldStore.EMPTY) {
+      add((newType - WorldStore.GRASS) * numBlocks + block, -turn, 1);
+    }
+  }
+
+  /*
+   * count
+   * This method counts an event of the map in the layer it belongs to, if any: a PREDATION or EATEN at the position
+   * of the sheep eaten, a STARVATION at the position of the animal, and a BIRTH at the position of the new animal
+   * @param kind, one of the constants of EventLog
+   * @param cell and other, the positions of the event, as EventLog.record takes them
+   * @param type, the type at cell, which for a STARVATION is the type of the animal starving
+   */
+  public void count(byte kind, int cell, int other, byte type) {
+    int layer = -1;
+    if (kind == EventLog.PREDATION) {
+      layer = PREDATIONS;
+      cell = other;
+    } else if (kind == EventLog.EATEN) {
+      layer = PREDATIONS;
+    } else if (kind == EventLog.STARVATION) {
+      layer = (type == WorldStore.WOLF) ? WOLF_STARVATIONS : SHEEP_STARVATIONS;
+    } else if (kind == EventLog.BIRTH) {
+      layer = BIRTHS;
+    }
+
+    if (layer >= 0) {
+      int index = (layer - PREDATIONS) * numBlocks + blockOf(cell);
+      if (concurrent) {
+        INTS.getAndAdd(events, index, 1);
+      } else {
+        events[index]++;
+      }
+    }
+  }
+
+  /*
+   * getValue
+   * This method reads the count of a block of a layer
+   * @param layer, one of the GRASS_TURNS, SHEEP_TURNS, WOLF_TURNS, PREDATIONS, SHEEP_STARVATIONS, WOLF_STARVATIONS
+   * or BIRTHS constants
+   * @param block, the index of the block, row by row
+   * @param turn, the current turn, up to which the turns spent by the organisms still in the block are counted
+   * @return a long holding the number of turns or events
+   */
+  public long getValue(int layer, int block, int turn) {
+    if (layer < PREDATIONS) {
+      int index = layer * numBlocks + block;
+      return turns[index] + (long) turn * present[index];
+    }
+    return events[(layer - PREDATIONS) * numBlocks + block];
+  }
+
+  /*
+   * getFileName
+   * This method finds the name of a file written by writeBinary or HeatmapImages
+   * @param prefix, the path of the files without their layer, turn and extension
+   * @param layer, the layer of an image, or -1 for a binary file
+   * @param turn, the turn written
+   * @return the path of the file
+   */
+  public static String getFileName(String prefix, int layer, int turn) {
+    if (layer < 0) {
+      return prefix + String.format("-%06d.heatmap", turn);
+    }
+    return prefix + "-" + LAYER_NAMES[layer] + String.format("-%06d.png", turn);
+  }
+
+  /*
+   * writeBinary
+   * This method writes every layer to a binary file named by getFileName
+   * @param prefix, the path of the file without its turn and extension
+   * @param turn, the current turn
+   */
+  public void writeBinary(String prefix, int turn) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + 10 * NUM_LAYERS * numBlocks).order(ByteOrder.LITTLE_ENDIAN);
+    buffer.putLong(MAGIC);
+    buffer.putInt(VERSION);
+    buffer.putInt(turn);
+    buffer.putInt(startTurn);
+    buffer.putInt(lenY);
+    buffer.putInt(lenX);
+    buffer.putInt(blockSize);
+    buffer.putInt(blocksY);
+    buffer.putInt(blocksX);
+    buffer.putInt(NUM_LAYERS);
+    for (int layer = 0; layer < NUM_LAYERS; layer++) {
+      for (int block = 0; block < numBlocks; block++) {
+        long value = getValue(layer, block, turn);
+        while ((value & ~0x7FL) != 0) {
+          buffer.put((byte) ((value & 0x7F) | 0x80));
+          value >>>= 7;
+        }
+        buffer.put((byte) value);
+      }
+    }
+    buffer.flip();
+
+    try (FileChannel channel = FileChannel.open(Paths.get(getFileName(prefix, -1, turn)), StandardOpenOption.CREATE,
+                                                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+    }
+  }
+
+  /*
+   * add
+   * This method changes the turns and number of organisms of a type in a block
+   * @param index, the index of the type and block in turns and present
+   * @param turnChange, the number of turns added
+   * @param change, the number of organisms added
+   */
+  private void add(int index, long turnChange, int change) {
+    if (concurrent) {
+      LONGS.getAndAdd(turns, index, turnChange);
+      INTS.getAndAdd(present, index, change);
+    } else {
+      turns[index] += turnChange;
+      present[index] += change;
+    }
+  }
+
+  /*
+   * blockOf
+   * This method finds the block holding a position
+   * @param cell, the index of the position in the WorldStore
+   * @return the index of the block
+   */
+  private int blockOf(int cell) {
+    return (cell / lenX / blockSize) * blocksX + (cell % lenX) / blockSize;
+  }
+}
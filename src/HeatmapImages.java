@@ -0,0 +1,51 @@
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import javax.imageio.ImageIO;
+
+/*
+ * HeatmapImages
+ * Writes each layer of a Heatmap as a grayscale PNG image, with a pixel per block. A block of a layer of turns is as
+ * bright as the fraction of the turns since counting started that its positions held the type, and a block of a layer
+ * of events is as bright as its number of events compared with the block that has the most. It is kept apart from
+ * Heatmap so that AWT is only loaded when images are written.
+ */
+class HeatmapImages {
+
+  /*
+   * write
+   * This method writes each layer of a Heatmap as an image named by Heatmap.getFileName
+   * @param heatmap, the Heatmap
+   * @param prefix, the path of the images without their layer, turn and extension
+   * @param turn, the current turn
+   */
+  public static void write(Heatmap heatmap, String prefix, int turn) throws IOException {
+    int blocksY = heatmap.getBlocksY();
+    int blocksX = heatmap.getBlocksX();
+    int numBlocks = blocksY * blocksX;
+    int numTurns = turn - heatmap.getStartTurn();
+    BufferedImage image = new BufferedImage(blocksX, blocksY, BufferedImage.TYPE_BYTE_GRAY);
+    byte[] pixels = new byte[numBlocks];
+    for (int layer = 0; layer < Heatmap.NUM_LAYERS; layer++) {
+      long max = 1;
+      if (layer >= Heatmap.PREDATIONS) {
+        for (int block = 0; block < numBlocks; block++) {
+          max = Math.max(max, heatmap.getValue(layer, block, turn));
+        }
+      }
+
+      for (int block = 0; block < numBlocks; block++) {
+        double fraction;
+        if (layer < Heatmap.PREDATIONS) {
+          fraction = (numTurns == 0) ? 0
+                       : heatmap.getValue(layer, block, turn) / ((double) heatmap.getBlockArea(block) * numTurns);
+        } else {
+          fraction = heatmap.getValue(layer, block, turn) / (double) max;
+        }
+        pixels[block] = (byte) Math.round(255 * Math.min(Math.max(fraction, 0), 1));
+      }
+      image.getRaster().setDataElements(0, 0, blocksX, blocksY, pixels);
+      ImageIO.write(image, "png", new File(Heatmap.getFileName(prefix, layer, turn)));
+    }
+  }
+}
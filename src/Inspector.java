@@ -1,15 +1,15 @@
 /*
  * Inspector
- * This class finds new positions of an Organism based on a copy of the 2D map containing all the Organisms. The new
+ * This class finds new positions of an Organism based on the WorldStore containing all the Organisms. The new
  * Organism is either in a certain direction away from an existing point on the map or is found independent of other
  * points as the closest Organism to the center of the map
  */
 class Inspector {
-  private Organism[][] map;
+  private WorldStore map;
   private int[] coordinatesYX = new int[2];
   private int[] tempCoordinates = new int[2];
   
-  Inspector(Organism[][] map) {
+  Inspector(WorldStore map) {
     this.map = map;
     this.coordinatesYX = getFirstCoordinates();
   } 
@@ -27,7 +27,7 @@ class Inspector {
    * setCoordinates
    * This method sets the coordinatesYX array to a certain y coordinate and x coordinate so that the coordinates it 
    * holds can be changed outside of the class
-   * @param yPos and xPos, the y and x coordinates on the 2D Organism map that will be copied to coordinates[0]
+   * @param yPos and xPos, the y and x coordinates on the map that will be copied to coordinates[0]
    * and coordinates[1] respectively
    */
   public void setCoordinates(int yPos, int xPos) {
@@ -37,25 +37,25 @@ class Inspector {
          
   /*
    * getFirstCoordinates
-   * This method returns the coordinates of the closest organism to the center of map, a 2D Organism array holding all
+   * This method returns the coordinates of the closest organism to the center of map, a WorldStore holding all
    * the existing organisms
    * @return coordinatesYX, an integer array of width two holding the y coordinate and x coordinate of the organism
    * that was found, unless no organism exists and null is returned
    */
   public int[] getFirstCoordinates() {
-    this.coordinatesYX[0] = map.length / 2;
-    this.coordinatesYX[1] = map[0].length / 2;
+    this.coordinatesYX[0] = map.getLenY() / 2;
+    this.coordinatesYX[1] = map.getLenX() / 2;
     int side = 1;
     final char[] MOVE = {'u', 'r', 'd', 'l'};
     
     // iterates through the map in a spiral-like motion until an organism has been found or the whole map has been traversed
-    while (side <= map.length + 1) {
+    while (side <= map.getLenY() + 1) {
       for (int i = 0; i < 4; i++) {
         for (int j = 0; j < side; j++) {
-          if ((coordinatesYX[0] >= 0 && coordinatesYX[0] < map.length) 
-                && (coordinatesYX[1] >= 0 && coordinatesYX[1] < map[0].length) 
-                && (map[coordinatesYX[0]][coordinatesYX[1]] != null)) {
-            map[coordinatesYX[0]][coordinatesYX[1]].setSelected(true);
+          if ((coordinatesYX[0] >= 0 && coordinatesYX[0] < map.getLenY()) 
+                && (coordinatesYX[1] >= 0 && coordinatesYX[1] < map.getLenX()) 
+                && !map.isEmpty(map.index(coordinatesYX[0], coordinatesYX[1]))) {
+            map.setSelected(map.index(coordinatesYX[0], coordinatesYX[1]), true);
             return coordinatesYX;
           } else {
             if (MOVE[i] == 'u') {
@@ -95,7 +95,7 @@ class Inspector {
    */ 
   public int[] getNextCoordinatesHorizontal(char c) {
     int upScope = coordinatesYX[0];
-    int downScope = map.length - coordinatesYX[0];
+    int downScope = map.getLenY() - coordinatesYX[0];
     
     int deltaX = 0;
     int xBorderDistance = 0;
@@ -104,7 +104,7 @@ class Inspector {
       xBorderDistance = coordinatesYX[1];
     } else if (c == 'r') {
       deltaX = 1;
-      xBorderDistance = map[0].length - 1 - coordinatesYX[1];
+      xBorderDistance = map.getLenX() - 1 - coordinatesYX[1];
     } else {
       System.out.println("An improper argument was passed into the method getNextCoordinatesHorizontal(char c)");
     }
@@ -149,7 +149,7 @@ class Inspector {
    * @return coordinatesYX, an integer array holding the position of the newly found organism 
    */
   public int[] getNextCoordinatesVertical(char c) {
-    int rightScope = map[0].length - coordinatesYX[1]; 
+    int rightScope = map.getLenX() - coordinatesYX[1]; 
     int leftScope = coordinatesYX[1];
     
     int deltaY = 0;
@@ -159,7 +159,7 @@ class Inspector {
       yBorderDistance = coordinatesYX[0];
     } else if (c == 'd') {
       deltaY = 1;
-      yBorderDistance = map.length - 1 - coordinatesYX[0];
+      yBorderDistance = map.getLenY() - 1 - coordinatesYX[0];
     } else {
       System.out.println("An improper argument was passed into the method getNextCoordinatesVertical(char c)");
     }
@@ -177,14 +177,14 @@ class Inspector {
             }
           }
         } else if (k < leftScope) {
-          if (map[coordinatesYX[0] + deltaY][coordinatesYX[1] - k] != null) {
+          if (!map.isEmpty(map.index(coordinatesYX[0] + deltaY, coordinatesYX[1] - k))) {
             tempCoordinates = newPosition(deltaY, -k);
             if (tempCoordinates != null) {
               return tempCoordinates;
             }
           }
         } else if (k < rightScope) {
-          if (map[coordinatesYX[0] + deltaY][coordinatesYX[1] + k] != null) {
+          if (!map.isEmpty(map.index(coordinatesYX[0] + deltaY, coordinatesYX[1] + k))) {
             tempCoordinates = newPosition(deltaY, k);
             if (tempCoordinates != null) {
               return tempCoordinates;
@@ -208,7 +208,7 @@ class Inspector {
    * @return null, if the spot on the map determines by coordinatesYX, yChange and xChange is empty
    */
   private int[] newPosition(int yChange, int xChange) {
-    if (map[coordinatesYX[0] + yChange][coordinatesYX[1] + xChange] != null) {
+    if (!map.isEmpty(map.index(coordinatesYX[0] + yChange, coordinatesYX[1] + xChange))) {
       coordinatesYX[0] += yChange;
       coordinatesYX[1] += xChange;
     
@@ -0,0 +1,84 @@
+/*
+ * LatencyHistogram
+ * Counts durations in nanoseconds in buckets whose width grows with the duration, so that percentiles of any number
+ * of turns can be found in a fixed amount of memory. Durations below 2^SUB_BITS are counted exactly, and each larger
+ * power of two is split into 2^SUB_BITS buckets of equal width, so a percentile is off by less than one part in
+ * 2^SUB_BITS. The largest duration is kept exactly.
+ */
+class LatencyHistogram {
+  private static final int SUB_BITS = 7;
+  private static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+  private long[] counts;
+  private long total;
+  private long max;
+
+  LatencyHistogram() {
+    this.counts = new long[(64 - SUB_BITS) * SUB_BUCKETS];
+    this.total = 0;
+    this.max = 0;
+  }
+
+  /*
+   * record
+   * This method counts a duration
+   * @param nanos, the duration in nanoseconds, counted as 0 if negative
+   */
+  public void record(long nanos) {
+    nanos = Math.max(nanos, 0);
+    counts[bucketOf(nanos)]++;
+    total++;
+    max = Math.max(max, nanos);
+  }
+
+  public long getCount() {
+    return total;
+  }
+
+  /*
+   * getPercentile
+   * This method finds a percentile of the durations counted using the nearest rank
+   * @param fraction, the percentile as a fraction between 0 and 1
+   * @return the largest duration of the bucket holding the percentile, in nanoseconds, or 0 if nothing was counted
+   */
+  public long getPercentile(double fraction) {
+    long rank = Math.max((long) Math.ceil(fraction * total), 1);
+    long seen = 0;
+    for (int bucket = 0; bucket < counts.length; bucket++) {
+      seen += counts[bucket];
+      if (seen >= rank) {
+        return Math.min(highestOf(bucket), max);
+      }
+    }
+    return max;
+  }
+
+  /*
+   * bucketOf
+   * This method finds the bucket a duration is counted in
+   * @param nanos, a duration that is not negative
+   * @return the index of the bucket
+   */
+  private static int bucketOf(long nanos) {
+    if (nanos < SUB_BUCKETS) {
+      return (int) nanos;
+    }
+    int shift = 63 - Long.numberOfLeadingZeros(nanos) - SUB_BITS; // keeps the SUB_BITS bits below the highest one
+    return (shift + 1) * SUB_BUCKETS + (int) ((nanos >>> shift) - SUB_BUCKETS);
+  }
+
+  /*
+   * highestOf
+   * This method finds the largest duration counted in a bucket
+   * @param bucket, the index of the bucket
+   * @return the duration in nanoseconds
+   */
+  private static long highestOf(int bucket) {
+    if (bucket < SUB_BUCKETS) {
+      return bucket;
+    }
+    int shift = bucket / SUB_BUCKETS - 1;
+    long lowest = (long) (bucket % SUB_BUCKETS + SUB_BUCKETS) << shift;
+    return lowest + (1L << shift) - 1;
+  }
+}
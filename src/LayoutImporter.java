@@ -0,0 +1,154 @@
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import javax.imageio.ImageIO;
+
+/*
+ * LayoutImporter
+ * Fills an empty map with organisms read from a layout file, so that a given landscape can be reproduced. The file is
+ * either a PNG image the size of the map, each pixel of which is read as the type whose colour in DisplayEcosim is
+ * closest to it, or a raw file holding one byte per position, row by row, whose values are the WorldStore.EMPTY,
+ * GRASS, SHEEP and WOLF constants. A raw file is read through a memory-mapped FileChannel.
+ * The file is read in a single pass, during which grass marks the positions around it as places where grass can spawn
+ * and animals are given a random sex. Once every organism is on the map, the health of each animal is determined by
+ * the rule of OrganismCreator, from the number of animals around it.
+ */
+class LayoutImporter {
+  private static final int MAX_MAPPED_BYTES = 1 << 30;
+
+  // the colours DisplayEcosim draws each type with, indexed by type
+  private static final int[][] COLOURS = {{88, 66, 37}, {96, 128, 56}, {192, 192, 192}, {50, 50, 50}};
+
+  private WorldStore world;
+  private OrganismCreator creator;
+  private int grassHealth;
+
+  /*
+   * Creates an importer filling the map of a WorldStore
+   * @param world, the WorldStore of the map, which must be empty
+   * @param creator, the OrganismCreator whose rule determines the health of animals
+   * @param grassValue, the health of grass
+   */
+  LayoutImporter(WorldStore world, OrganismCreator creator, int grassValue) {
+    this.world = world;
+    this.creator = creator;
+    this.grassHealth = grassValue;
+  }
+
+  /*
+   * read
+   * This method fills the map with the organisms of a layout file, read as a PNG image if its name ends in .png and
+   * as a raw file otherwise
+   * @param path, the path of the file
+   */
+  public void read(String path) throws IOException {
+    // the sets of positions are only rebuilt once, after every organism is placed
+    world.setConcurrent(true);
+    try {
+      if (path.toLowerCase().endsWith(".png")) {
+        readImage(path);
+      } else {
+        readMask(path);
+      }
+    } finally {
+      world.setConcurrent(false);
+    }
+    creator.adjustInitialHealth();
+  }
+
+  /*
+   * readMask
+   * This method places the organisms of a raw file holding one byte per position
+   * @param path, the path of the file
+   */
+  private void readMask(String path) throws IOException {
+    try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+      if (channel.size() != world.getArea()) {
+        throw new IOException("The layout " + path + " holds " + channel.size() + " bytes instead of one byte for "
+                                + "each of the " + world.getArea() + " positions of the map");
+      }
+
+      for (long start = 0; start < channel.size(); start += MAX_MAPPED_BYTES) {
+        int length = (int) Math.min(MAX_MAPPED_BYTES, channel.size() - start);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+        for (int i = 0; i < length; i++) {
+          int cell = (int) start + i;
+          byte type = buffer.get(i);
+          if ((type < WorldStore.EMPTY) || (type > WorldStore.WOLF)) {
+            throw new IOException("The layout " + path + " holds the invalid value " + type + " at position " + cell);
+          }
+          placeOrganism(cell, type);
+        }
+      }
+    }
+  }
+
+  /*
+   * readImage
+   * This method places the organisms of a PNG image, one row of pixels at a time
+   * @param path, the path of the image
+   */
+  private void readImage(String path) throws IOException {
+    BufferedImage image = ImageIO.read(new File(path));
+    if (image == null) {
+      throw new IOException("The layout " + path + " is not an image that can be read");
+    } else if ((image.getWidth() != world.getLenX()) || (image.getHeight() != world.getLenY())) {
+      throw new IOException("The layout " + path + " is " + image.getWidth() + "x" + image.getHeight()
+                              + " instead of " + world.getLenX() + "x" + world.getLenY());
+    }
+
+    int[] row = new int[world.getLenX()];
+    for (int i = 0; i < world.getLenY(); i++) {
+      image.getRGB(0, i, row.length, 1, row, 0, row.length);
+      for (int j = 0; j < row.length; j++) {
+        placeOrganism(world.index(i, j), closestType(row[j]));
+      }
+    }
+  }
+
+  /*
+   * closestType
+   * This method finds the type whose colour is closest to the colour of a pixel
+   * @param rgb, the colour of the pixel packed as 0xRRGGBB, the highest byte being ignored
+   * @return one of the WorldStore.EMPTY, GRASS, SHEEP or WOLF constants
+   */
+  private byte closestType(int rgb) {
+    int red = (rgb >> 16) & 0xFF;
+    int green = (rgb >> 8) & 0xFF;
+    int blue = rgb & 0xFF;
+    byte closest = WorldStore.EMPTY;
+    int closestDistance = Integer.MAX_VALUE;
+    for (byte type = WorldStore.EMPTY; type <= WorldStore.WOLF; type++) {
+      int distance = (red - COLOURS[type][0]) * (red - COLOURS[type][0])
+                       + (green - COLOURS[type][1]) * (green - COLOURS[type][1])
+                       + (blue - COLOURS[type][2]) * (blue - COLOURS[type][2]);
+      if (distance < closestDistance) {
+        closest = type;
+        closestDistance = distance;
+      }
+    }
+    return closest;
+  }
+
+  /*
+   * placeOrganism
+   * This method stores an organism read from the layout. Animals are only given their health once every organism
+   * has been read
+   * @param cell, the index of the position in the WorldStore
+   * @param type, one of the WorldStore.EMPTY, GRASS, SHEEP or WOLF constants
+   */
+  private void placeOrganism(int cell, byte type) {
+    if (type == WorldStore.GRASS) {
+      world.place(cell, WorldStore.GRASS, grassHealth, false);
+      world.markSpawnableAround(cell, MapManager.LEN_RESTRICTED / 2);
+    } else if (type != WorldStore.EMPTY) {
+      boolean isFemale = world.getRandom().nextBoolean(world.getTurn(), cell, 0);
+      world.place(cell, type, 0, isFemale);
+      world.getRoster().add(cell); // place does not add animals to the roster in concurrent mode
+    }
+  }
+}
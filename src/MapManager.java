@@ -0,0 +1,71 @@
+/*
+ * MapManager
+ * Stores a WorldStore containing the organisms of the map and a method that finds the coordinates of the boundaries
+ * around a given x and y coordinate inside that map. Each MapManager has its own WorldStore, unless it is given the
+ * WorldStore of another one, so several simulations can run in the same program
+ */
+class MapManager {
+  protected WorldStore world;
+  protected int lenY, lenX;
+  protected static final int LEN_RESTRICTED = 3;
+  
+  MapManager(int ySize, int xSize) {
+    this(new WorldStore(ySize, xSize));
+  }
+  
+  MapManager(WorldStore world) {
+    this.world = world;
+    this.lenY = world.getLenY();
+    this.lenX = world.getLenX();
+  }
+  
+  /*
+   * getWorld
+   * This method returns the WorldStore of the map
+   * @return world, the WorldStore holding all the organisms shown on the grid
+   */
+  public WorldStore getWorld() {
+    return world;
+  }
+  
+  /*
+   * getMap
+   * This method returns a copy of the map as a 2D Organism array, for code that still works with Organism objects
+   * @return a 2D array holding a copy of all the organisms shown on the grid
+   */
+  public Organism[][] getMap() {
+    return world.toOrganismMap();
+  }
+  
+  /*
+   * createBoundaries
+   * This method stores and returns the minimum and maximum horizontal and vertical coordinates within the map dimensions
+   * a certain distance (half of LEN_RESTRICTED) around the coordinate passed in as a parameter  
+   * @param yPos and xPos, integers containing vertical and horizontal coordinates (meant to be a point on the map)
+   * @return bounds, a 2D array holding the value of: the minimum y value, the maximum y value, the x minimum value,
+   * and the x maximum value, in that order, of the area around the coordinate passed in as a parameter
+   */
+  public int[] createBoundaries(int yPos, int xPos) {
+    int[] bounds = new int[4];
+    bounds[0] = Math.max(yPos - (LEN_RESTRICTED / 2), 0);
+    bounds[1] = Math.min(yPos + (LEN_RESTRICTED / 2), lenY - 1);
+    bounds[2] = Math.max(xPos - (LEN_RESTRICTED / 2), 0);
+    bounds[3] = Math.min(xPos + (LEN_RESTRICTED / 2), lenX - 1);
+
+    return bounds;
+  }
+  
+  /*
+   * fitWindow
+   * This method moves a MapWindow over the same area that createBoundaries finds around the coordinate passed in 
+   * as a parameter, without creating a new array for the bounds. The area is also limited to the clip of the window
+   * @param window, the MapWindow being moved
+   * @param yPos and xPos, integers containing vertical and horizontal coordinates (meant to be a point on the map)
+   */
+  public void fitWindow(MapWindow window, int yPos, int xPos) {
+    window.setBounds(Math.max(yPos - (LEN_RESTRICTED / 2), window.getClipMinY()), 
+                     Math.min(yPos + (LEN_RESTRICTED / 2), window.getClipMaxY()),
+                     Math.max(xPos - (LEN_RESTRICTED / 2), window.getClipMinX()), 
+                     Math.min(xPos + (LEN_RESTRICTED / 2), window.getClipMaxX()));
+  }
+}
@@ -0,0 +1,168 @@
+/*
+ * MapWindow
+ * A reusable view of the small portion of the map that an animal has access to. The window only stores where the
+ * portion starts and how large it is, so reading or writing a position through the window reads or writes the map
+ * itself. This replaces copying the portion into a new 2D array before an animal moves and copying it back after.
+ * Coordinates passed into the window are always relative to the top left corner of the portion.
+ * A window can also be clipped to a rectangle of the map, so that animals moved through it never reach outside of 
+ * that rectangle, and it adds every position an animal is moved onto to its own AnimalRoster and every animal born
+ * while moving through it to its own BirthQueue.
+ */
+class MapWindow {
+  private WorldStore world;
+  private AnimalRoster roster; // positions animals are moved onto through the window
+  private int clipMinY, clipMaxY, clipMinX, clipMaxX;
+  private BirthQueue births; // births that have not been placed on the map yet
+  private int originY, originX;
+  private int lenY, lenX;
+  private int blockedY, blockedX; // position the animal cannot move onto, -1 if there is none
+  private int[] nextPosition = new int[2]; // reused by the animal to store where it will move to
+
+  MapWindow(WorldStore world, AnimalRoster roster) {
+    this.world = world;
+    this.roster = roster;
+    this.clipMinY = 0;
+    this.clipMaxY = world.getLenY() - 1;
+    this.clipMinX = 0;
+    this.clipMaxX = world.getLenX() - 1;
+    this.births = new BirthQueue();
+    this.blockedY = -1;
+    this.blockedX = -1;
+  }
+
+  /*
+   * setBounds
+   * This method moves the window over the portion of the map limited by the parameters, so that the window
+   * behaves like the 2D array that getRestrictedMap used to create
+   * @param minY, maxY, minX and maxX, integers holding the minimum y value, the maximum y value, the minimum x value
+   * and the maximum x value, in that order, of the portion of the map
+   */
+  public void setBounds(int minY, int maxY, int minX, int maxX) {
+    this.originY = minY;
+    this.originX = minX;
+    this.lenY = maxY - minY + 1;
+    this.lenX = maxX - minX + 1;
+    this.blockedY = -1;
+    this.blockedX = -1;
+  }
+
+  /*
+   * setClip
+   * This method limits the window to a rectangle of the map. The window will never be moved over a position outside
+   * of this rectangle by MapManager.fitWindow
+   * @param minY, maxY, minX and maxX, integers holding the minimum y value, the maximum y value, the minimum x value
+   * and the maximum x value, in that order, of the rectangle
+   */
+  public void setClip(int minY, int maxY, int minX, int maxX) {
+    this.clipMinY = minY;
+    this.clipMaxY = maxY;
+    this.clipMinX = minX;
+    this.clipMaxX = maxX;
+  }
+
+  /*
+   * block
+   * This method stores a position on the map that the animal cannot move onto
+   * @param yPos and xPos, integers holding the coordinates of the position on the entire map (not on the window)
+   */
+  public void block(int yPos, int xPos) {
+    this.blockedY = yPos - originY;
+    this.blockedX = xPos - originX;
+  }
+
+  /*
+   * isBlocked
+   * This method determines if a position on the window is the one the animal cannot move onto
+   * @param yPos and xPos, integers holding coordinates on the window
+   * @return true if the position was blocked using the block method, false otherwise
+   */
+  public boolean isBlocked(int yPos, int xPos) {
+    return (yPos == blockedY) && (xPos == blockedX);
+  }
+
+  /*
+   * cell
+   * This method converts a position on the window to the index of the same position in the WorldStore
+   * @param yPos and xPos, integers holding coordinates on the window
+   * @return the index of that position on the entire map
+   */
+  public int cell(int yPos, int xPos) {
+    return world.index(originY + yPos, originX + xPos);
+  }
+
+  /*
+   * getType
+   * This method returns the type of organism stored at a position on the window
+   * @param yPos and xPos, integers holding coordinates on the window
+   * @return one of the WorldStore.EMPTY, GRASS, SHEEP or WOLF constants
+   */
+  public byte getType(int yPos, int xPos) {
+    return world.getType(cell(yPos, xPos));
+  }
+
+  /*
+   * move
+   * This method moves whatever is stored at one position on the window to another one, changing the map directly,
+   * and adds the new position to the roster of the window
+   * @param fromY and fromX, integers holding the coordinates on the window that will be made empty
+   * @param toY and toX, integers holding the coordinates on the window that will be copied to
+   */
+  public void move(int fromY, int fromX, int toY, int toX) {
+    world.move(cell(fromY, fromX), cell(toY, toX));
+    roster.add(cell(toY, toX));
+  }
+
+  public BirthQueue getBirths() {
+    return births;
+  }
+
+  public AnimalRoster getRoster() {
+    return roster;
+  }
+
+  public WorldStore getWorld() {
+    return world;
+  }
+
+  /*
+   * getNextPosition
+   * This method returns the integer array the animal uses to store its next position. The same array is returned
+   * every time, so its values must be used before the window is moved
+   * @return nextPosition, an integer array holding y and x coordinates on the window
+   */
+  public int[] getNextPosition() {
+    return nextPosition;
+  }
+
+  public int getOriginY() {
+    return originY;
+  }
+
+  public int getOriginX() {
+    return originX;
+  }
+
+  public int getLenY() {
+    return lenY;
+  }
+
+  public int getLenX() {
+    return lenX;
+  }
+
+  public int getClipMinY() {
+    return clipMinY;
+  }
+
+  public int getClipMaxY() {
+    return clipMaxY;
+  }
+
+  public int getClipMinX() {
+    return clipMinX;
+  }
+
+  public int getClipMaxX() {
+    return clipMaxX;
+  }
+}
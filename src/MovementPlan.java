@@ -0,0 +1,274 @@
+import java.util.Arrays;
+
+/*
+ * MovementPlan
+ * Moves every animal of a turn in two separate phases instead of moving animals one at a time and forcing the animals
+ * they collide with to react. In the propose phase, each animal only reads the map and writes the position it wants to
+ * move to into a buffer, so animals can propose in any order or in parallel. In the resolve phase, the buffer is
+ * applied to the map without recursion:
+ * 1. When several animals want the same position, the animal with the smallest position index gets it and the
+ *    others stay where they are.
+ * 2. Collisions are then applied one after the other: breeding, a wolf eating a sheep, a sheep running into a wolf and
+ *    fights between wolves follow the same rules as Sheep.movement, Wolf.movement and breedingOnCollision. Apart from
+ *    breeding and a wolf eating a sheep, an animal moving onto an animal that is itself leaving follows it instead.
+ * 3. Moves are carried out from a worklist holding the moves whose position is free, and each move frees the position
+ *    of the animal that made it.
+ * 4. Animals still following an animal that did not leave, such as animals following each other in a circle, collide
+ *    with it as if it had never wanted to leave, in the order of their position index, so that a sheep following a
+ *    wolf that stayed is eaten and wolves that stay fight, as when animals move one at a time. The moves this frees,
+ *    such as a wolf eating the sheep it followed, are carried out as in step 3, and the rest are cancelled.
+ * New animals are added to a BirthQueue and placed on the map by the caller once the turn is resolved.
+ */
+class MovementPlan {
+  private static final int PENDING = 0; // the animal still has to move to its target
+  private static final int STAYED = 1;
+  private static final int DONE = 2; // the animal moved or was removed from the map
+  private static final int STALLED = 3; // the animal followed an animal that did not leave
+
+  private MapManager manager;
+  private WorldStore world;
+  private int numMovers;
+  private int[] sources; // positions of the animals, in increasing order
+  private int[] targets; // positions the animals want to move to
+  private byte[] states;
+  private int[] claimant; // for each position, the animal allowed to move onto it, -1 if there is none
+  private int[] moverAt; // for each position, the animal that started the turn there, -1 if there is none
+  private int[] worklist;
+  private BirthQueue births;
+
+  MovementPlan(MapManager manager) {
+    this.manager = manager;
+    this.world = manager.getWorld();
+    this.numMovers = 0;
+    this.sources = new int[16];
+    this.targets = new int[16];
+    this.states = new byte[16];
+    this.worklist = new int[16];
+    this.claimant = new int[world.getArea()];
+    this.moverAt = new int[world.getArea()];
+    Arrays.fill(claimant, -1);
+    Arrays.fill(moverAt, -1);
+  }
+
+  /*
+   * collect
+   * This method starts a new plan with the animals of the roster that have not moved yet, and removes from the map 
+   * the animals whose health is not greater than 0
+   * @param roster, the AnimalRoster of the WorldStore
+   * @param numAnimals, the number of positions of the roster to collect
+   */
+  public void collect(AnimalRoster roster, int numAnimals) {
+    if (sources.length < numAnimals) {
+      int capacity = Math.max(numAnimals, 2 * sources.length); // grown in steps, as the roster grows a little each turn
+      sources = new int[capacity];
+      targets = new int[capacity];
+      states = new byte[capacity];
+      worklist = new int[capacity];
+    }
+
+    numMovers = 0;
+    for (int k = 0; k < numAnimals; k++) {
+      int cell = roster.get(k);
+      if (world.isAnimal(cell) && !world.hasMoved(cell)) {
+        if (world.getHealth(cell) <= 0) {
+          world.recordEvent(EventLog.STARVATION, cell, cell);
+          world.clear(cell);
+        } else {
+          sources[numMovers] = cell;
+          numMovers++;
+        }
+      }
+    }
+  }
+
+  public int size() {
+    return numMovers;
+  }
+
+  /*
+   * propose
+   * This method finds the position each animal of a range of the plan wants to move to. The map is only read, so
+   * several ranges can be proposed at once as long as each uses its own window
+   * @param start and end, integers holding the first animal of the range and the animal following the last one
+   * @param window, the MapWindow used to look around each animal
+   */
+  public void propose(int start, int end, MapWindow window) {
+    int lenX = world.getLenX();
+    for (int k = start; k < end; k++) {
+      int yPos = sources[k] / lenX;
+      int xPos = sources[k] % lenX;
+      manager.fitWindow(window, yPos, xPos);
+
+      int[] newPosition = Animal.findNextPosition(yPos - window.getOriginY(), xPos - window.getOriginX(), window);
+      targets[k] = window.cell(newPosition[0], newPosition[1]);
+    }
+  }
+
+  /*
+   * resolve
+   * This method applies every proposed position to the map, following the steps described above, and marks every
+   * animal of the plan as moved
+   * @param births, the BirthQueue the animals born while resolving are added to
+   */
+  public void resolve(BirthQueue births) {
+    this.births = births;
+    for (int k = 0; k < numMovers; k++) {
+      states[k] = PENDING;
+      moverAt[sources[k]] = k;
+      if (targets[k] == sources[k]) {
+        states[k] = STAYED;
+      } else if (claimant[targets[k]] == -1) {
+        claimant[targets[k]] = k;
+      } else {
+        states[k] = STAYED; // an animal with a smaller position index wants the same position
+      }
+    }
+
+    for (int k = 0; k < numMovers; k++) {
+      if ((states[k] == PENDING) && world.isAnimal(targets[k])) {
+        collide(k);
+      }
+    }
+
+    carryOutFreeMoves();
+
+    for (int k = 0; k < numMovers; k++) {
+      if (states[k] == PENDING) {
+        states[k] = STALLED;
+      }
+    }
+    for (int k = 0; k < numMovers; k++) {
+      if (states[k] == STALLED) {
+        states[k] = PENDING;
+        if (world.isAnimal(targets[k])) {
+          collide(k);
+        }
+      }
+    }
+    carryOutFreeMoves();
+
+    for (int k = 0; k < numMovers; k++) {
+      if ((states[k] != DONE) && world.isAnimal(sources[k])) {
+        world.setHasMoved(sources[k], true); // animals that did not move, including cancelled moves
+      }
+      claimant[targets[k]] = -1;
+      moverAt[sources[k]] = -1;
+    }
+  }
+
+  /*
+   * carryOutFreeMoves
+   * This method carries out every pending move whose position is free, and then the moves of the animals following
+   * them, as their positions are freed
+   */
+  private void carryOutFreeMoves() {
+    int numWork = 0;
+    for (int k = 0; k < numMovers; k++) {
+      if ((states[k] == PENDING) && !world.isAnimal(targets[k])) {
+        worklist[numWork] = k;
+        numWork++;
+      }
+    }
+    while (numWork > 0) {
+      numWork--;
+      int k = worklist[numWork];
+      carryOut(k);
+
+      int follower = claimant[sources[k]];
+      if ((follower != -1) && (states[follower] == PENDING)) {
+        worklist[numWork] = follower;
+        numWork++;
+      }
+    }
+  }
+
+  /*
+   * collide
+   * This method applies the collision of an animal with the animal at the position it wants to move to. The moving
+   * animal stays where it is unless it follows a leaving animal or eats a sheep
+   * @param k, the index of the moving animal in the plan
+   */
+  private void collide(int k) {
+    int cell = sources[k];
+    int cellCollided = targets[k];
+    byte type = world.getType(cell);
+    byte typeCollided = world.getType(cellCollided);
+    int collided = moverAt[cellCollided];
+
+    if ((type == typeCollided) && (world.getIsFemale(cell) != world.getIsFemale(cellCollided))
+          && Animal.canBreed(world, cell) && Animal.canBreed(world, cellCollided)) {
+      Animal.decreaseHealthOnBreeding(world, cellCollided);
+      Animal.decreaseHealthOnBreeding(world, cell);
+      births.add(type, cell, cellCollided);
+      world.recordEvent(EventLog.MATING, cell, cellCollided);
+      states[k] = STAYED;
+    } else if ((type == WorldStore.WOLF) && (typeCollided == WorldStore.SHEEP) 
+                 && (world.getHealth(cell) < Animal.HEALTH_WHEN_FULL)) {
+      if (world.getIsSelected(cellCollided)) {
+        Animal.switchSelection(world, cell, cellCollided);
+      }
+      Animal.changeHealth(world, cell, world.getNutritionalValue(cellCollided));
+      world.clear(cellCollided); // the wolf moves onto the position with the worklist
+      world.recordEvent(EventLog.EATEN, cellCollided, cell);
+      if (collided != -1) {
+        states[collided] = DONE; // a sheep is eaten even if it was about to leave
+      }
+    } else if ((collided != -1) && (states[collided] == PENDING)) {
+      return; // follows the collided animal once it has left
+    } else if (type == WorldStore.SHEEP) {
+      if (typeCollided == WorldStore.WOLF) {
+        if (world.getIsSelected(cell)) {
+          world.setSelected(cellCollided, true);
+        }
+        Animal.changeHealth(world, cellCollided, 20);
+        world.clear(cell);
+        world.recordEvent(EventLog.EATEN, cell, cellCollided);
+        states[k] = DONE;
+      } else {
+        states[k] = STAYED;
+      }
+    } else {
+      byte event = EventLog.BUMP;
+      if ((typeCollided == WorldStore.WOLF) && (world.getIsFemale(cellCollided) != world.getIsFemale(cell))) {
+        if (Animal.compareHealth(world, cell, cellCollided) <= 0) {
+          Animal.changeHealth(world, cell, -10);
+        } else {
+          Animal.changeHealth(world, cellCollided, -10);
+        }
+        event = EventLog.FIGHT;
+      }
+      Animal.changeHealth(world, cellCollided, -1); // energy required to move
+      world.recordEvent(event, (event == EventLog.BUMP) ? cellCollided : cell, cellCollided);
+      states[k] = STAYED;
+    }
+  }
+
+  /*
+   * carryOut
+   * This method moves an animal to the free position it wants to move to, eating the grass there if it is a sheep,
+   * and adds the position to the roster
+   * @param k, the index of the moving animal in the plan
+   */
+  private void carryOut(int k) {
+    int cell = sources[k];
+    int newCell = targets[k];
+    byte typeCollided = world.getType(newCell);
+
+    if ((typeCollided == WorldStore.GRASS) && world.getIsSelected(newCell)) {
+      Animal.switchSelection(world, cell, newCell);
+    }
+    boolean isSheep = world.getType(cell) == WorldStore.SHEEP;
+    float grassHealth = (isSheep && (typeCollided == WorldStore.GRASS)) ? world.eatGrass(newCell) : 0;
+
+    world.move(cell, newCell);
+    world.setHasMoved(newCell, true);
+    world.getRoster().add(newCell);
+
+    if (isSheep && (typeCollided == WorldStore.GRASS)) {
+      Animal.changeHealth(world, newCell, grassHealth);
+    }
+    Animal.changeHealth(world, newCell, -1); // energy required to move
+    world.recordEvent((isSheep && (typeCollided == WorldStore.GRASS)) ? EventLog.GRAZE : EventLog.MOVE, cell, newCell);
+    states[k] = DONE;
+  }
+}
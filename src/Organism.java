@@ -33,6 +33,16 @@ abstract class Organism {
    return this.turnsSurvived;
  }
  
+ /*
+  * setTurnsSurvived
+  * This method sets the turnsSurvived instance variable. Only meant to be used when an Organism is created as a copy 
+  * of a position in the WorldStore
+  * @param turnsSurvived, an integer holding the number of turns the Organism has survived thus far
+  */
+ void setTurnsSurvived(int turnsSurvived) {
+   this.turnsSurvived = turnsSurvived;
+ }
+ 
  /*
   * setSelected
   * This method sets the isSelected boolean instance variable to the value of the parameter
@@ -1,32 +1,127 @@
+import java.io.IOException;
+
 /*
  * OrganismCreator
  * Provides a way of creating organisms on the map. If they are animals, they randomly spawn, if they are grass, they
  * spawn near positions that other current or previous grass has occupied. The health of each organism is by default
  * the arguments passed in upon the creation of a OrganismCreator object, however the health of wolves and sheep
- * may change according to the number of spaces not occupied by an animal, an attempt to balance the animal populations
- * and provide a more realistic simulation. For example, if too many of an organism exist in a certain area, 
- * factors such as increased disease rate or lack of resources lead to worse survival chances. 
+ * may change according to the number of spaces not occupied by an animal around the new animal, an attempt to balance
+ * the animal populations and provide a more realistic simulation. For example, if too many of an organism exist in a 
+ * certain area, factors such as increased disease rate or lack of resources lead to worse survival chances. The 
+ * animals around a position are counted within densityRadius positions of it, using the DensityGrid of the WorldStore,
+ * and the fraction of those positions free of animals is applied to a map of HEALTH_REFERENCE_AREA positions, the 
+ * default 100 by 100 map the health thresholds were set for: the health is the one such a map as crowded everywhere
+ * as the area around the new animal would give. Crowded or empty areas thus change the health of the animals born 
+ * there, rather than the number of animals on the entire map, and the change does not grow with the size of the 
+ * map, which would turn the noise of a small area into a large change of health on a large map. Organisms can be
+ * limited to a band of rows of the map, in which case the whole map is the band of rows. Animals born during a turn
+ * are placed at the end of the turn, from minBirthDistance to maxBirthDistance positions away from their parents when
+ * the area around the parents, the parents left out, is no more crowded than the map, and anywhere on the map 
+ * otherwise, so that births do not pile animals up around the parents.
  */
 class OrganismCreator extends MapManager {
   
+  public static final int DEFAULT_DENSITY_RADIUS = 12;
+  public static final int DEFAULT_MIN_BIRTH_DISTANCE = 2;
+  public static final int DEFAULT_MAX_BIRTH_DISTANCE = 6;
+  private static final int HEALTH_REFERENCE_AREA = 100 * 100; // map area the health thresholds were set for
+  
   private int grassHealth, sheepHealth, wolfHealth;
   private boolean initialGrassCreated;
+  private int minRow, maxRow; // organisms are only created from row minRow to row maxRow
+  private int numCreated, turnCreated; // organisms created during turnCreated, used as keys for random numbers
+  private int densityRadius; // the health of new animals depends on the animals within this distance
+  private int minBirthDistance, maxBirthDistance; // newborns placed near their parents are this far from them
+  private int[] nearCells; // empty positions around the parents
+  private int[] coordinates = new int[2]; // reused to return the position of each new organism
+  private int[] local = new int[2]; // reused to count the animals around a new animal
   
-  /*
-   * Spawn places are only added. If a grass is eaten, it is assumed that grass is still more likely to spawn at locations
-   * surrounding that spot since it it is assumed that the roots remain in place and may still give rise to new grass
-   */
-  private boolean[][] grassSpawnPlaces; 
-  
-  OrganismCreator(int ySize, int xSize, int grassValue, int healthSheep, int healthWolves) {
-    super(ySize, xSize);
+  OrganismCreator(WorldStore world, int grassValue, int healthSheep, int healthWolves) {
+    super(world);
     
     this.grassHealth = grassValue;
     this.sheepHealth = healthSheep;
     this.wolfHealth = healthWolves;
     
-    this.grassSpawnPlaces = new boolean[lenY][lenX];
+    this.minRow = 0;
+    this.maxRow = lenY - 1;
     this.initialGrassCreated = false; // if some grass was already created, the grass should spawn near other grass
+    this.numCreated = 0;
+    this.turnCreated = -1;
+    setDensityRadius(DEFAULT_DENSITY_RADIUS);
+    setBirthDistances(DEFAULT_MIN_BIRTH_DISTANCE, DEFAULT_MAX_BIRTH_DISTANCE);
+  }
+  
+  /*
+   * setDensityRadius
+   * This method sets the distance within which animals are counted to determine the health of a new animal, and
+   * makes the WorldStore count animals in blocks about half as wide
+   * @param radius, a positive integer
+   */
+  public void setDensityRadius(int radius) {
+    this.densityRadius = radius;
+    world.setDensityBlockSize(Math.max((radius + 1) / 2, 1));
+  }
+  
+  /*
+   * setBirthDistances
+   * This method sets how far from its parents a newborn placed near them can be, counting diagonal moves as one
+   * @param minDistance, a positive integer, the distance from both parents under which a newborn is never placed
+   * @param maxDistance, an integer at least minDistance, the distance from one of the parents over which a newborn
+   * placed near them is never placed
+   */
+  public void setBirthDistances(int minDistance, int maxDistance) {
+    this.minBirthDistance = minDistance;
+    this.maxBirthDistance = maxDistance;
+    this.nearCells = new int[2 * (2 * maxDistance + 1) * (2 * maxDistance + 1)];
+  }
+  
+  public int getGrassHealth() {
+    return grassHealth;
+  }
+  
+  public int getSheepHealth() {
+    return sheepHealth;
+  }
+  
+  public int getWolfHealth() {
+    return wolfHealth;
+  }
+  
+  public int getDensityRadius() {
+    return densityRadius;
+  }
+  
+  public int getMinBirthDistance() {
+    return minBirthDistance;
+  }
+  
+  public int getMaxBirthDistance() {
+    return maxBirthDistance;
+  }
+  
+  public boolean getInitialGrassCreated() {
+    return initialGrassCreated;
+  }
+  
+  /*
+   * setInitialGrassCreated
+   * This method records whether the initial grass has been created, after which grass only spawns near other grass,
+   * for a map whose organisms were restored rather than created
+   * @param created, true if the initial grass has been created
+   */
+  public void setInitialGrassCreated(boolean created) {
+    this.initialGrassCreated = created;
+  }
+  
+  /*
+   * setRows
+   * This method limits the creation of organisms to a band of rows of the map
+   * @param minY and maxY, integers holding the first and last rows organisms can be created in
+   */
+  public void setRows(int minY, int maxY) {
+    this.minRow = minY;
+    this.maxRow = maxY;
   }
   
   /*
@@ -41,15 +136,16 @@ class OrganismCreator extends MapManager {
   public void organismTypeCreation(char organismType, int numOrganisms) {
     if (organismType == 'g' || organismType == 's' || organismType == 'w') { // checks that the proper arguments are used
       
-      int[] numEmpty = setNumEmpty(organismType); 
-      System.out.println(numEmpty[0]); 
-      int[] coordinatesYX = new int[2];
+      int numEmpty = setNumEmpty(organismType); 
+      int[] coordinatesYX;
       for (int i = 0; i < numOrganisms; i++) {
-        coordinatesYX = createPosition(organismType, numEmpty[0]);
+        countCreation();
+        
+        coordinatesYX = createPosition(organismType, numEmpty);
         
         if (coordinatesYX != null) { // if some spots are available on the map
-          map = createOrganism(organismType, coordinatesYX, numEmpty[1]);
-          numEmpty[0]--;
+          createOrganism(organismType, coordinatesYX, false);
+          numEmpty--;
         }
       }
       
@@ -61,133 +157,296 @@ class OrganismCreator extends MapManager {
     }
   }
   
+  /*
+   * generate
+   * This method fills the empty rows organisms can be created in with the initial grass, sheep and wolves all at 
+   * once, using a WorldGenerator, and then determines the health of each animal from the animals around it
+   * @param numOrganismsInitial, an integer array holding the number of grass, sheep and wolves, in that order
+   * @param grassLayout, one of the WorldGenerator.UNIFORM, CLUSTERED or BANDED constants
+   */
+  public void generate(int[] numOrganismsInitial, int grassLayout) {
+    WorldGenerator generator = new WorldGenerator(world, minRow, maxRow, grassHealth, sheepHealth, wolfHealth);
+    generator.generate(numOrganismsInitial, grassLayout);
+    adjustInitialHealth();
+    this.initialGrassCreated = true;
+  }
+  
+  /*
+   * importLayout
+   * This method fills the empty map with the organisms of a layout file, using a LayoutImporter
+   * @param path, the path of a PNG image or of a raw file holding one byte per position
+   */
+  public void importLayout(String path) throws IOException {
+    LayoutImporter importer = new LayoutImporter(world, this, grassHealth);
+    importer.read(path);
+    this.initialGrassCreated = true;
+  }
+  
+  /*
+   * adjustInitialHealth
+   * This method determines the health of every animal of the roster with animalHealth, once every initial organism
+   * is on the map, for maps whose organisms are all placed at once rather than created one at a time
+   */
+  void adjustInitialHealth() {
+    AnimalRoster roster = world.getRoster();
+    for (int k = 0; k < roster.size(); k++) {
+      int cell = roster.get(k);
+      char organismType = (world.getType(cell) == WorldStore.WOLF) ? 'w' : 's';
+      world.setInitialHealth(cell, animalHealth(organismType, cell / lenX, cell % lenX, true));
+    }
+  }
+  
+  /*
+   * placeBirths
+   * This method places every animal of a BirthQueue on the map and empties the queue. Each animal is placed on a 
+   * random empty position around one of its parents if the area around them is no more crowded than the map and there
+   * is one, and on a random empty position of the map otherwise. The number of empty spots of the map is only counted 
+   * once for the entire queue
+   * @param births, the BirthQueue holding the animals born during the turn
+   */
+  public void placeBirths(BirthQueue births) {
+    if (births.size() == 0) {
+      return;
+    }
+    
+    int numEmpty = setNumEmpty('s');
+    for (int k = 0; k < births.size(); k++) {
+      countCreation();
+      
+      char organismType = (births.getType(k) == WorldStore.WOLF) ? 'w' : 's';
+      int[] coordinatesYX = null;
+      if (!isCrowded(births.getParent(k), births.getOtherParent(k))) {
+        coordinatesYX = createPositionNear(births.getParent(k), births.getOtherParent(k));
+      }
+      if (coordinatesYX == null) {
+        coordinatesYX = createPosition(organismType, numEmpty);
+      }
+      
+      if (coordinatesYX != null) { // if some spots are available on the map
+        createOrganism(organismType, coordinatesYX, true);
+        numEmpty--;
+      }
+    }
+    births.clear();
+  }
+  
+  /*
+   * countCreation
+   * This method counts an organism about to be created, starting the count over at the beginning of each turn
+   */
+  private void countCreation() {
+    if (turnCreated != world.getTurn()) {
+      turnCreated = world.getTurn();
+      numCreated = 0;
+    }
+    numCreated++;
+  }
+  
   /*
    * setNumEmpty
-   * This method finds the number of possible spawning locations depending on the type of organism being created. Also
-   * determines the number of either empty spaces or spaces occupied by grass. The results are returned.
+   * This method finds the number of possible spawning locations depending on the type of organism being created,
+   * counted with the CellIndex sets of the WorldStore instead of scanning the map
    * @param organismType, a char that acts as an identifier of which type of organism is going to be created. Meant
    * to be either 'g' for grass, 's' for sheep, or 'w' for wolf
-   * @return numEmpty, the first element of which is the number of possible spawning locations that is either
-   * the number of empty spots or the number of true booleans values in the grassSpawnPlaces 2D boolean array, and the
-   * second element of which holds the number of spots that are either empty or occupied by grass in the map
-   */
-  private int[] setNumEmpty(char organismType) {
-    int[] numEmpty = new int[2];
-    numEmpty[0] = 0;
-    numEmpty[1] = 0;
-    
-    for (int i = 0; i < lenY; i++) {
-      for (int j = 0; j < lenX; j++) {
-        if ((map[i][j] == null) && (organismType != 'g' || !this.initialGrassCreated || grassSpawnPlaces[i][j])) {
-          numEmpty[0]++;
-        }
-        if (map[i][j] == null || map[i][j] instanceof Grass) {
-          numEmpty[1]++;
-        }
-      }
+   * @return the number of possible spawning locations, either the number of empty spots or the number of empty spots
+   * where grass can spawn
+   */
+  private int setNumEmpty(char organismType) {
+    CellIndex spawnCells = spawnCells(organismType);
+    int start = world.index(minRow, 0);
+    int end = world.index(maxRow + 1, 0);
+    if ((start == 0) && (end == world.getArea())) {
+      return spawnCells.size();
+    } else {
+      return spawnCells.countBefore(end) - spawnCells.countBefore(start);
+    }
+  }
+  
+  /*
+   * spawnCells
+   * This method returns the set of positions a type of organism can be created at: empty positions where grass
+   * can spawn for grass, once the initial grass has been created, or every empty position otherwise
+   * @param organismType, a char that acts as an identifier of which type of organism is going to be created. Meant
+   * to be either 'g' for grass, 's' for sheep, or 'w' for wolf
+   * @return the CellIndex holding those positions
+   */
+  private CellIndex spawnCells(char organismType) {
+    if (organismType == 'g' && this.initialGrassCreated) {
+      return world.getSpawnableCells();
+    } else {
+      return world.getEmptyCells();
     }
-    
-    return numEmpty;
   }
   
   /*
    * createPosition
    * This method chooses a random position limited to the empty spots available on the map that can serve as 
-   * the initial position for the new organism being created
+   * the initial position for the new organism being created. Random numbers are drawn for the number of organisms
+   * created so far during the turn, with negative keys so they never match those drawn for a position. The position
+   * is chosen by rank in the set returned by spawnCells, which gives the same position as counting the available
+   * spots row by row
    * @param organismType, a char that acts as an identifier of which type of organism is going to be created. Meant
    * to be either 'g' for grass, 's' for sheep, or 'w' for wolf
    * @param numSpotsAvailable, the number of spots available whose coordinates can be stored in the coordinates variable
    * @return coordinates, an integer array containing two elements: the y and x coordinates of the new 
-   * random position on the map
+   * random position on the map. The same array is reused by every call
    */
   private int[] createPosition(char organismType, int numSpotsAvailable) {
-    int count = 0;
+    if (numSpotsAvailable <= 0) { // avoid negative values if no spots available
+      return null;
+    }
     
     // random number will be at least one less than the number of empty spots, hence one is added
-    int randNum = (int) (Math.random() * numSpotsAvailable) + 1;
+    int randNum = world.getRandom().nextInt(world.getTurn(), -numCreated, 0, numSpotsAvailable) + 1;
     
-    int xPos = 0;
-    int yPos = 0;
-    int[] coordinates = null;
-     
-    while ((count != randNum) && (yPos < lenY)) {
-      xPos = 0;
-      while ((count != randNum) && (xPos < lenX)) {
-        if ((map[yPos][xPos] == null) && (organismType != 'g' || !this.initialGrassCreated || grassSpawnPlaces[yPos][xPos])) {
-          count++;
+    CellIndex spawnCells = spawnCells(organismType);
+    int cell = spawnCells.select(spawnCells.countBefore(world.index(minRow, 0)) + randNum - 1);
+    coordinates[0] = cell / lenX;
+    coordinates[1] = cell % lenX;
+    
+    return coordinates;
+  }
+  
+  /*
+   * isCrowded
+   * This method determines whether the positions within densityRadius of a parent, not counting the positions of 
+   * the parents, hold a larger fraction of animals than the entire map, in which case a newborn placed near its 
+   * parents would crowd the area further. A parent is only left out if an animal is still at its position, as it 
+   * may have moved or died since the birth
+   * @param parent and otherParent, the indices of the positions of the parents in the WorldStore
+   * @return true if the area around the parents is more crowded than the map, false otherwise
+   */
+  private boolean isCrowded(int parent, int otherParent) {
+    world.getDensity().countAround(parent / lenX, parent % lenX, densityRadius, local);
+    int numParents = 0;
+    for (int p = 0; p < 2; p++) {
+      int cellParent = (p == 0) ? parent : otherParent;
+      byte type = world.getType(cellParent);
+      if (((type == WorldStore.SHEEP) || (type == WorldStore.WOLF))
+            && (distance(parent, cellParent / lenX, cellParent % lenX) <= densityRadius)) {
+        numParents++;
+      }
+    }
+    int[] populations = world.getPopulations();
+    double localAnimals = (double) (local[0] - numParents) / (local[1] - numParents);
+    double mapAnimals = (double) (populations[WorldStore.SHEEP] + populations[WorldStore.WOLF]) / world.getArea();
+    return localAnimals > mapAnimals;
+  }
+  
+  /*
+   * createPositionNear
+   * This method chooses a random empty position from minBirthDistance to maxBirthDistance positions away from 
+   * either parent of a new animal, and no closer than minBirthDistance to the other, limited to the rows organisms 
+   * can be created in. Positions within reach of both parents are only counted once
+   * @param parent and otherParent, the indices of the positions of the parents in the WorldStore
+   * @return coordinates, an integer array containing the y and x coordinates of the new position, or null if there
+   * is no empty position around the parents. The same array is reused by every call
+   */
+  private int[] createPositionNear(int parent, int otherParent) {
+    int numNear = 0;
+    for (int p = 0; p < 2; p++) {
+      int cellParent = (p == 0) ? parent : otherParent;
+      int yParent = cellParent / lenX;
+      int xParent = cellParent % lenX;
+      for (int i = Math.max(yParent - maxBirthDistance, minRow); 
+             i <= Math.min(yParent + maxBirthDistance, maxRow); i++) {
+        for (int j = Math.max(xParent - maxBirthDistance, 0); 
+               j <= Math.min(xParent + maxBirthDistance, lenX - 1); j++) {
+          int distance = distance(parent, i, j);
+          int otherDistance = distance(otherParent, i, j);
+          boolean counted = (p == 1) && (distance <= maxBirthDistance); // already counted around the first parent
+          int cell = world.index(i, j);
+          if (Math.min(distance, otherDistance) >= minBirthDistance && !counted && world.isEmpty(cell)) {
+            nearCells[numNear] = cell;
+            numNear++;
+          }
         }
-        xPos++;
       }
-      yPos++;
     }
     
-    if (count == 0 && coordinates == null) { // avoid negative values if no spots available
-      return coordinates; 
-    } else if (randNum != 0) {
-      coordinates = new int[2];
-      coordinates[0] = yPos - 1;
-      coordinates[1] = xPos - 1;
-    } 
-    
+    if (numNear == 0) {
+      return null;
+    }
+    int cell = nearCells[world.getRandom().nextInt(world.getTurn(), -numCreated, 2, numNear)];
+    coordinates[0] = cell / lenX;
+    coordinates[1] = cell % lenX;
     return coordinates;
   }
   
+  /*
+   * distance
+   * This method finds the number of moves, diagonal ones included, between a position of the WorldStore and a row and 
+   * column of the map
+   * @param cell, the index of the position in the WorldStore
+   * @param y and x, the row and column
+   * @return the larger of the distances along the rows and along the columns
+   */
+  private int distance(int cell, int y, int x) {
+    return Math.max(Math.abs(y - cell / lenX), Math.abs(x - cell % lenX));
+  }
+  
   /*
    * createOrganism
-   * This method instantiates an object of type Grass, Sheep or Wolf, storing it in a location defined by the parameter
+   * This method stores a new grass, sheep or wolf in the WorldStore, at a location defined by the parameter
    * coordinatesYX on the map. Necessary health adjustments and random assignment of sex for animals is used.
    * @param organismType, a char that acts as an identifier of which type of organism is going to be created. Meant
    * to be either 'g' for grass, 's' for sheep, or 'w' for wolf
    * @param coordinatesYX, an integer array containing the y and x coordinates, in that order, of the position on the 
    * map where the new organism will be stored in 
-   * @param numGrassOrEmpty, the number of spots on the 2D Organism map that are empty or are occupied by grass
-   * @return map, the updated map containing all the organisms, including the one that was created within this method
+   * @param isBirth, true if the organism is an animal born during the turn, false if it spawns
    */
-  private Organism[][] createOrganism(char organismType, int[] coordinatesYX, int numGrassOrEmpty) {
+  private void createOrganism(char organismType, int[] coordinatesYX, boolean isBirth) {
+    int cell = world.index(coordinatesYX[0], coordinatesYX[1]);
     if (organismType == 'g') {
-      map[coordinatesYX[0]][coordinatesYX[1]] = new Grass(grassHealth);
+      world.place(cell, WorldStore.GRASS, grassHealth, false);
       addSpawnLocations(coordinatesYX);
     } else if ((organismType == 's') || (organismType == 'w')) {
-      int newSheepHealth = sheepHealth;
-      int newWolfHealth = wolfHealth;
-      if ((numGrassOrEmpty < lenX * lenY * 0.89) && (organismType == 's')) { // a lot of animals, sheep health decreases
-        newSheepHealth = (int) (sheepHealth - 0.3 * (Math.max(lenX * lenY * 0.89 - numGrassOrEmpty, 0)));
-      } else if (numGrassOrEmpty > lenX * lenY * 0.955) { // not a lot of animals, wolf health increases
-        newWolfHealth = (int) (wolfHealth + 0.15 * (Math.min(numGrassOrEmpty - lenX * lenY * 0.955, 67)));
-      } 
-      int rand = (int) (Math.random() * 2); // determines sex of animal
+      int health = animalHealth(organismType, coordinatesYX[0], coordinatesYX[1], false);
+      boolean isFemale = world.getRandom().nextBoolean(world.getTurn(), -numCreated, 1); // determines sex of animal
       if (organismType == 's') {
-        if (rand == 0) {
-          map[coordinatesYX[0]][coordinatesYX[1]] = new Sheep(newSheepHealth, true); 
-        } else {
-          map[coordinatesYX[0]][coordinatesYX[1]] = new Sheep(newSheepHealth, false);
-        }
+        world.place(cell, WorldStore.SHEEP, health, isFemale);
       } else {
-        if (rand == 0) {
-          map[coordinatesYX[0]][coordinatesYX[1]] = new Wolf(newWolfHealth, true);
-        } else {
-          map[coordinatesYX[0]][coordinatesYX[1]] = new Wolf(newWolfHealth, false);
-        }
+        world.place(cell, WorldStore.WOLF, health, isFemale);
       }
     }
     
-    return map;
+    world.recordEvent(isBirth ? EventLog.BIRTH : EventLog.SPAWN, cell, cell);
+  }
+  
+  /*
+   * animalHealth
+   * This method finds the health of a new sheep or wolf, which depends on the fraction of the positions within 
+   * densityRadius positions of it that hold no animal, not counting the new animal itself, applied to a map of
+   * HEALTH_REFERENCE_AREA positions whatever the size of the map
+   * @param organismType, a char that is either 's' for sheep or 'w' for wolf
+   * @param yPos and xPos, integers containing the vertical and horizontal coordinates of the new animal
+   * @param isPlaced, true if the new animal is already stored in the WorldStore
+   * @return the health of the new animal
+   */
+  private int animalHealth(char organismType, int yPos, int xPos, boolean isPlaced) {
+    int newSheepHealth = sheepHealth;
+    int newWolfHealth = wolfHealth;
+    // the animals and the number of spots counted around the new animal, scaled to the reference area
+    world.getDensity().countAround(yPos, xPos, densityRadius, local);
+    double area = HEALTH_REFERENCE_AREA;
+    double numGrassOrEmpty = area * (local[1] - local[0] + (isPlaced ? 1 : 0)) / local[1];
+    if ((numGrassOrEmpty < area * 0.89) && (organismType == 's')) { // a lot of animals, sheep health decreases
+      newSheepHealth = (int) (sheepHealth - 0.3 * (Math.max(area * 0.89 - numGrassOrEmpty, 0)));
+    } else if (numGrassOrEmpty > area * 0.955) { // not a lot of animals, wolf health increases
+      newWolfHealth = (int) (wolfHealth + 0.15 * (Math.min(numGrassOrEmpty - area * 0.955, 67)));
+    } 
+    return (organismType == 's') ? newSheepHealth : newWolfHealth;
   }
   
   /*
    * addSpawnLocations
-   * This method sets the 2D grassSpawnPlaces boolean array to true around a coordinate passed in as a parameter if 
-   * it is not already so. The area changed is bounded by the bounds integer array created by the createBoundaries method
+   * This method marks the positions around a coordinate passed in as a parameter as places where grass can spawn.
+   * The area changed is the same area the createBoundaries method finds around the coordinate. 
+   * Spawn places are only added. If a grass is eaten, it is assumed that grass is still more likely to spawn at locations
+   * surrounding that spot since it it is assumed that the roots remain in place and may still give rise to new grass
    * @param coordinatesYX, an integer array containing the y and x coordinates, in that order, of a point on the map
    */
   private void addSpawnLocations(int[] coordinatesYX) {
-    int[] bounds = createBoundaries(coordinatesYX[0], coordinatesYX[1]);
-    for (int i = bounds[0]; i <= bounds[1]; i++) {
-      for (int j = bounds[2]; j <= bounds[3]; j++) {
-        if (!grassSpawnPlaces[i][j]) {
-          grassSpawnPlaces[i][j] = true;
-        }
-      }
-    }
+    world.markSpawnableAround(world.index(coordinatesYX[0], coordinatesYX[1]), LEN_RESTRICTED / 2);
   }
 }
\ No newline at end of file
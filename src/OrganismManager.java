@@ -1,304 +1,824 @@
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
 /*
- * MapManager
- * Stores a 2D array containing organisms and a method that finds the coordinates of the boundaries around
- * a given x and y coordinate inside that array
+ * OrganismManager
+ * Controls the movement of organisms around the map, keeping track of how many times each organism has moved. Also
+ * contains an OrganismCreator object, creating new organisms when necessary. The number of organisms of each type is
+ * kept by the WorldStore, so the simulation knows when wolves die out without scanning the map. Grass either spawns
+ * at random near other grass, GRASS_PER_TURN at a time, or grows as a GrassField.
+ * Movement can also be run in parallel: the map is then divided into square tiles, and tiles are moved in four
+ * phases such that no two tiles of the same phase are next to each other (like the squares of a checkerboard, 
+ * with two colours in each direction). Each tile has its own MapWindow that cannot reach more than 
+ * LEN_RESTRICTED / 2 positions outside of the tile, so tiles of the same phase never touch the same position.
+ * Alternatively, threads can move the animals of the roster in any order, each thread first claiming every position
+ * the animal can see with a compare-and-set. Animals whose positions stay claimed by other threads after 
+ * MAX_CLAIM_RETRIES attempts are moved one after the other once the threads are done.
+ * Finally, a MovementPlan can move the animals in two phases, proposing every move first and resolving them after, 
+ * in which case only the propose phase is run in parallel.
  */
-class MapManager {
-  protected static Organism[][] map;
-  protected static int lenY, lenX;
-  private final int LEN_RESTRICTED = 3;
+class OrganismManager extends MapManager {
+
+  private OrganismCreator creator;
+  private MapWindow window; // reused for every animal that moves
+  private final int GRASS_PER_TURN;
+  private int minOwnedY, maxOwnedY; // only the animals in these rows are moved
+  private GrassField grassField; // null unless grass grows as a field
   
-  MapManager(int ySize, int xSize) {
-    map = new Organism[ySize][xSize];
-    lenY = ySize;
-    lenX = xSize;
+  // used only when movement is run in parallel
+  private ForkJoinPool pool;
+  private final int CHUNKS_PER_THREAD = 4;
+  private final int MAX_CLAIM_RETRIES = 8;
+  private int tileSize;
+  private int numTilesY, numTilesX;
+  private MapWindow[] tileWindows;
+  private int[][] tilesByPhase;
+  private int[] tileStart; // index of the first animal of each tile in tileAnimals
+  private int[] tileAnimals; // positions of the animals of the roster grouped by tile
+  private AtomicIntegerArray claims; // number of the chunk that claimed each position, 0 if unclaimed
+  private MapWindow[] chunkWindows;
+  private AnimalRoster[] chunkFallbacks; // animals that could not claim their positions
+  private long[] chunkConflicts, chunkRetries;
+  private long claimConflicts, claimRetries, claimFallbacks;
+  private MovementPlan plan; // used only when movement is run in two phases
+  private long proposeTime, resolveTime;
+  
+  OrganismManager(int ySize, int xSize, int grassValue, int healthSheep, int healthWolves, int[] numOrganismsInitial) {
+    this(ySize, xSize, grassValue, healthSheep, healthWolves, numOrganismsInitial, System.nanoTime());
   }
   
   /*
-   * getMap
-   * This method returns the map 2D array stored as a static field in the class
-   * @return map, the array storing all the organisms shown on the grid
+   * Creates a map whose random numbers are all determined by the seed, so that two maps created with the same seed 
+   * and arguments, and moved in the same way, stay identical
    */
-  public Organism[][] getMap() {
-    return map;
+  OrganismManager(int ySize, int xSize, int grassValue, int healthSheep, int healthWolves, int[] numOrganismsInitial,
+                  long seed) {
+    this(ySize, xSize, 0, ySize - 1, grassValue, healthSheep, healthWolves, numOrganismsInitial, seed);
   }
   
   /*
-   * createBoundaries
-   * This method stores and returns the minimum and maximum horizontal and vertical coordinates within the map dimensions
-   * a certain distance (half of LEN_RESTRICTED) around the coordinate passed in as a parameter  
-   * @param yPos and xPos, integers containing vertical and horizontal coordinates (meant to be a point on the map)
-   * @return bounds, a 2D array holding the value of: the minimum y value, the maximum y value, the x minimum value,
-   * and the x maximum value, in that order, of the area around the coordinate passed in as a parameter
+   * Creates a map of which only a band of rows is owned: organisms are only created, moved and aged in the owned
+   * rows, and animals moving from them never reach more than LEN_RESTRICTED / 2 rows outside of them. The other 
+   * rows are kept up to date by whoever owns them. Owned rows are only meant to be used with sequential movement
    */
-  public int[] createBoundaries(int yPos, int xPos) {
-    int[] bounds = new int[4];
-    bounds[0] = Math.max(yPos - (LEN_RESTRICTED / 2), 0);
-    bounds[1] = Math.min(yPos + (LEN_RESTRICTED / 2), lenY - 1);
-    bounds[2] = Math.max(xPos - (LEN_RESTRICTED / 2), 0);
-    bounds[3] = Math.min(xPos + (LEN_RESTRICTED / 2), lenX - 1);
-
-    return bounds;
+  OrganismManager(int ySize, int xSize, int minOwnedY, int maxOwnedY, int grassValue, int healthSheep, 
+                  int healthWolves, int[] numOrganismsInitial, long seed) {
+    this(ySize, xSize, minOwnedY, maxOwnedY, grassValue, healthSheep, healthWolves, numOrganismsInitial, seed,
+         WorldGenerator.UNIFORM);
   }
-}
-
-/*
- * OrganismManager
- * Controls the movement of organisms around the map, keeping track of how many times each organism has moved. Also
- * contains an OrganismCreator object, creating new organisms when necessary. If one of the three types of 
- * organisms dies out, this is indicated by the existOrganisms boolean field.
- */
-class OrganismManager extends MapManager {
-
-  private boolean[] existOrganisms;
-  private OrganismCreator creator;
-  private final int GRASS_PER_TURN = (int) (lenY * lenX * 0.004) + 1;
   
-  OrganismManager(int ySize, int xSize, int grassValue, int healthSheep, int healthWolves, int[] numOrganismsInitial) {
+  /*
+   * Creates a map of which only a band of rows is owned, with the initial grass laid out in one of the ways of
+   * WorldGenerator
+   */
+  OrganismManager(int ySize, int xSize, int minOwnedY, int maxOwnedY, int grassValue, int healthSheep, 
+                  int healthWolves, int[] numOrganismsInitial, long seed, int grassLayout) {
+    this(ySize, xSize, minOwnedY, maxOwnedY, grassValue, healthSheep, healthWolves, seed);
+    
+    // creation of organisms at the beginning of the simulation
+    creator.generate(numOrganismsInitial, grassLayout);
+  }
+  
+  /*
+   * Creates a map whose initial organisms are read from a layout file by a LayoutImporter, either a PNG image or a 
+   * raw file holding one byte per position, of the same size as the map
+   */
+  OrganismManager(int ySize, int xSize, String layoutPath, int grassValue, int healthSheep, int healthWolves, 
+                  long seed) throws IOException {
+    this(ySize, xSize, 0, ySize - 1, grassValue, healthSheep, healthWolves, seed);
+    creator.importLayout(layoutPath);
+  }
+  
+  /*
+   * Creates a map from the newest checkpoint of a file written by a CheckpointWriter, with the parameters, seed and
+   * grass of the map that was checkpointed, such that it goes on exactly as that map went on from the checkpoint
+   */
+  OrganismManager(CheckpointReader checkpoint) {
+    this(checkpoint.getLenY(), checkpoint.getLenX(), 0, checkpoint.getLenY() - 1, checkpoint.getGrassHealth(),
+         checkpoint.getSheepHealth(), checkpoint.getWolfHealth(), checkpoint.getSeed());
+    setDensityRadius(checkpoint.getDensityRadius());
+    setBirthDistances(checkpoint.getMinBirthDistance(), checkpoint.getMaxBirthDistance());
+    setGrassField(checkpoint.hasGrassField());
+    checkpoint.restore(world, creator);
+  }
+  
+  /*
+   * Creates a map without any organism, of which only a band of rows is owned
+   */
+  private OrganismManager(int ySize, int xSize, int minOwnedY, int maxOwnedY, int grassValue, int healthSheep, 
+                          int healthWolves, long seed) {
     super(ySize, xSize);
-    creator = new OrganismCreator(ySize, xSize, grassValue, healthSheep, healthWolves);
+    creator = new OrganismCreator(world, grassValue, healthSheep, healthWolves);
+    world.setRandom(new CounterRandom(seed));
+    this.minOwnedY = minOwnedY;
+    this.maxOwnedY = maxOwnedY;
+    this.GRASS_PER_TURN = (int) ((maxOwnedY - minOwnedY + 1) * lenX * 0.004) + 1;
+    creator.setRows(minOwnedY, maxOwnedY);
+    window = new MapWindow(world, world.getRoster());
+    window.setClip(Math.max(minOwnedY - (LEN_RESTRICTED / 2), 0), Math.min(maxOwnedY + (LEN_RESTRICTED / 2), lenY - 1),
+                   0, lenX - 1);
+    pool = null;
+    plan = null;
+    grassField = null;
+  }
+  
+  /*
+   * setDensityRadius
+   * This method sets the distance within which animals are counted to determine the health of the animals created
+   * from then on, OrganismCreator.DEFAULT_DENSITY_RADIUS by default
+   * @param radius, a positive integer
+   */
+  public void setDensityRadius(int radius) {
+    creator.setDensityRadius(radius);
+  }
+  
+  /*
+   * setBirthDistances
+   * This method sets how far from its parents an animal born from then on can be placed near them, 
+   * OrganismCreator.DEFAULT_MIN_BIRTH_DISTANCE and DEFAULT_MAX_BIRTH_DISTANCE by default
+   * @param minDistance, a positive integer
+   * @param maxDistance, an integer at least minDistance
+   */
+  public void setBirthDistances(int minDistance, int maxDistance) {
+    creator.setBirthDistances(minDistance, maxDistance);
+  }
+  
+  /*
+   * writeCheckpoint
+   * This method writes a checkpoint of the map, between two turns, that an OrganismManager can be created from
+   * @param writer, the CheckpointWriter of the file, created for this map
+   */
+  public void writeCheckpoint(CheckpointWriter writer) {
+    writer.write(world, creator);
+  }
+  
+  /*
+   * setGrassField
+   * This method makes grass grow as a GrassField from then on, starting from the grass on the map, instead of 
+   * spawning at random, or makes it spawn at random again
+   * @param enabled, true for grass to grow as a field, the capacity of a position being the health of a new grass
+   */
+  public void setGrassField(boolean enabled) {
+    grassField = enabled ? new GrassField(world, creator.getGrassHealth()) : null;
+    world.setGrassField(grassField);
+  }
+  
+  /*
+   * setParallelMovement
+   * This method makes every following call to movementCycle move the animals in parallel, one tile at a time per thread
+   * @param tileSize, the width and height of a tile, at least LEN_RESTRICTED - 1. Larger tiles reduce the overhead of
+   * each phase, while smaller tiles allow more threads to be used on small maps
+   * @param parallelism, the number of threads used
+   */
+  public void setParallelMovement(int tileSize, int parallelism) {
+    if (tileSize < 2 * (LEN_RESTRICTED / 2)) {
+      throw new IllegalArgumentException("The tile size must be at least " + (2 * (LEN_RESTRICTED / 2)));
+    }
+    setSequentialMovement();
     
-    existOrganisms = new boolean[3];
-    for (int i = 0; i < 3; i++) {
-      existOrganisms[i] = true;
-    }  
+    this.pool = new ForkJoinPool(parallelism);
+    this.tileSize = tileSize;
+    this.numTilesY = (lenY + tileSize - 1) / tileSize;
+    this.numTilesX = (lenX + tileSize - 1) / tileSize;
+    this.tileWindows = new MapWindow[numTilesY * numTilesX];
+    this.tileStart = new int[numTilesY * numTilesX + 1];
+    this.tileAnimals = new int[16];
     
-    // creation of organisms at the beginning of the simulation
-    creator.organismTypeCreation('g', numOrganismsInitial[0]);
-    creator.organismTypeCreation('s', numOrganismsInitial[1]);
-    creator.organismTypeCreation('w', numOrganismsInitial[2]);
+    int[] numTilesInPhase = new int[4];
+    for (int ty = 0; ty < numTilesY; ty++) {
+      for (int tx = 0; tx < numTilesX; tx++) {
+        numTilesInPhase[tilePhase(ty, tx)]++;
+      }
+    }
+    this.tilesByPhase = new int[4][];
+    for (int phase = 0; phase < 4; phase++) {
+      tilesByPhase[phase] = new int[numTilesInPhase[phase]];
+      numTilesInPhase[phase] = 0;
+    }
+    
+    int reach = LEN_RESTRICTED / 2;
+    for (int ty = 0; ty < numTilesY; ty++) {
+      for (int tx = 0; tx < numTilesX; tx++) {
+        int tile = ty * numTilesX + tx;
+        tileWindows[tile] = new MapWindow(world, new AnimalRoster());
+        tileWindows[tile].setClip(Math.max(ty * tileSize - reach, 0), Math.min((ty + 1) * tileSize - 1 + reach, lenY - 1),
+                                  Math.max(tx * tileSize - reach, 0), Math.min((tx + 1) * tileSize - 1 + reach, lenX - 1));
+        
+        int phase = tilePhase(ty, tx);
+        tilesByPhase[phase][numTilesInPhase[phase]] = tile;
+        numTilesInPhase[phase]++;
+      }
+    }
+  }
+  
+  /*
+   * setClaimedMovement
+   * This method makes every following call to movementCycle move the animals in parallel, each thread claiming the 
+   * positions an animal can see before moving it. The number of conflicts is available through getClaimConflicts, 
+   * getClaimRetries and getClaimFallbacks
+   * @param parallelism, the number of threads used
+   */
+  public void setClaimedMovement(int parallelism) {
+    setSequentialMovement();
+    
+    this.pool = new ForkJoinPool(parallelism);
+    this.claims = new AtomicIntegerArray(lenY * lenX);
+    
+    int numChunks = parallelism * CHUNKS_PER_THREAD;
+    this.chunkWindows = new MapWindow[numChunks];
+    this.chunkFallbacks = new AnimalRoster[numChunks];
+    for (int chunk = 0; chunk < numChunks; chunk++) {
+      chunkWindows[chunk] = new MapWindow(world, new AnimalRoster());
+      chunkFallbacks[chunk] = new AnimalRoster();
+    }
+    this.chunkConflicts = new long[numChunks];
+    this.chunkRetries = new long[numChunks];
+    this.claimConflicts = 0;
+    this.claimRetries = 0;
+    this.claimFallbacks = 0;
+  }
+  
+  /*
+   * setTwoPhaseMovement
+   * This method makes every following call to movementCycle move the animals with a MovementPlan. The time spent in 
+   * each phase is available through getProposeTime and getResolveTime
+   * @param parallelism, the number of threads used to propose moves, 1 to propose them on the current thread
+   */
+  public void setTwoPhaseMovement(int parallelism) {
+    setSequentialMovement();
+    
+    this.plan = new MovementPlan(this);
+    if (parallelism > 1) {
+      this.pool = new ForkJoinPool(parallelism);
+      this.chunkWindows = new MapWindow[parallelism * CHUNKS_PER_THREAD];
+      for (int chunk = 0; chunk < chunkWindows.length; chunk++) {
+        chunkWindows[chunk] = new MapWindow(world, new AnimalRoster());
+      }
+    }
+    this.proposeTime = 0;
+    this.resolveTime = 0;
+  }
+  
+  /*
+   * setSequentialMovement
+   * This method makes every following call to movementCycle move the animals one after the other on the current thread,
+   * which is the default
+   */
+  public void setSequentialMovement() {
+    plan = null;
+    if (pool != null) {
+      pool.shutdown();
+      pool = null;
+      tileWindows = null;
+      tilesByPhase = null;
+      tileStart = null;
+      tileAnimals = null;
+      claims = null;
+      chunkWindows = null;
+      chunkFallbacks = null;
+      chunkConflicts = null;
+      chunkRetries = null;
+    }
+  }
+  
+  /*
+   * getClaimConflicts
+   * This method returns the number of animals, since setClaimedMovement was called, that found one of the positions 
+   * they can see already claimed by another thread on their first attempt
+   * @return claimConflicts, a long holding the number of conflicts
+   */
+  public long getClaimConflicts() {
+    return claimConflicts;
+  }
+  
+  /*
+   * getClaimRetries
+   * This method returns the number of extra attempts made to claim positions since setClaimedMovement was called
+   * @return claimRetries, a long holding the number of retries
+   */
+  public long getClaimRetries() {
+    return claimRetries;
+  }
+  
+  /*
+   * getClaimFallbacks
+   * This method returns the number of animals, since setClaimedMovement was called, that were moved one after the
+   * other because their positions stayed claimed after MAX_CLAIM_RETRIES retries
+   * @return claimFallbacks, a long holding the number of animals
+   */
+  public long getClaimFallbacks() {
+    return claimFallbacks;
+  }
+  
+  /*
+   * getProposeTime
+   * This method returns the time spent proposing moves since setTwoPhaseMovement was called
+   * @return proposeTime, a long holding a number of nanoseconds
+   */
+  public long getProposeTime() {
+    return proposeTime;
+  }
+  
+  /*
+   * getResolveTime
+   * This method returns the time spent resolving moves since setTwoPhaseMovement was called
+   * @return resolveTime, a long holding a number of nanoseconds
+   */
+  public long getResolveTime() {
+    return resolveTime;
   }
   
   /*
    * continueSimulation
-   * This method determines if all organisms are present based on the existOrganism array that holds boolean values
-   * for the presence of each type of organism
-   * @return true if all organisms are present, false otherwise
+   * This method determines if the simulation should go on, which it does as long as wolves exist
+   * @return true if any wolf is on the map, false otherwise
    */
   public boolean continueSimulation() {
-    if (existOrganisms[0])  {
-      return true;
-    } else {
-      return false;
-    }
+    return world.getPopulation(WorldStore.WOLF) > 0;
   }
   
   /*
    * movementCycle
-   * This method represents on cycle of movement. It calls the movement method for an organism with health greater
-   * than 0 that has not already moved, incrementing the number of cycles it has survived while doing so, 
-   * and sets components of the existsOrganisms array to true if an organism of a certain type exists in the entire map, 
-   * false otherwise. After all movement is complete, new grass spawn, the number of which is proportional to the 
-   * map size.  
+   * This method represents on cycle of movement. It calls the movement method for each animal of the roster with 
+   * health greater than 0 that has not already moved. Starting the turn is all it takes for every organism to have
+   * survived one more cycle, since the WorldStore works out the cycles survived from the turn an organism was placed.
+   * After all movement is complete, the animals born during the turn are placed near their parents 
+   * and new grass spawn, the number of which is proportional to the map size, or the GrassField grows.  
    */
   public void movementCycle() {
-    for (int i = 0; i < 3; i++) {
-      existOrganisms[i] = false;
-    }
-    existOrganisms[0] = true;
-    existOrganisms[1] = true;
-    for (int i = 0; i < lenY; i++) {
-      for (int j = 0; j < lenX; j++) {
-        if (map[i][j] != null && map[i][j] instanceof Animal) {
-          if (map[i][j] instanceof Wolf) {
-            existOrganisms[0] = true;
-          } else if (map[i][j] instanceof Sheep) {
-            existOrganisms[1] = true;
-          }
-          
-          if (!((Animal) map[i][j]).hasMoved()) {
-            map[i][j].addTurns();
-            
-            if (map[i][j].getHealth() <= 0) {
-              map[i][j] = null;
-            } else {
-              moveAnimal(i, j, null);
-            }
-          }
-        } else if ((map[i][j] != null) && (map[i][j] instanceof Grass)) {
-          map[i][j].addTurns();
-          existOrganisms[2] = true;
-        }
+    world.nextTurn(); // no animal has moved during the new turn, so no reset is needed
+    AnimalRoster roster = world.getRoster();
+    int numAnimals = roster.size(); // animals that are created or move during the turn are added after this point
+    
+    if (plan != null) {
+      twoPhaseMovement(roster, numAnimals);
+    } else if (pool == null) {
+      for (int k = 0; k < numAnimals; k++) {
+        startMovement(window, roster.get(k));
       }
+    } else if (claims != null) {
+      claimedMovement(roster, numAnimals);
+    } else {
+      tiledMovement(roster, numAnimals);
     }
     
-    creator.organismTypeCreation('g', GRASS_PER_TURN);
+    creator.placeBirths(window.getBirths());
     
-    reset(); // for the next turn, all animals will indicate that they haven't moved 
+    if (grassField == null) {
+      creator.organismTypeCreation('g', GRASS_PER_TURN);
+    } else {
+      grassField.grow(world, minOwnedY, maxOwnedY);
+    }
+    assert isEveryAnimalStamped() : "an animal was not marked as moved during turn " + world.getTurn();
   }
   
   /*
-   * moveAnimal
-   * This method combines several methods contained in the Animal, Wolf and Sheep classes to allow an organism to move 
-   * while only having access to a portion of the entire map. If the animal we are moving collides with an animal, 
-   * the BreedingOnCollision method is called and a new animal may be created if certain conditions are met. If the
-   * animal that has been collided with has not already moved, the forceMovement method is called that forces that animal
-   * to react, be it by remaining stationary or moving to a new spot
-   * @param i and j, integers storing the y and x coordinates respectively of the organism being moved 
-   * @param notMovePosition, an integer array storing the coordinates of a point that will be avoided upon movement
+   * isEveryAnimalStamped
+   * This method determines if every animal of the roster in the owned rows has been marked as moved during the 
+   * current turn, which the WorldStore relies on to store only the lowest bits of the turn an animal last moved
+   * @return true if no animal of the owned rows is left unmarked, false otherwise
+   */
+  private boolean isEveryAnimalStamped() {
+    AnimalRoster roster = world.getRoster();
+    for (int k = 0; k < roster.size(); k++) {
+      int cell = roster.get(k);
+      if (world.isAnimal(cell) && isOwned(cell) && !world.hasMoved(cell)) {
+        return false;
+      }
+    }
+    return true;
+  }
+  
+  /*
+   * startMovement
+   * This method moves the animal at a position if it has not already moved, or removes it from the map if its 
+   * health is not greater than 0
+   * @param window, the MapWindow used to move the animal
+   * @param cell, the index of the position in the WorldStore
+   */
+  private void startMovement(MapWindow window, int cell) {
+    if (world.isAnimal(cell) && !world.hasMoved(cell) && isOwned(cell)) {
+      if (world.getHealth(cell) <= 0) {
+        world.recordEvent(EventLog.STARVATION, cell, cell);
+        world.clear(cell);
+      } else {
+        moveAnimal(window, cell / lenX, cell % lenX, -1, -1);
+      }
+    }
+  }
+  
+  /*
+   * tiledMovement
+   * This method groups the animals of the roster by tile, moves the tiles of each of the four phases in parallel, and
+   * then adds the positions the animals moved onto to the roster and places the animals born during the turn
+   * @param roster, the AnimalRoster of the WorldStore
+   * @param numAnimals, the number of positions of the roster at the beginning of the turn
    */
-  private void moveAnimal(int i, int j, int[] notMovePosition) {
-    int[] smallOldYX = new int[2];
-    smallOldYX[0] = i;
-    smallOldYX[1] = j;
+  private void tiledMovement(AnimalRoster roster, int numAnimals) {
+    int numTiles = numTilesY * numTilesX;
     
-    // transition to the restricted portion of the map
-    int[] bounds = createBoundaries(i, j);
-    smallOldYX = scaleCoordinates(smallOldYX, bounds[0], bounds[2]);
-    Organism[][] mapPortion = getRestrictedMap(bounds); 
+    // counting sort by tile, which keeps the order of the roster inside each tile
+    Arrays.fill(tileStart, 0);
+    for (int k = 0; k < numAnimals; k++) {
+      tileStart[tileOf(roster.get(k)) + 1]++;
+    }
+    for (int tile = 0; tile < numTiles; tile++) {
+      tileStart[tile + 1] += tileStart[tile];
+    }
+    if (tileAnimals.length < numAnimals) {
+      tileAnimals = new int[numAnimals];
+    }
+    for (int k = 0; k < numAnimals; k++) {
+      int tile = tileOf(roster.get(k));
+      tileAnimals[tileStart[tile]] = roster.get(k);
+      tileStart[tile]++;
+    }
+    for (int tile = numTiles; tile > 0; tile--) { // the loop above moved each start to the start of the next tile
+      tileStart[tile] = tileStart[tile - 1];
+    }
+    tileStart[0] = 0;
     
-    int[] newPosition = ((Animal) mapPortion[smallOldYX[0]][smallOldYX[1]]).findNextPosition(smallOldYX[0], smallOldYX[1],
-                                                                                             mapPortion, notMovePosition);
-    //int[] newPosition = ((Animal) mapPortion[smallOldYX[0]][smallOldYX[1]]).getNewPosition();
+    world.setConcurrent(true);
+    for (int phase = 0; phase < 4; phase++) {
+      pool.invoke(new TileRange(tilesByPhase[phase], 0, tilesByPhase[phase].length));
+    }
+    world.setConcurrent(false);
     
-    /*
-     * breeding may occur even if one of the animals hasn't moved. Thus while the animals "move at once", breeding
-     * occurs slightly more often than may be expected, reflecting animals' willingness to reproduce in real life
-     */
-    breedingOnCollision(mapPortion, smallOldYX, newPosition);
+    mergeWindows(tileWindows, roster);
+  }
+  
+  /*
+   * claimedMovement
+   * This method divides the roster into chunks that are moved in parallel, and then moves the animals that could not
+   * claim their positions one after the other
+   * @param roster, the AnimalRoster of the WorldStore
+   * @param numAnimals, the number of positions of the roster at the beginning of the turn
+   */
+  private void claimedMovement(AnimalRoster roster, int numAnimals) {
+    world.setConcurrent(true);
+    pool.invoke(new ChunkRange(roster, numAnimals, 0, chunkWindows.length));
+    world.setConcurrent(false);
     
-    if (((newPosition[0] != smallOldYX[0]) || (newPosition[1] != smallOldYX[1])) 
-          && (mapPortion[newPosition[0]][newPosition[1]] != null) 
-          && (mapPortion[newPosition[0]][newPosition[1]] instanceof Animal)
-          && !((Animal) mapPortion[newPosition[0]][newPosition[1]]).hasMoved()) {
+    mergeWindows(chunkWindows, roster);
+    for (int chunk = 0; chunk < chunkWindows.length; chunk++) {
+      claimConflicts += chunkConflicts[chunk];
+      claimRetries += chunkRetries[chunk];
+      chunkConflicts[chunk] = 0;
+      chunkRetries[chunk] = 0;
       
-      // reverse the scaling down to since the old portion of the map no longer applies
-      bounds[0] = -bounds[0];
-      bounds[2] = -bounds[2];
-      newPosition = scaleCoordinates(newPosition, bounds[0], bounds[2]);
-      
-      forceMovement(i, j, newPosition);
-    } else if ((newPosition[0] != smallOldYX[0]) || (newPosition[1] != smallOldYX[1])) {
-      mapPortion = ((Animal) mapPortion[smallOldYX[0]][smallOldYX[1]]).movement(smallOldYX[0], smallOldYX[1], newPosition, mapPortion); 
-      addToMap(bounds, mapPortion);
-    } else { // if the next position is no different than the previous
-      ((Animal) map[i][j]).setHasMoved(true);
+      AnimalRoster fallbacks = chunkFallbacks[chunk];
+      claimFallbacks += fallbacks.size();
+      for (int k = 0; k < fallbacks.size(); k++) {
+        startMovement(window, fallbacks.get(k));
+      }
+      fallbacks.clear();
     }
   }
   
   /*
-   * scaleCoordinates
-   * This method converts the coordinates of a point on one 2D array to the coordinates of a point on another 2D array
-   * @param posYX, an integer array holding the coordinates of the point that will be scaled
-   * @param newOriginY and newOriginX, integers that represent the vertical and horizontal coordinates of the origin
-   * of the smaller of the two 2D arrays relative to the other 2D array
-   * @return posXY, the scaled coordinate
+   * twoPhaseMovement
+   * This method moves the animals of the roster with the MovementPlan, proposing moves in parallel when a pool is
+   * available, and then places the animals born during the turn
+   * @param roster, the AnimalRoster of the WorldStore
+   * @param numAnimals, the number of positions of the roster at the beginning of the turn
    */
-  private int[] scaleCoordinates(int[] posYX, int newOriginY, int newOriginX) {
-    posYX[0] -= newOriginY;
-    posYX[1] -= newOriginX;
+  private void twoPhaseMovement(AnimalRoster roster, int numAnimals) {
+    plan.collect(roster, numAnimals);
     
-    return posYX;
+    long start = System.nanoTime();
+    if (pool == null) {
+      plan.propose(0, plan.size(), window);
+    } else {
+      pool.invoke(new ProposeRange(0, chunkWindows.length));
+    }
+    long proposed = System.nanoTime();
+    plan.resolve(window.getBirths());
+    resolveTime += System.nanoTime() - proposed;
+    proposeTime += proposed - start;
   }
   
   /*
-   * breedingOnCollision
-   * This method calls creator's (an object of type OrganismCreator) method that creates a new organism and places 
-   * it on the grid of the same type as the collided organisms if either both collided animals are wolves or sheep
-   * and they are of opposite sexes and they are both able to breed as defined by the canBreed method. 
-   * If these conditions are met, the health of each "parent" is decreased. 
-   * @param mapPortion, a 2D Organism array representing the portion of the map the organism initiating the collision can see
-   * @param movingYX, an integer array containing the coordinates one of the collided organisms on the mapPortion array
-   * @param collidedYX, same as movingYX except for the other organism
-   */
-  private void breedingOnCollision(Organism[][] mapPortion, int[] movingYX, int[] collidedYX) {
-    if (((collidedYX[0] != movingYX[0]) || (collidedYX[1] != movingYX[1])) // if the new position is different from the previous one
-          && (mapPortion[collidedYX[0]][collidedYX[1]] != null) 
-          && (mapPortion[collidedYX[0]][collidedYX[1]] instanceof Animal)) {
-      Animal animalMoving = (Animal) mapPortion[movingYX[0]][movingYX[1]]; // for clarity and conciseness
-      Animal animalCollidedWith = (Animal) mapPortion[collidedYX[0]][collidedYX[1]]; // for clarity and consiseness
+   * ProposeRange
+   * Proposes the moves of a range of chunks of the MovementPlan, splitting the range in two while it holds more than 
+   * one chunk
+   */
+  class ProposeRange extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+    private int start, end;
+    
+    ProposeRange(int start, int end) {
+      this.start = start;
+      this.end = end;
+    }
+    
+    @Override
+    protected void compute() {
+      if (end - start > 1) {
+        int middle = (start + end) / 2;
+        invokeAll(new ProposeRange(start, middle), new ProposeRange(middle, end));
+      } else if (end > start) {
+        int first = (int) ((long) plan.size() * start / chunkWindows.length);
+        int last = (int) ((long) plan.size() * end / chunkWindows.length);
+        plan.propose(first, last, chunkWindows[start]);
+      }
+    }
+  }
+  
+  /*
+   * mergeWindows
+   * This method adds the positions animals moved onto through each window to the roster, and the animals born
+   * while moving through them to the BirthQueue of the turn
+   * @param windows, an array of MapWindow that were used at once
+   * @param roster, the AnimalRoster of the WorldStore
+   */
+  private void mergeWindows(MapWindow[] windows, AnimalRoster roster) {
+    for (int w = 0; w < windows.length; w++) {
+      AnimalRoster windowRoster = windows[w].getRoster();
+      for (int k = 0; k < windowRoster.size(); k++) {
+        roster.add(windowRoster.get(k));
+      }
+      windowRoster.clear();
       
-      if ((animalMoving.getIsFemale() != animalCollidedWith.getIsFemale()) && (animalMoving.canBreed()) 
-            && (animalCollidedWith.canBreed()) && (((animalMoving instanceof Wolf) && (animalCollidedWith instanceof Wolf))
-              || ((animalMoving instanceof Sheep) && (animalCollidedWith instanceof Sheep)))) {
-        
-        ((Animal) mapPortion[collidedYX[0]][collidedYX[1]]).decreaseHealthOnBreeding();
-        ((Animal) mapPortion[movingYX[0]][movingYX[1]]).decreaseHealthOnBreeding();
-        
-        if ((animalMoving instanceof Wolf) && (animalCollidedWith instanceof Wolf)) {
-          creator.organismTypeCreation('w', 1);
-        } else {
-          creator.organismTypeCreation('s', 1);
+      window.getBirths().addAll(windows[w].getBirths());
+    }
+  }
+  
+  /*
+   * ChunkRange
+   * Moves the animals of a range of chunks of the roster, splitting the range in two while it holds more than one
+   * chunk. Before an animal moves, every position it can see is claimed for the chunk, so that the animal, and any 
+   * animal it forces to move, never touches a position used by another thread
+   */
+  class ChunkRange extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+    private AnimalRoster roster;
+    private int numAnimals;
+    private int start, end;
+    
+    ChunkRange(AnimalRoster roster, int numAnimals, int start, int end) {
+      this.roster = roster;
+      this.numAnimals = numAnimals;
+      this.start = start;
+      this.end = end;
+    }
+    
+    @Override
+    protected void compute() {
+      if (end - start > 1) {
+        int middle = (start + end) / 2;
+        invokeAll(new ChunkRange(roster, numAnimals, start, middle), new ChunkRange(roster, numAnimals, middle, end));
+      } else if (end > start) {
+        int chunk = start;
+        int first = (int) ((long) numAnimals * chunk / chunkWindows.length);
+        int last = (int) ((long) numAnimals * (chunk + 1) / chunkWindows.length);
+        for (int k = first; k < last; k++) {
+          claimAndMove(chunk, roster.get(k));
         }
       }
     }
   }
   
   /*
-   * forceMovement
-   * This method recursively calls the moveAnimal method, moving the animal that is collided with, as well
-   * as the animal initiating the collision if the former remains in the same position. If not, the animal
-   * initiating the collision moves to the vacated position via the simpleMovement method defined in the Animal class
-   * @param oldYPos and oldXPos, integers storing the coordinates of the animal initiating the collision on the large map
-   * @param coordinatesCollided, an integer array storing the coordinates of the animal that is being collided with
+   * claimAndMove
+   * This method claims the positions the animal at a position can see, retrying up to MAX_CLAIM_RETRIES times if
+   * another chunk holds one of them, then moves the animal and releases the positions. If the positions could not 
+   * be claimed, the animal is added to the fallbacks of the chunk instead
+   * @param chunk, the index of the chunk moving the animal
+   * @param cell, the index of the position of the animal in the WorldStore
    */
-  private void forceMovement(int oldYPos, int oldXPos, int[] coordinatesCollided) { 
-    int[] notMovePos = new int[2];
-    notMovePos[0] = oldYPos;
-    notMovePos[1] = oldXPos;
-    
-    ((Animal) map[coordinatesCollided[0]][coordinatesCollided[1]]).setHasMoved(true); // prevents recursion/stack overflow
+  private void claimAndMove(int chunk, int cell) {
+    if (!world.isAnimal(cell) || world.hasMoved(cell)) { // checked again once the positions are claimed
+      return;
+    }
     
-    moveAnimal(coordinatesCollided[0], coordinatesCollided[1], notMovePos);
+    MapWindow chunkWindow = chunkWindows[chunk];
+    boolean claimed = claimPositions(chunkWindow, chunk + 1, cell);
+    if (!claimed) {
+      chunkConflicts[chunk]++;
+      for (int attempt = 0; (attempt < MAX_CLAIM_RETRIES) && !claimed; attempt++) {
+        Thread.yield();
+        chunkRetries[chunk]++;
+        claimed = claimPositions(chunkWindow, chunk + 1, cell);
+      }
+    }
     
-    if (map[coordinatesCollided[0]][coordinatesCollided[1]] == null) {
-      ((Animal) map[oldYPos][oldXPos]).simpleMovement(map, coordinatesCollided, oldYPos, oldXPos); // better to scale back down?
+    if (claimed) {
+      startMovement(chunkWindow, cell);
+      releasePositions(chunkWindow, chunkWindow.getClipMaxY(), chunkWindow.getClipMaxX() + 1);
     } else {
-      /*
-       * argument coordinates collided will ensure that the collided animal will not try to move back to the position
-       * the animal initiating the collision previously took up
-       */
-      moveAnimal(oldYPos, oldXPos, coordinatesCollided);
+      chunkFallbacks[chunk].add(cell);
     }
   }
   
   /*
-   * getRestrictedMap
-   * This method creates and returns a 2D array that is the exact copy of a rectangular (in out case, square) portion
-   * of the map 2D array limited by the parameter, bounds
-   * @param bounds, an integer 2D array holding the value of: the minimum y value, the maximum y value, 
-   * the x minimum value, and the x maximum value, in that order, of a portion of the map 2D array
-   * @return mapPortion, an integer 2D array that is a copy of a portion of the map 2D array
+   * claimPositions
+   * This method claims, one compare-and-set at a time, the positions within LEN_RESTRICTED / 2 of a position and
+   * clips the window to them. If one of them is already claimed, the positions claimed so far are released
+   * @param chunkWindow, the MapWindow of the chunk
+   * @param owner, a positive integer identifying the chunk
+   * @param cell, the index of the position of the animal in the WorldStore
+   * @return true if every position was claimed, false otherwise
    */
-  private Organism[][] getRestrictedMap(int[] bounds) {
-    Organism[][] mapPortion = new Organism[bounds[1] - bounds[0] + 1][bounds[3] - bounds[2] + 1];
-    for (int i = bounds[0]; i <= bounds[1]; i++) {
-      for (int j = bounds[2]; j <= bounds[3]; j++) {
-        // scales down the coordinates similarly to the scaleCoordinates method
-        mapPortion[i - bounds[0]][j - bounds[2]] = map[i][j]; 
+  private boolean claimPositions(MapWindow chunkWindow, int owner, int cell) {
+    int reach = LEN_RESTRICTED / 2;
+    int yPos = cell / lenX;
+    int xPos = cell % lenX;
+    chunkWindow.setClip(Math.max(yPos - reach, 0), Math.min(yPos + reach, lenY - 1), 
+                        Math.max(xPos - reach, 0), Math.min(xPos + reach, lenX - 1));
+    
+    for (int i = chunkWindow.getClipMinY(); i <= chunkWindow.getClipMaxY(); i++) {
+      for (int j = chunkWindow.getClipMinX(); j <= chunkWindow.getClipMaxX(); j++) {
+        if (!claims.compareAndSet(world.index(i, j), 0, owner)) {
+          releasePositions(chunkWindow, i, j);
+          return false;
+        }
       }
     }
-    return mapPortion;
+    return true;
   }
   
   /*
-   * addToMap
-   * This method copies a 2D array of Organisms to the map
-   * @param bounds, an integer 2D array holding the value of: the minimum y value, the maximum y value, 
-   * the x minimum value, and the x maximum value, in that order, of a portion of the map 2D array
-   * @param mapPortion, an integer 2D array that is a copy of a portion of the map 2D array
+   * releasePositions
+   * This method releases the positions of the clip of a window, in the order they were claimed, up to but not 
+   * including a given position
+   * @param chunkWindow, the MapWindow of the chunk
+   * @param endY and endX, integers holding the coordinates of the first position that is not released
    */
-  private void addToMap(int[] bounds, Organism[][] mapPortion) {
-    for (int i = bounds[0]; i <= bounds[1]; i++) {
-      for (int j = bounds[2]; j <= bounds[3]; j++) {
-        map[i][j] = mapPortion[i - bounds[0]][j - bounds[2]];
+  private void releasePositions(MapWindow chunkWindow, int endY, int endX) {
+    for (int i = chunkWindow.getClipMinY(); i <= endY; i++) {
+      for (int j = chunkWindow.getClipMinX(); j <= chunkWindow.getClipMaxX(); j++) {
+        if ((i == endY) && (j == endX)) {
+          return;
+        }
+        claims.set(world.index(i, j), 0);
       }
     }
   }
   
   /*
-   * reset
-   * This method sets all existing Animal's moved boolean field to false if it is true via the hasMoved method
-   * in the Animal class
+   * TileRange
+   * Moves the animals of a range of tiles of the same phase, splitting the range in two while it holds more 
+   * than one tile so that the ForkJoinPool can move both halves at once
    */
-  private void reset() {
-    for (int i = 0; i < lenY; i++) {
-      for (int j = 0; j < lenX; j++) {
-        if (map[i][j] instanceof Animal && ((Animal) map[i][j]).hasMoved()) {
-          ((Animal) map[i][j]).setHasMoved(false);
+  class TileRange extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+    private int[] tiles;
+    private int start, end;
+    
+    TileRange(int[] tiles, int start, int end) {
+      this.tiles = tiles;
+      this.start = start;
+      this.end = end;
+    }
+    
+    @Override
+    protected void compute() {
+      if (end - start > 1) {
+        int middle = (start + end) / 2;
+        invokeAll(new TileRange(tiles, start, middle), new TileRange(tiles, middle, end));
+      } else if (end > start) {
+        int tile = tiles[start];
+        for (int k = tileStart[tile]; k < tileStart[tile + 1]; k++) {
+          startMovement(tileWindows[tile], tileAnimals[k]);
         }
       }
     }
   }
+  
+  /*
+   * tileOf
+   * This method finds the tile containing a position on the map
+   * @param cell, the index of the position in the WorldStore
+   * @return the index of the tile, counting row by row
+   */
+  private int tileOf(int cell) {
+    return ((cell / lenX) / tileSize) * numTilesX + (cell % lenX) / tileSize;
+  }
+  
+  /*
+   * tilePhase
+   * This method finds which of the four phases a tile is moved in
+   * @param ty and tx, integers holding the row and column of the tile
+   * @return an integer between 0 and 3
+   */
+  private int tilePhase(int ty, int tx) {
+    return (ty % 2) * 2 + (tx % 2);
+  }
+  
+  /*
+   * isOwned
+   * This method determines if a position is in one of the owned rows
+   * @param cell, the index of the position in the WorldStore
+   * @return true if the animal at that position can be moved, false otherwise
+   */
+  private boolean isOwned(int cell) {
+    return (cell >= minOwnedY * lenX) && (cell < (maxOwnedY + 1) * lenX);
+  }
+  
+  /*
+   * moveAnimal
+   * This method combines several methods contained in the Animal, Wolf and Sheep classes to allow an organism to move 
+   * while only having access to a portion of the entire map. If the animal we are moving collides with an animal, 
+   * the BreedingOnCollision method is called and a new animal may be created if certain conditions are met. If the
+   * animal that has been collided with has not already moved, the forceMovement method is called that forces that animal
+   * to react, be it by remaining stationary or moving to a new spot
+   * @param window, the MapWindow used to access the portion of the map
+   * @param i and j, integers storing the y and x coordinates respectively of the organism being moved 
+   * @param notMoveY and notMoveX, integers storing the coordinates of a point that will be avoided upon movement, 
+   * -1 if there is no such point
+   */
+  private void moveAnimal(MapWindow window, int i, int j, int notMoveY, int notMoveX) {
+    // transition to the restricted portion of the map
+    fitWindow(window, i, j);
+    if (notMoveY >= 0) {
+      window.block(notMoveY, notMoveX);
+    }
+    int smallOldY = i - window.getOriginY();
+    int smallOldX = j - window.getOriginX();
+    
+    int[] newPosition = Animal.findNextPosition(smallOldY, smallOldX, window);
+    
+    /*
+     * breeding may occur even if one of the animals hasn't moved. Thus while the animals "move at once", breeding
+     * occurs slightly more often than may be expected, reflecting animals' willingness to reproduce in real life
+     */
+    breedingOnCollision(window, smallOldY, smallOldX, newPosition);
+    
+    int newCell = window.cell(newPosition[0], newPosition[1]);
+    if (((newPosition[0] != smallOldY) || (newPosition[1] != smallOldX)) 
+          && world.isAnimal(newCell) && !world.hasMoved(newCell)) {
+      
+      // the window is reused by the collided animal, so the coordinates are taken back to the entire map
+      forceMovement(window, i, j, newPosition[0] + window.getOriginY(), newPosition[1] + window.getOriginX());
+    } else if ((newPosition[0] != smallOldY) || (newPosition[1] != smallOldX)) {
+      if (window.getType(smallOldY, smallOldX) == WorldStore.WOLF) {
+        Wolf.movement(smallOldY, smallOldX, newPosition, window);
+      } else {
+        Sheep.movement(smallOldY, smallOldX, newPosition, window);
+      }
+    } else { // if the next position is no different than the previous
+      world.setHasMoved(world.index(i, j), true);
+    }
+  }
+  
+  /*
+   * breedingOnCollision
+   * This method adds a new organism of the same type as the collided organisms to the BirthQueue of the window, to be
+   * placed near its parents at the end of the turn, if either both collided animals are wolves or sheep
+   * and they are of opposite sexes and they are both able to breed as defined by the canBreed method. 
+   * If these conditions are met, the health of each "parent" is decreased
+   * @param mapPortion, a MapWindow over the portion of the map the organism initiating the collision can see
+   * @param movingY and movingX, integers containing the coordinates of one of the collided organisms on the window
+   * @param collidedYX, an integer array containing the coordinates of the other organism on the window
+   */
+  private void breedingOnCollision(MapWindow mapPortion, int movingY, int movingX, int[] collidedYX) {
+    int cellMoving = mapPortion.cell(movingY, movingX); // for clarity and conciseness
+    int cellCollidedWith = mapPortion.cell(collidedYX[0], collidedYX[1]); // for clarity and consiseness
+    
+    if ((cellCollidedWith != cellMoving) // if the new position is different from the previous one
+          && world.isAnimal(cellCollidedWith)) {
+      
+      if ((world.getIsFemale(cellMoving) != world.getIsFemale(cellCollidedWith)) && Animal.canBreed(world, cellMoving) 
+            && Animal.canBreed(world, cellCollidedWith) && (world.getType(cellMoving) == world.getType(cellCollidedWith))) {
+        
+        Animal.decreaseHealthOnBreeding(world, cellCollidedWith);
+        Animal.decreaseHealthOnBreeding(world, cellMoving);
+        
+        mapPortion.getBirths().add(world.getType(cellMoving), cellMoving, cellCollidedWith);
+        world.recordEvent(EventLog.MATING, cellMoving, cellCollidedWith);
+      }
+    }
+  }
+  
+  /*
+   * forceMovement
+   * This method recursively calls the moveAnimal method, moving the animal that is collided with, as well
+   * as the animal initiating the collision if the former remains in the same position. If not, the animal
+   * initiating the collision moves to the vacated position
+   * @param window, the MapWindow used to access the portion of the map
+   * @param oldYPos and oldXPos, integers storing the coordinates of the animal initiating the collision on the large map
+   * @param collidedY and collidedX, integers storing the coordinates of the animal that is being collided with
+   */
+  private void forceMovement(MapWindow window, int oldYPos, int oldXPos, int collidedY, int collidedX) { 
+    world.setHasMoved(world.index(collidedY, collidedX), true); // prevents recursion/stack overflow
+    
+    moveAnimal(window, collidedY, collidedX, oldYPos, oldXPos);
+    
+    if (world.isEmpty(world.index(collidedY, collidedX))) {
+      fitWindow(window, oldYPos, oldXPos);
+      window.move(oldYPos - window.getOriginY(), oldXPos - window.getOriginX(), 
+                  collidedY - window.getOriginY(), collidedX - window.getOriginX());
+      world.setHasMoved(world.index(collidedY, collidedX), true); // every animal on the roster is marked once per turn
+      world.recordEvent(EventLog.MOVE, world.index(oldYPos, oldXPos), world.index(collidedY, collidedX));
+    } else {
+      /*
+       * the collided coordinates will ensure that the collided animal will not try to move back to the position
+       * the animal initiating the collision previously took up
+       */
+      moveAnimal(window, oldYPos, oldXPos, collidedY, collidedX);
+    }
+  }
 }
-  
\ No newline at end of file
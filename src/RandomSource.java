@@ -0,0 +1,10 @@
+/*
+ * RandomSource
+ * This interface defines the random numbers used by the simulation. Every number is determined by the turn, a key
+ * identifying what the number is drawn for (such as the position of an animal) and a counter distinguishing the
+ * numbers drawn for the same key during the same turn, so no state is shared between the threads drawing numbers
+ */
+interface RandomSource {
+  public int nextInt(int turn, int key, int counter, int bound);
+  public boolean nextBoolean(int turn, int key, int counter);
+}
@@ -0,0 +1,317 @@
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Properties;
+
+/*
+ * SeriesReader
+ * Reads a file written by a SeriesWriter. The file is mapped into memory rather than read, and only its header and
+ * index are decoded when it is opened, so that reading a range of turns only decodes the blocks holding them. If the
+ * file was never closed and has no index, its blocks are scanned to build one, a block cut short being left out.
+ * The records can be exported to CSV, either from code or from the command line:
+ *   java SeriesReader series=populations from=1000 to=2000 out=populations.csv
+ * which exports the turns from 1000 to 2000 of populations-0000.series, populations-0001.series and so on, to the
+ * standard output if out is not given.
+ */
+class SeriesReader {
+  private static final String[] KEYS = {"series", "from", "to", "out"};
+
+  private MappedByteBuffer data;
+  private String[] columnNames;
+  private long[] blockPositions, firstTurns, lastTurns;
+  private int[] blockRecords;
+  private int numBlocks;
+
+  /*
+   * Maps a file and reads its header and index
+   * @param fileName, the path of the file
+   */
+  SeriesReader(String fileName) throws IOException {
+    try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+      if (channel.size() > Integer.MAX_VALUE) {
+        throw new IOException(fileName + " is too large to be mapped");
+      }
+      data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+
+    if ((data.limit() < 16) || (data.getLong(0) != SeriesWriter.FILE_MAGIC)) {
+      throw new IOException(fileName + " was not written by a SeriesWriter");
+    }
+    if (data.getInt(8) != SeriesWriter.VERSION) {
+      throw new IOException(fileName + " has version " + data.getInt(8) + " instead of " + SeriesWriter.VERSION);
+    }
+    columnNames = new String[data.getInt(12)];
+    int position = 16;
+    for (int c = 0; c < columnNames.length; c++) {
+      byte[] bytes = new byte[data.getShort(position)];
+      data.get(position + 2, bytes);
+      columnNames[c] = new String(bytes, StandardCharsets.UTF_8);
+      position += 2 + bytes.length;
+    }
+
+    if (!readIndex()) {
+      scanBlocks(position);
+    }
+  }
+
+  public String[] getColumnNames() {
+    return columnNames.clone();
+  }
+
+  public int getNumBlocks() {
+    return numBlocks;
+  }
+
+  /*
+   * getNumRecords
+   * This method counts the records of the file, from its index
+   * @return an int holding the number of records
+   */
+  public int getNumRecords() {
+    int numRecords = 0;
+    for (int b = 0; b < numBlocks; b++) {
+      numRecords += blockRecords[b];
+    }
+    return numRecords;
+  }
+
+  public long getFirstTurn() {
+    return (numBlocks == 0) ? -1 : firstTurns[0];
+  }
+
+  public long getLastTurn() {
+    return (numBlocks == 0) ? -1 : lastTurns[numBlocks - 1];
+  }
+
+  /*
+   * read
+   * This method decodes the records of a range of turns. The index is searched for the first block that may hold
+   * fromTurn, and blocks are decoded from there until one starts after toTurn
+   * @param fromTurn and toTurn, the first and last turns read
+   * @return columns, a long array per column holding the values of the records of the range, in order
+   */
+  public long[][] read(long fromTurn, long toTurn) {
+    // first block whose last turn is not before fromTurn
+    int low = 0;
+    int high = numBlocks;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (lastTurns[middle] < fromTurn) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+
+    int last = low;
+    int capacity = 0;
+    while ((last < numBlocks) && (firstTurns[last] <= toTurn)) {
+      capacity += blockRecords[last];
+      last++;
+    }
+
+    long[][] columns = new long[columnNames.length][capacity];
+    long[] values = new long[SeriesWriter.BLOCK_RECORDS];
+    int numRead = 0;
+    for (int b = low; b < last; b++) {
+      int numRecords = blockRecords[b];
+      int position = (int) blockPositions[b] + 8 + 4 * columnNames.length;
+      int turnPosition = position;
+      position += data.getInt((int) blockPositions[b] + 8);
+
+      // only the records of the block within the range are kept
+      decodeColumn(turnPosition, numRecords, values);
+      int first = 0;
+      while ((first < numRecords) && (values[first] < fromTurn)) {
+        first++;
+      }
+      int end = first;
+      while ((end < numRecords) && (values[end] <= toTurn)) {
+        end++;
+      }
+      System.arraycopy(values, first, columns[0], numRead, end - first);
+
+      // the other columns are decoded up to the last record of the range only
+      for (int c = 1; (c < columnNames.length) && (end > first); c++) {
+        decodeColumn(position, end, values);
+        System.arraycopy(values, first, columns[c], numRead, end - first);
+        position += data.getInt((int) blockPositions[b] + 8 + 4 * c);
+      }
+      numRead += end - first;
+    }
+
+    for (int c = 0; c < columnNames.length; c++) {
+      columns[c] = Arrays.copyOf(columns[c], numRead);
+    }
+    return columns;
+  }
+
+  /*
+   * exportCsv
+   * This method writes the records of a range of turns as CSV lines, after a line holding the names of the columns
+   * if header is true
+   * @param fromTurn and toTurn, the first and last turns written
+   * @param out, the Writer the lines are written to
+   * @param header, true if the names of the columns are written first
+   */
+  public void exportCsv(long fromTurn, long toTurn, Writer out, boolean header) throws IOException {
+    if (header) {
+      out.write(String.join(",", columnNames));
+      out.write('\n');
+    }
+    long[][] columns = read(fromTurn, toTurn);
+    StringBuilder line = new StringBuilder();
+    for (int k = 0; k < columns[0].length; k++) {
+      line.setLength(0);
+      for (int c = 0; c < columns.length; c++) {
+        if (c > 0) {
+          line.append(',');
+        }
+        line.append(columns[c][k]);
+      }
+      line.append('\n');
+      out.append(line);
+    }
+  }
+
+  /*
+   * readIndex
+   * This method reads the index written after the last block when the file was closed
+   * @return true if the file has an index, false otherwise
+   */
+  private boolean readIndex() {
+    int end = data.limit();
+    if ((end < 28) || (data.getInt(end - 4) != SeriesWriter.INDEX_MAGIC)) {
+      return false;
+    }
+    long indexPosition = data.getLong(end - 12);
+    if ((indexPosition < 16) || (indexPosition > end - 20)
+          || (data.getInt((int) indexPosition) != SeriesWriter.INDEX_MAGIC)) {
+      return false;
+    }
+    int size = data.getInt((int) indexPosition + 4);
+    if (indexPosition + 8 + (long) SeriesWriter.INDEX_BYTES_PER_BLOCK * size + 12 != end) {
+      return false;
+    }
+
+    int position = (int) indexPosition + 8;
+    numBlocks = size;
+    allocateIndex(numBlocks);
+    for (int b = 0; b < numBlocks; b++) {
+      blockPositions[b] = data.getLong(position);
+      firstTurns[b] = data.getLong(position + 8);
+      lastTurns[b] = data.getLong(position + 16);
+      blockRecords[b] = data.getInt(position + 24);
+      position += SeriesWriter.INDEX_BYTES_PER_BLOCK;
+    }
+    return true;
+  }
+
+  /*
+   * scanBlocks
+   * This method builds the index of a file that was not closed by going through its blocks, decoding only the turns
+   * @param position, the position of the first block, right after the header
+   */
+  private void scanBlocks(int position) {
+    allocateIndex(16);
+    numBlocks = 0;
+    long[] values = new long[SeriesWriter.BLOCK_RECORDS];
+    int headerBytes = 8 + 4 * columnNames.length;
+    while ((position + headerBytes <= data.limit()) && (data.getInt(position) == SeriesWriter.BLOCK_MAGIC)) {
+      int numRecords = data.getInt(position + 4);
+      long blockBytes = headerBytes;
+      for (int c = 0; c < columnNames.length; c++) {
+        blockBytes += data.getInt(position + 8 + 4 * c);
+      }
+      if ((numRecords <= 0) || (numRecords > SeriesWriter.BLOCK_RECORDS) || (position + blockBytes > data.limit())) {
+        break; // the block was not written completely
+      }
+
+      if (numBlocks == blockPositions.length) {
+        blockPositions = Arrays.copyOf(blockPositions, 2 * numBlocks);
+        firstTurns = Arrays.copyOf(firstTurns, 2 * numBlocks);
+        lastTurns = Arrays.copyOf(lastTurns, 2 * numBlocks);
+        blockRecords = Arrays.copyOf(blockRecords, 2 * numBlocks);
+      }
+      decodeColumn(position + headerBytes, numRecords, values);
+      blockPositions[numBlocks] = position;
+      firstTurns[numBlocks] = values[0];
+      lastTurns[numBlocks] = values[numRecords - 1];
+      blockRecords[numBlocks] = numRecords;
+      numBlocks++;
+      position += (int) blockBytes;
+    }
+  }
+
+  private void allocateIndex(int size) {
+    blockPositions = new long[Math.max(size, 1)];
+    firstTurns = new long[Math.max(size, 1)];
+    lastTurns = new long[Math.max(size, 1)];
+    blockRecords = new int[Math.max(size, 1)];
+  }
+
+  /*
+   * decodeColumn
+   * This method decodes the values of a column of a block, adding up the zigzag-encoded differences
+   * @param position, the position of the first byte of the column
+   * @param numRecords, the number of values of the column
+   * @param values, a long array receiving the values
+   */
+  private void decodeColumn(int position, int numRecords, long[] values) {
+    long previous = 0;
+    for (int k = 0; k < numRecords; k++) {
+      long encoded = 0;
+      int shift = 0;
+      byte b;
+      do {
+        b = data.get(position);
+        position++;
+        encoded |= (long) (b & 0x7F) << shift;
+        shift += 7;
+      } while (b < 0);
+      previous += (encoded >>> 1) ^ -(encoded & 1);
+      values[k] = previous;
+    }
+  }
+
+  public static void main(String[] args) {
+    Properties settings = BatchRunner.readSettings(args, KEYS);
+    String prefix = settings.getProperty("series", StatsWriter.DEFAULT_SERIES_PREFIX);
+    long fromTurn = 0;
+    long toTurn = Long.MAX_VALUE;
+    try {
+      fromTurn = Long.parseLong(settings.getProperty("from", "0"));
+      toTurn = Long.parseLong(settings.getProperty("to", Long.toString(Long.MAX_VALUE)));
+    } catch (NumberFormatException e) {
+      System.err.println("The turns from and to must be integers.");
+      System.exit(1);
+    }
+
+    try (Writer out = (settings.getProperty("out") == null)
+                        ? new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8))
+                        : new BufferedWriter(new FileWriter(settings.getProperty("out")))) {
+      int number = 0;
+      while (Files.exists(Paths.get(SeriesWriter.getFileName(prefix, number)))) {
+        SeriesReader reader = new SeriesReader(SeriesWriter.getFileName(prefix, number));
+        reader.exportCsv(fromTurn, toTurn, out, number == 0);
+        number++;
+      }
+      if (number == 0) {
+        System.err.println("No file " + SeriesWriter.getFileName(prefix, 0) + " was found.");
+        System.exit(1);
+      }
+    } catch (IOException e) {
+      System.err.println("The series could not be exported: " + e.getMessage());
+      System.exit(1);
+    }
+  }
+}
@@ -0,0 +1,226 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/*
+ * SeriesWriter
+ * Writes records of long values, one value per column, the first column being the turn, to compact binary files that
+ * a SeriesReader can read back. Records are grouped in blocks of at most BLOCK_RECORDS records. Within a block, the
+ * values of each column are stored together, each as the difference with the previous value of the column (the first
+ * one with 0), zigzag-encoded so small negative differences stay small, and written as a varint of 7 bits per byte.
+ * A turn column thus takes one byte per record, and populations that change little take one or two.
+ * A file starts with a header holding FILE_MAGIC, VERSION and the names of the columns. Each block starts with
+ * BLOCK_MAGIC, its number of records and the number of bytes of each column, so a file that was never closed can
+ * still be read by scanning its blocks. When a file is closed, an index of its blocks, holding the position, first
+ * turn, last turn and number of records of each block, is written after the last block, followed by the position of
+ * the index and INDEX_MAGIC. Once a file reaches maxFileBytes, it is closed and the next records go to a new file,
+ * files being numbered from 0 after the prefix passed in.
+ */
+class SeriesWriter {
+  public static final long FILE_MAGIC = 0x45434F5345524945L; // "ECOSERIE"
+  public static final int VERSION = 1;
+  public static final int BLOCK_MAGIC = 0x424C4F43; // "BLOC"
+  public static final int INDEX_MAGIC = 0x494E4458; // "INDX"
+  public static final int BLOCK_RECORDS = 4096;
+  public static final long MIN_FILE_BYTES = 1 << 16;
+  public static final int INDEX_BYTES_PER_BLOCK = 28;
+
+  private static final int MAX_VARINT_BYTES = 10;
+
+  private String prefix;
+  private String[] columnNames;
+  private long maxFileBytes;
+  private int numFiles;
+  private FileChannel channel;
+
+  private long[][] pending; // values of the records of the block being filled, one array per column
+  private int numPending;
+  private ByteBuffer block; // reused to encode each block
+
+  // index of the blocks of the current file
+  private long[] blockPositions, firstTurns, lastTurns;
+  private int[] blockRecords;
+  private int numBlocks;
+
+  /*
+   * Creates the first file
+   * @param prefix, the path of the files without their number and .series extension
+   * @param columnNames, the names of the columns, the first being the turn
+   * @param maxFileBytes, the size from which the next records go to a new file, at least MIN_FILE_BYTES
+   */
+  SeriesWriter(String prefix, String[] columnNames, long maxFileBytes) throws IOException {
+    this.prefix = prefix;
+    this.columnNames = columnNames.clone();
+    this.maxFileBytes = Math.max(maxFileBytes, MIN_FILE_BYTES);
+    this.numFiles = 0;
+    this.pending = new long[columnNames.length][BLOCK_RECORDS];
+    this.numPending = 0;
+    this.block = ByteBuffer.allocate(8 + 4 * columnNames.length + MAX_VARINT_BYTES * BLOCK_RECORDS * columnNames.length);
+    this.blockPositions = new long[16];
+    this.firstTurns = new long[16];
+    this.lastTurns = new long[16];
+    this.blockRecords = new int[16];
+    openFile();
+  }
+
+  /*
+   * getFileName
+   * This method finds the name of one of the files written
+   * @param prefix, the prefix of the files
+   * @param number, the number of the file, starting from 0
+   * @return the path of the file
+   */
+  public static String getFileName(String prefix, int number) {
+    return prefix + String.format("-%04d.series", number);
+  }
+
+  public int getNumColumns() {
+    return columnNames.length;
+  }
+
+  public int getNumFiles() {
+    return numFiles;
+  }
+
+  /*
+   * append
+   * This method adds a record, which is written once its block is full or flush is called
+   * @param records, a long array holding records one after the other
+   * @param offset, the index of the first value of the record in records
+   */
+  public void append(long[] records, int offset) throws IOException {
+    for (int c = 0; c < columnNames.length; c++) {
+      pending[c][numPending] = records[offset + c];
+    }
+    numPending++;
+    if (numPending == BLOCK_RECORDS) {
+      flush();
+    }
+  }
+
+  /*
+   * flush
+   * This method writes the records added since the last block was written as a block of their own, and starts a new
+   * file if the current one has reached maxFileBytes
+   */
+  public void flush() throws IOException {
+    if (numPending == 0) {
+      return;
+    }
+
+    block.clear();
+    block.putInt(BLOCK_MAGIC);
+    block.putInt(numPending);
+    int lengths = block.position();
+    block.position(lengths + 4 * columnNames.length);
+    for (int c = 0; c < columnNames.length; c++) {
+      int start = block.position();
+      long previous = 0;
+      for (int k = 0; k < numPending; k++) {
+        long delta = pending[c][k] - previous;
+        putVarint(block, (delta << 1) ^ (delta >> 63));
+        previous = pending[c][k];
+      }
+      block.putInt(lengths + 4 * c, block.position() - start);
+    }
+    block.flip();
+
+    if (numBlocks == blockPositions.length) {
+      blockPositions = Arrays.copyOf(blockPositions, 2 * numBlocks);
+      firstTurns = Arrays.copyOf(firstTurns, 2 * numBlocks);
+      lastTurns = Arrays.copyOf(lastTurns, 2 * numBlocks);
+      blockRecords = Arrays.copyOf(blockRecords, 2 * numBlocks);
+    }
+    blockPositions[numBlocks] = channel.position();
+    firstTurns[numBlocks] = pending[0][0];
+    lastTurns[numBlocks] = pending[0][numPending - 1];
+    blockRecords[numBlocks] = numPending;
+    numBlocks++;
+    writeFully(block);
+    numPending = 0;
+
+    if (channel.position() + (long) INDEX_BYTES_PER_BLOCK * numBlocks >= maxFileBytes) {
+      closeFile();
+      openFile();
+    }
+  }
+
+  /*
+   * close
+   * This method writes the records left and the index of the last file, and closes it
+   */
+  public void close() throws IOException {
+    flush();
+    closeFile();
+  }
+
+  /*
+   * openFile
+   * This method creates the next file and writes its header
+   */
+  private void openFile() throws IOException {
+    channel = FileChannel.open(Paths.get(getFileName(prefix, numFiles)), StandardOpenOption.CREATE,
+                               StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    numFiles++;
+    numBlocks = 0;
+
+    block.clear();
+    block.putLong(FILE_MAGIC);
+    block.putInt(VERSION);
+    block.putInt(columnNames.length);
+    for (String name : columnNames) {
+      byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+      block.putShort((short) bytes.length);
+      block.put(bytes);
+    }
+    block.flip();
+    writeFully(block);
+  }
+
+  /*
+   * closeFile
+   * This method writes the index of the blocks of the current file after its last block, and closes it
+   */
+  private void closeFile() throws IOException {
+    ByteBuffer index = ByteBuffer.allocate(8 + INDEX_BYTES_PER_BLOCK * numBlocks + 12);
+    long indexPosition = channel.position();
+    index.putInt(INDEX_MAGIC);
+    index.putInt(numBlocks);
+    for (int b = 0; b < numBlocks; b++) {
+      index.putLong(blockPositions[b]);
+      index.putLong(firstTurns[b]);
+      index.putLong(lastTurns[b]);
+      index.putInt(blockRecords[b]);
+    }
+    index.putLong(indexPosition);
+    index.putInt(INDEX_MAGIC);
+    index.flip();
+    writeFully(index);
+    channel.close();
+  }
+
+  private void writeFully(ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+  }
+
+  /*
+   * putVarint
+   * This method writes a value 7 bits at a time, lowest bits first, the highest bit of each byte being set if more
+   * bytes follow
+   * @param buffer, the ByteBuffer written to
+   * @param value, the value, treated as unsigned
+   */
+  private static void putVarint(ByteBuffer buffer, long value) {
+    while ((value & ~0x7FL) != 0) {
+      buffer.put((byte) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    buffer.put((byte) value);
+  }
+}
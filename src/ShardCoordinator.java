@@ -0,0 +1,257 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/*
+ * ShardCoordinator
+ * Runs a map too large for a single program by splitting it into horizontal strips, each owned by a ShardWorker
+ * process started on the same machine and connected to the coordinator over a loopback TCP socket. The coordinator
+ * only stores the border rows of the strips. Each turn runs in two phases, like the tiles of OrganismManager: first
+ * the even strips move, then the odd strips. Before a strip moves, it receives the LEN_RESTRICTED / 2 border rows of
+ * its neighbours as halo rows, and after it moves, the halo rows, which now hold the animals that crossed into the
+ * neighbours as well as the grass and sheep eaten there, are sent back to the neighbours. Since the strips of a phase
+ * are never next to each other, they never change the same row. The populations of every strip are added together
+ * after each turn and written out by a StatsWriter.
+ * The parameters are the same key=value pairs as BatchRunner, along with shards, the number of strips, and workerHeap,
+ * the maximum heap size of each worker (such as 4g). For example:
+ *   java ShardCoordinator xSize=20000 ySize=20000 shards=8 workerHeap=6g maxTurns=100 seed=42
+ */
+public class ShardCoordinator {
+  private static final String[] KEYS = {"config", "xSize", "ySize", "numGrass", "numSheep", "numWolves", "grassValue",
+    "healthSheep", "healthWolves", "seed", "maxTurns", "shards", "workerHeap"};
+
+  private int numShards;
+  private int lenX;
+  private int borderBytes; // size of the border rows on one side of a strip
+  private List<Process> workers;
+  private DataInputStream[] ins;
+  private DataOutputStream[] outs;
+  private byte[][] topBorders, bottomBorders;
+  private byte[] halo;
+
+  public static void main(String[] args) throws IOException, InterruptedException {
+    Properties settings = BatchRunner.readSettings(args, KEYS);
+
+    int xSize = BatchRunner.getInt(settings, "xSize", 1000);
+    int ySize = BatchRunner.getInt(settings, "ySize", 1000);
+    int[] numOrganismsInitial = new int[3];
+    numOrganismsInitial[0] = BatchRunner.getInt(settings, "numGrass", (int) ((long) xSize * ySize / 10));
+    numOrganismsInitial[1] = BatchRunner.getInt(settings, "numSheep", (int) ((long) xSize * ySize / 20));
+    numOrganismsInitial[2] = BatchRunner.getInt(settings, "numWolves", (int) ((long) xSize * ySize / 80));
+    int grassValue = BatchRunner.getInt(settings, "grassValue", 10);
+    int healthSheep = BatchRunner.getInt(settings, "healthSheep", 70);
+    int healthWolves = BatchRunner.getInt(settings, "healthWolves", 70);
+    long seed = Long.parseLong(settings.getProperty("seed", Long.toString(System.nanoTime())));
+    int maxTurns = BatchRunner.getInt(settings, "maxTurns", 100);
+    int numShards = BatchRunner.getInt(settings, "shards", Runtime.getRuntime().availableProcessors());
+    String workerHeap = settings.getProperty("workerHeap");
+
+    int reach = MapManager.LEN_RESTRICTED / 2;
+    if ((xSize <= 0) || (ySize <= 0) || (maxTurns < 0) || (numShards <= 0)) {
+      System.out.println("The map dimensions and the numbers of turns and shards must be positive.");
+      System.exit(1);
+    } else if (ySize / numShards < 2 * reach) {
+      System.out.println("Each shard must own at least " + (2 * reach) + " rows of the map.");
+      System.exit(1);
+    } else if ((long) numOrganismsInitial[0] + numOrganismsInitial[1] + numOrganismsInitial[2] > (long) xSize * ySize) {
+      System.out.println("Too many organisms have been entered for the map size specified.");
+      System.exit(1);
+    }
+
+    ShardCoordinator coordinator = new ShardCoordinator(numShards, xSize);
+    coordinator.start(workerHeap, ySize, grassValue, healthSheep, healthWolves, numOrganismsInitial, seed);
+
+    StatsWriter populationWriter = new StatsWriter();
+    long[] populations = coordinator.count();
+    int numTurns = 0;
+    long start = System.nanoTime();
+    while ((numTurns < maxTurns) && (populations[2] > 0)) { // stops once wolves cease to exist, like the display
+      populationWriter.writeOut(populations[0], populations[1], populations[2]);
+      coordinator.turn();
+      populations = coordinator.count();
+      numTurns++;
+    }
+    long elapsed = System.nanoTime() - start;
+    populationWriter.exit();
+    coordinator.stop();
+
+    System.out.println("Map: " + xSize + "x" + ySize + " in " + numShards + " shards, seed " + seed);
+    System.out.println("Turns: " + numTurns + " in " + String.format("%.3f", elapsed / 1e9) + " s");
+    System.out.println("Turns per second: " + String.format("%.2f", numTurns / (elapsed / 1e9)));
+    System.out.println("Final populations: grass " + populations[0] + ", sheep " + populations[1]
+                         + ", wolves " + populations[2]);
+  }
+
+  ShardCoordinator(int numShards, int lenX) {
+    this.numShards = numShards;
+    this.lenX = lenX;
+    this.borderBytes = (MapManager.LEN_RESTRICTED / 2) * lenX * WorldStore.ROW_BYTES_PER_POSITION;
+    this.workers = new ArrayList<>();
+    this.ins = new DataInputStream[numShards];
+    this.outs = new DataOutputStream[numShards];
+    this.topBorders = new byte[numShards][borderBytes];
+    this.bottomBorders = new byte[numShards][borderBytes];
+    this.halo = new byte[borderBytes];
+  }
+
+  /*
+   * start
+   * This method starts one ShardWorker process per strip, waits for all of them to connect, and sends each its strip
+   * and the parameters of the simulation. Initial organisms are divided between strips by number of rows, and the
+   * strip numbered i uses the seed seed + i
+   * @param workerHeap, the maximum heap size of each worker, null to use the default
+   * @param lenY, the height of the entire map
+   * @param grassValue, healthSheep and healthWolves, the health of new organisms
+   * @param numOrganismsInitial, the number of grass, sheep and wolves on the entire map
+   * @param seed, the seed of the first strip
+   */
+  public void start(String workerHeap, int lenY, int grassValue, int healthSheep, int healthWolves,
+                    int[] numOrganismsInitial, long seed) throws IOException {
+    try (ServerSocket server = new ServerSocket(0, numShards, InetAddress.getLoopbackAddress())) {
+      String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+      for (int shard = 0; shard < numShards; shard++) {
+        List<String> command = new ArrayList<>();
+        command.add(java);
+        if (workerHeap != null) {
+          command.add("-Xmx" + workerHeap);
+        }
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add("ShardWorker");
+        command.add(server.getInetAddress().getHostAddress());
+        command.add(Integer.toString(server.getLocalPort()));
+        command.add(Integer.toString(shard));
+        workers.add(new ProcessBuilder(command).inheritIO().start());
+      }
+
+      for (int i = 0; i < numShards; i++) {
+        Socket socket = server.accept();
+        socket.setTcpNoDelay(true);
+        DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 1 << 16));
+        int shard = in.readInt();
+        ins[shard] = in;
+        outs[shard] = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 1 << 16));
+      }
+    }
+
+    for (int shard = 0; shard < numShards; shard++) {
+      int minY = (int) ((long) lenY * shard / numShards);
+      int maxY = (int) ((long) lenY * (shard + 1) / numShards) - 1;
+      sendInit(shard, lenY, minY, maxY, grassValue, healthSheep, healthWolves, numOrganismsInitial, seed + shard);
+    }
+  }
+
+  /*
+   * sendInit
+   * This method sends a worker its strip and the parameters of the simulation, in the order ShardWorker reads them
+   * @param shard, the number of the strip
+   * @param lenY, the height of the entire map
+   * @param minY and maxY, the first and last rows of the strip
+   * @param grassValue, healthSheep and healthWolves, the health of new organisms
+   * @param numOrganismsInitial, the number of grass, sheep and wolves on the entire map
+   * @param seed, the seed of the strip
+   */
+  private void sendInit(int shard, int lenY, int minY, int maxY, int grassValue, int healthSheep, int healthWolves,
+                        int[] numOrganismsInitial, long seed) throws IOException {
+    DataOutputStream out = outs[shard];
+    out.writeInt(lenY);
+    out.writeInt(lenX);
+    out.writeInt(minY);
+    out.writeInt(maxY);
+    out.writeInt(grassValue);
+    out.writeInt(healthSheep);
+    out.writeInt(healthWolves);
+    for (int i = 0; i < 3; i++) {
+      long before = (long) numOrganismsInitial[i] * minY / lenY;
+      long through = (long) numOrganismsInitial[i] * (maxY + 1) / lenY;
+      out.writeInt((int) (through - before));
+    }
+    out.writeLong(seed);
+    out.flush();
+  }
+
+  /*
+   * turn
+   * This method runs one turn, moving the even strips and then the odd strips
+   */
+  public void turn() throws IOException {
+    for (int phase = 0; phase < 2; phase++) {
+      for (int shard = 1 - phase; shard < numShards; shard += 2) {
+        outs[shard].writeByte(ShardWorker.GET_BORDERS);
+        outs[shard].flush();
+      }
+      for (int shard = 1 - phase; shard < numShards; shard += 2) {
+        ins[shard].readFully(topBorders[shard]);
+        ins[shard].readFully(bottomBorders[shard]);
+      }
+
+      // every strip of the phase moves at the same time
+      for (int shard = phase; shard < numShards; shard += 2) {
+        outs[shard].writeByte(ShardWorker.MOVE);
+        if (shard > 0) {
+          outs[shard].write(bottomBorders[shard - 1]);
+        }
+        if (shard < numShards - 1) {
+          outs[shard].write(topBorders[shard + 1]);
+        }
+        outs[shard].flush();
+      }
+      for (int shard = phase; shard < numShards; shard += 2) {
+        if (shard > 0) {
+          ins[shard].readFully(halo);
+          outs[shard - 1].writeByte(ShardWorker.SET_BOTTOM);
+          outs[shard - 1].write(halo);
+          outs[shard - 1].flush();
+        }
+        if (shard < numShards - 1) {
+          ins[shard].readFully(halo);
+          outs[shard + 1].writeByte(ShardWorker.SET_TOP);
+          outs[shard + 1].write(halo);
+          outs[shard + 1].flush();
+        }
+      }
+    }
+  }
+
+  /*
+   * count
+   * This method adds together the populations of every strip
+   * @return populations, a long array holding the number of grass, sheep and wolves, in that order
+   */
+  public long[] count() throws IOException {
+    for (int shard = 0; shard < numShards; shard++) {
+      outs[shard].writeByte(ShardWorker.COUNT);
+      outs[shard].flush();
+    }
+    long[] populations = new long[3];
+    for (int shard = 0; shard < numShards; shard++) {
+      for (int i = 0; i < 3; i++) {
+        populations[i] += ins[shard].readLong();
+      }
+    }
+    return populations;
+  }
+
+  /*
+   * stop
+   * This method tells every worker to stop and waits for their processes to end
+   */
+  public void stop() throws IOException, InterruptedException {
+    for (int shard = 0; shard < numShards; shard++) {
+      outs[shard].writeByte(ShardWorker.STOP);
+      outs[shard].flush();
+    }
+    for (Process worker : workers) {
+      worker.waitFor();
+    }
+  }
+}
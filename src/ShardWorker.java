@@ -0,0 +1,115 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+
+/*
+ * ShardWorker
+ * Owns one horizontal strip of a map split by a ShardCoordinator, and moves the organisms of that strip when told to.
+ * The worker stores its strip along with LEN_RESTRICTED / 2 halo rows above and below it, which hold copies of the
+ * rows of the neighbouring strips. Its OrganismManager only moves, ages and creates organisms in the owned rows,
+ * and an animal moving from an owned row never reaches past the halo rows.
+ * The worker is started by the coordinator with the arguments: host port shard
+ */
+public class ShardWorker {
+  // commands sent by the coordinator, followed by the rows they need
+  static final byte GET_BORDERS = 1; // the worker replies with its top and bottom border rows
+  static final byte MOVE = 2; // halo rows are sent, the worker moves its strip and replies with the halo rows
+  static final byte SET_TOP = 3; // the top border rows are replaced
+  static final byte SET_BOTTOM = 4; // the bottom border rows are replaced
+  static final byte COUNT = 5; // the worker replies with the number of grass, sheep and wolves it owns
+  static final byte STOP = 6;
+
+  public static void main(String[] args) throws IOException {
+    String host = args[0];
+    int port = Integer.parseInt(args[1]);
+    int shard = Integer.parseInt(args[2]);
+
+    try (Socket socket = new Socket(host, port)) {
+      socket.setTcpNoDelay(true);
+      DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 1 << 16));
+      DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 1 << 16));
+      out.writeInt(shard);
+      out.flush();
+
+      // the strip and parameters of the simulation, as sent by ShardCoordinator.sendInit
+      int lenY = in.readInt();
+      int lenX = in.readInt();
+      int minY = in.readInt();
+      int maxY = in.readInt();
+      int grassValue = in.readInt();
+      int healthSheep = in.readInt();
+      int healthWolves = in.readInt();
+      int[] numOrganismsInitial = new int[3];
+      for (int i = 0; i < 3; i++) {
+        numOrganismsInitial[i] = in.readInt();
+      }
+      long seed = in.readLong();
+
+      int reach = MapManager.LEN_RESTRICTED / 2;
+      int haloTop = Math.min(minY, reach);
+      int haloBottom = Math.min(lenY - 1 - maxY, reach);
+      int firstOwned = haloTop;
+      int lastOwned = haloTop + maxY - minY;
+      OrganismManager environment = new OrganismManager(lastOwned + 1 + haloBottom, lenX, firstOwned, lastOwned,
+                                                        grassValue, healthSheep, healthWolves, numOrganismsInitial,
+                                                        seed);
+      WorldStore world = environment.getWorld();
+
+      byte command = in.readByte();
+      while (command != STOP) {
+        if (command == GET_BORDERS) {
+          for (int i = 0; i < reach; i++) {
+            world.writeRow(firstOwned + i, out);
+          }
+          for (int i = 0; i < reach; i++) {
+            world.writeRow(lastOwned - reach + 1 + i, out);
+          }
+        } else if (command == MOVE) {
+          for (int i = 0; i < haloTop; i++) {
+            world.readRow(i, in, false);
+          }
+          for (int i = 0; i < haloBottom; i++) {
+            world.readRow(lastOwned + 1 + i, in, false);
+          }
+
+          environment.movementCycle();
+
+          for (int i = 0; i < haloTop; i++) {
+            world.writeRow(i, out);
+          }
+          for (int i = 0; i < haloBottom; i++) {
+            world.writeRow(lastOwned + 1 + i, out);
+          }
+        } else if (command == SET_TOP) {
+          for (int i = 0; i < reach; i++) {
+            world.readRow(firstOwned + i, in, true);
+          }
+        } else if (command == SET_BOTTOM) {
+          for (int i = 0; i < reach; i++) {
+            world.readRow(lastOwned - reach + 1 + i, in, true);
+          }
+        } else if (command == COUNT) {
+          // the populations of the store, less those of the halo rows
+          int[] count = world.getPopulations();
+          for (int cell = 0; cell < world.index(firstOwned, 0); cell++) {
+            count[world.getType(cell)]--;
+          }
+          for (int cell = world.index(lastOwned + 1, 0); cell < world.getArea(); cell++) {
+            count[world.getType(cell)]--;
+          }
+          out.writeLong(count[WorldStore.GRASS]);
+          out.writeLong(count[WorldStore.SHEEP]);
+          out.writeLong(count[WorldStore.WOLF]);
+        } else {
+          throw new IOException("Unknown command " + command + " received by shard " + shard);
+        }
+        out.flush();
+
+        command = in.readByte();
+      }
+    }
+  }
+}
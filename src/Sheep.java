@@ -1,7 +1,7 @@
 /*
  * Sheep
  * This class defines what a Sheep is. It contains methods that deal with the change in sheep's position on the 
- * 2D Organism map array depending on what it is surrounded by. It also contains a sheepNutrionValue field that
+ * map depending on what it is surrounded by. It also contains a sheepNutrionValue field that
  * represents the health that a wolf will gain by eating the sheep
  */
 class Sheep extends Animal {
@@ -22,6 +22,16 @@ class Sheep extends Animal {
     return sheepNutritionValue;
   }
   
+  /*
+   * setNutrionnalValue
+   * This method sets the nutritional value of the sheep. Only meant to be used when a Sheep is created as a copy 
+   * of a position in the WorldStore, since the value is otherwise determined once upon instantiation
+   * @param sheepNutritionValue, the health a wolf will gain by eating the sheep
+   */
+  void setNutrionnalValue(int sheepNutritionValue) {
+    this.sheepNutritionValue = sheepNutritionValue;
+  }
+  
   /*
    * createBiasedPosition
    * This method will return the coordinates on mapPortion corresponding to a new position on the map if grass or 
@@ -31,75 +41,66 @@ class Sheep extends Animal {
    * is on the border and the wolf is next to the sheep, this method has no effect and it becomes possible that the 
    * sheep will suicide out of desperation
    * @param oldYPos and oldXPos, two integers that hold the y and x coordinates of a position on the mapPortion
-   * array (meant to be occupied by a Sheep, otherwise the method will print a message to console and its main
+   * window (meant to be occupied by a Sheep, otherwise the method will print a message to console and its main
    * contents will not execute)
-   * @param mapPortion, a 2D Organism array that is a copy of the map in a restricted area around the
-   * (oldXPos, oldYPos) coordinate
-   * @param notMovePos, an integer array containing the coordinates of the position on the map that should not
-   * be made equal to the coordinates returned by this method
-   * @return newPosition, an array holding the new coordinates
+   * @param mapPortion, a MapWindow over the map in a restricted area around the (oldXPos, oldYPos) coordinate. The
+   * position blocked on the window should not be made equal to the coordinates returned by this method
+   * @return newPosition, the integer array of the window holding the new coordinates
    */
-  public int[] createBiasedPosition(int oldYPos, int oldXPos, Organism[][] mapPortion, int[] notMovePos) {
-    if (mapPortion[oldYPos][oldXPos] != null && mapPortion[oldYPos][oldXPos] instanceof Sheep) { // attempt to force proper implementation
-      int[] newPosition = new int[2];
+  public static int[] createBiasedPosition(int oldYPos, int oldXPos, MapWindow mapPortion) {
+    if (mapPortion.getType(oldYPos, oldXPos) == WorldStore.SHEEP) { // attempt to force proper implementation
+      int[] newPosition = mapPortion.getNextPosition();
       newPosition[0] = oldYPos;
       newPosition[1] = oldXPos;
       
-      // avoids null checking
-      if (notMovePos == null) {
-        notMovePos = new int[2];
-        notMovePos[0] = -1;
-        notMovePos[1] = -1;
-      }
-      
-      if (oldYPos + 1 < mapPortion.length && ((oldYPos + 1 != notMovePos[0]) || (oldXPos != notMovePos[1])) 
-            && (mapPortion[oldYPos + 1][oldXPos] != null)) { 
+      if (oldYPos + 1 < mapPortion.getLenY() && !mapPortion.isBlocked(oldYPos + 1, oldXPos) 
+            && (mapPortion.getType(oldYPos + 1, oldXPos) != WorldStore.EMPTY)) { 
         
         // check position below of (oldXPos, oldYPos)
-        if (mapPortion[oldYPos + 1][oldXPos] instanceof Wolf && (oldYPos - 1 >= 0)) {
+        if (mapPortion.getType(oldYPos + 1, oldXPos) == WorldStore.WOLF && (oldYPos - 1 >= 0)) {
           newPosition[0] -= 1;
           return newPosition;
-        } else if (mapPortion[oldYPos + 1][oldXPos] instanceof Grass) {
+        } else if (mapPortion.getType(oldYPos + 1, oldXPos) == WorldStore.GRASS) {
           newPosition[0] += 1;
           return newPosition;
         }
-      } else if ((oldYPos - 1 >= 0) && ((oldYPos - 1 != notMovePos[0]) || (oldXPos != notMovePos[1])) 
-                   && (mapPortion[oldYPos - 1][oldXPos] != null)) {
+      } else if ((oldYPos - 1 >= 0) && !mapPortion.isBlocked(oldYPos - 1, oldXPos) 
+                   && (mapPortion.getType(oldYPos - 1, oldXPos) != WorldStore.EMPTY)) {
         
         // check position above of (oldXPos, oldYPos)
-        if (mapPortion[oldYPos - 1][oldXPos] instanceof Wolf && (oldYPos + 1 < mapPortion.length)) {
+        if (mapPortion.getType(oldYPos - 1, oldXPos) == WorldStore.WOLF && (oldYPos + 1 < mapPortion.getLenY())) {
           newPosition[0] += 1;
           return newPosition;
-        } else if (mapPortion[oldYPos - 1][oldXPos] instanceof Grass) {
+        } else if (mapPortion.getType(oldYPos - 1, oldXPos) == WorldStore.GRASS) {
           newPosition[0] -= 1;
           return newPosition;
         } 
-      } else if ((oldXPos + 1 < mapPortion[0].length) && ((oldYPos != notMovePos[0]) || (oldXPos + 1 != notMovePos[1])) 
-                   && (mapPortion[oldYPos][oldXPos + 1] != null)) {
+      } else if ((oldXPos + 1 < mapPortion.getLenX()) && !mapPortion.isBlocked(oldYPos, oldXPos + 1) 
+                   && (mapPortion.getType(oldYPos, oldXPos + 1) != WorldStore.EMPTY)) {
         
         // check the position to the right of (oldXPos, oldYPos)
-        if (mapPortion[oldYPos][oldXPos + 1] instanceof Wolf && (oldXPos - 1 >= 0)) {
+        if (mapPortion.getType(oldYPos, oldXPos + 1) == WorldStore.WOLF && (oldXPos - 1 >= 0)) {
           newPosition[1] -= 1;
           return newPosition;
-        } else if (mapPortion[oldYPos][oldXPos + 1] instanceof Grass) {
+        } else if (mapPortion.getType(oldYPos, oldXPos + 1) == WorldStore.GRASS) {
           newPosition[1] += 1;
           return newPosition;
         }
-      } else if ((oldXPos - 1 >= 0) && ((oldYPos != notMovePos[0]) || (oldXPos - 1 != notMovePos[1])) 
-                   && (mapPortion[oldYPos][oldXPos - 1] != null)) {
+      } else if ((oldXPos - 1 >= 0) && !mapPortion.isBlocked(oldYPos, oldXPos - 1) 
+                   && (mapPortion.getType(oldYPos, oldXPos - 1) != WorldStore.EMPTY)) {
         
         // check the position to the left of (oldXPos, oldYPos)
-        if (mapPortion[oldYPos][oldXPos - 1] instanceof Wolf && (oldXPos + 1 < mapPortion[0].length)) {
+        if (mapPortion.getType(oldYPos, oldXPos - 1) == WorldStore.WOLF && (oldXPos + 1 < mapPortion.getLenX())) {
           newPosition[1] += 1;
           return newPosition;
-        } else if (mapPortion[oldYPos][oldXPos - 1] instanceof Grass) {
+        } else if (mapPortion.getType(oldYPos, oldXPos - 1) == WorldStore.GRASS) {
           newPosition[1] -= 1;
           return newPosition;
         }
       }
     } else {
       System.out.println("Invalid arguments passed into method createBiasedPosition(int oldYPos, int oldXPos, " + 
-                          "Organism[][] mapPortion, int[] notMovePos). The oldYPos and oldXPos must represent a "
+                          "MapWindow mapPortion). The oldYPos and oldXPos must represent a "
                            + "coordinate on the map (3rd argument) that is occupied by a Sheep.");
     }   
     
@@ -108,51 +109,55 @@ class Sheep extends Animal {
   
   /*
    * movement
-   * This method updates the 2D Organism array, map, simulating a Sheep at the map spot with coordinates
+   * This method updates the map through the window, simulating a Sheep at the window spot with coordinates
    * specified by the parameters moving. Methods from the Animal class are called, many in order to update health and 
    * selection upon collision, when an organism is "eaten". 
-   * @param oldYPos and oldXPos, two integers that hold the y and x coordinates of a position on the mapPortion
-   * array (meant to be occupied by a Sheep, otherwise the method will print a message to console and its main
+   * @param oldYPos and oldXPos, two integers that hold the y and x coordinates of a position on the window
+   * (meant to be occupied by a Sheep, otherwise the method will print a message to console and its main
    * contents will not execute)
-   * @param map, a 2D Organism array representing the relevant portion of the map that will be changed
-   * @return map, the updated map after movement is complete
+   * @param map, a MapWindow over the relevant portion of the map that will be changed
    */
-  @Override
-  public Organism[][] movement(int oldYPos, int oldXPos, int[] newPosition, Organism[][] map) {
-    if (map[oldYPos][oldXPos] != null && map[oldYPos][oldXPos] instanceof Sheep) { // attempt to force proper implementation
-      if (!((Animal) map[oldYPos][oldXPos]).hasMoved()) {
-        Organism organismCollided = map[newPosition[0]][newPosition[1]]; // for clarity
+  public static void movement(int oldYPos, int oldXPos, int[] newPosition, MapWindow map) {
+    WorldStore world = map.getWorld();
+    int oldCell = map.cell(oldYPos, oldXPos);
+    if (world.getType(oldCell) == WorldStore.SHEEP) { // attempt to force proper implementation
+      if (!world.hasMoved(oldCell)) {
+        int cellCollided = map.cell(newPosition[0], newPosition[1]); // for clarity
+        byte typeCollided = world.getType(cellCollided);
         
-        ((Animal) map[oldYPos][oldXPos]).setHasMoved(true);
+        world.setHasMoved(oldCell, true);
         
-        if (organismCollided == null || organismCollided instanceof Grass) {
-          if (organismCollided instanceof Grass && organismCollided.getIsSelected()) {
-            switchSelection(organismCollided);
+        if (typeCollided == WorldStore.EMPTY || typeCollided == WorldStore.GRASS) {
+          if (typeCollided == WorldStore.GRASS && world.getIsSelected(cellCollided)) {
+            switchSelection(world, oldCell, cellCollided);
           }
+          float grassHealth = (typeCollided == WorldStore.GRASS) ? world.eatGrass(cellCollided) : 0;
           
           simpleMovement(map, newPosition, oldYPos, oldXPos);
           
-          if (organismCollided instanceof Grass) {
-            changeHealth(organismCollided.getHealth());
+          if (typeCollided == WorldStore.GRASS) {
+            changeHealth(world, cellCollided, grassHealth);
           }
           
-          ((Animal) map[newPosition[0]][newPosition[1]]).changeHealth(-1); // enery required to move
+          changeHealth(world, cellCollided, -1); // enery required to move
           
-        } else if (organismCollided instanceof Wolf) {
-          if (getIsSelected()) {
-            organismCollided.setSelected(true);
+          world.recordEvent((typeCollided == WorldStore.GRASS) ? EventLog.GRAZE : EventLog.MOVE, oldCell,
+                            cellCollided);
+        } else if (typeCollided == WorldStore.WOLF) {
+          if (world.getIsSelected(oldCell)) {
+            world.setSelected(cellCollided, true);
           }
-          ((Animal) organismCollided).changeHealth(20);
-          map[oldYPos][oldXPos] = null;
+          changeHealth(world, cellCollided, 20);
+          world.clear(oldCell);
+          
+          world.recordEvent(EventLog.EATEN, oldCell, cellCollided);
         } // if organismCollided is a sheep, nothing happens---breeding changes are taken care of by OrganismManager
       }
     } else {
-      System.out.println("Invalid arguments passed into method movement(int oldYPos, int oldXPos, Organism[][] map). " +
+      System.out.println("Invalid arguments passed into method movement(int oldYPos, int oldXPos, MapWindow map). " +
                          "The oldYPos and oldXPos must represent a coordinate on the map (3rd argument) " + 
                          "that is occupied by a Sheep.");
     }                     
-    
-    return map;
   }
   
 }
\ No newline at end of file
@@ -0,0 +1,91 @@
+/*
+ * StatsRing
+ * A ring buffer of fixed-size records of long values, allocated once, through which a single thread hands records to
+ * a single other thread. Neither thread ever waits for the other: when the ring is full, offer drops the record and 
+ * counts it, so the thread producing records never blocks, and drain returns whatever records are there. The producer
+ * only writes tail and the consumer only writes head, each after the slots it filled or emptied, so no lock is needed.
+ */
+class StatsRing {
+  private final long[] slots;
+  private final int width; // number of values of a record
+  private final int mask; // number of records the ring holds, minus one
+  private volatile long head; // number of records taken by the consumer
+  private volatile long tail; // number of records offered by the producer
+  private long cachedHead; // value of head last read by the producer
+  private long dropped;
+
+  /*
+   * Creates an empty ring
+   * @param capacity, the number of records the ring holds, rounded up to a power of two
+   * @param width, the number of values of a record
+   */
+  StatsRing(int capacity, int width) {
+    int size = Integer.highestOneBit(Math.max(capacity - 1, 1)) << 1;
+    this.slots = new long[size * width];
+    this.width = width;
+    this.mask = size - 1;
+    this.head = 0;
+    this.tail = 0;
+    this.cachedHead = 0;
+    this.dropped = 0;
+  }
+
+  public int getWidth() {
+    return width;
+  }
+
+  /*
+   * offer
+   * This method adds a record to the ring, from the producer thread
+   * @param record, a long array holding the width values of the record, copied into the ring
+   * @return true if the record was added, false if the ring was full and the record was dropped
+   */
+  public boolean offer(long[] record) {
+    long position = tail;
+    if (position - cachedHead > mask) {
+      cachedHead = head;
+      if (position - cachedHead > mask) {
+        dropped++;
+        return false;
+      }
+    }
+    System.arraycopy(record, 0, slots, (int) (position & mask) * width, width);
+    tail = position + 1; // publishes the record
+    return true;
+  }
+
+  /*
+   * drain
+   * This method moves the oldest records of the ring to an array, from the consumer thread
+   * @param records, a long array receiving the records one after the other
+   * @return numRecords, the number of records moved, at most records.length / width
+   */
+  public int drain(long[] records) {
+    long position = head;
+    int numRecords = (int) Math.min(tail - position, records.length / width);
+    for (int k = 0; k < numRecords; k++) {
+      System.arraycopy(slots, (int) ((position + k) & mask) * width, records, k * width, width);
+    }
+    head = position + numRecords; // frees the slots
+    return numRecords;
+  }
+
+  /*
+   * isEmpty
+   * This method determines if every record offered has been drained
+   * @return true if the ring holds no record
+   */
+  public boolean isEmpty() {
+    return head == tail;
+  }
+
+  /*
+   * getDropped
+   * This method returns the number of records dropped because the ring was full. Only meant to be read from the
+   * producer thread
+   * @return dropped, a long holding the number of records
+   */
+  public long getDropped() {
+    return dropped;
+  }
+}
@@ -1,84 +1,261 @@
-
-import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.locks.LockSupport;
 
+/*
+ * StatsWriter
+ * Writes the populations of grass, sheep and wolves after each turn to a CSV file, without slowing down the
+ * simulation. The thread running the simulation only copies a record of the turn into a StatsRing allocated once,
+ * and a background thread takes the records from the ring, formats them into a buffer and writes the buffer to the
+ * file through a FileChannel once it is full, or once flushMillis milliseconds have passed since it was last written.
+ * Records are dropped rather than waited for if the ring ever fills up. The file is closed by exit, which writes every
+ * record still waiting, or when the program exits if exit was never called.
+ * A StatsWriter can write the records to the binary files of a SeriesWriter instead, with the turn as first column,
+ * followed by the populations and by any extra metric given to writeOut. The writer thread then hands a block of
+ * records to the SeriesWriter every flushMillis milliseconds, so a long interval keeps the blocks large.
+ */
 public class StatsWriter {
-	private final int LIMIT = 800;
-	private final String FILENAME = "populations.csv";
-	
-	private FileWriter writer = null;
+	public static final String DEFAULT_FILENAME = "populations.csv";
+	public static final long DEFAULT_FLUSH_MILLIS = 1000;
+	public static final String DEFAULT_SERIES_PREFIX = "populations";
+	public static final long DEFAULT_FILE_BYTES = 64 << 20;
+	public static final String[] SERIES_COLUMNS = {"turn", "grass", "sheep", "wolves"};
+
+	private static final int RING_CAPACITY = 4096;
+	private static final int BATCH_RECORDS = 256;
+	private static final int BUFFER_BYTES = 1 << 16;
+	private static final long IDLE_NANOS = 1000000; // time the writer thread waits when the ring is empty
+
+	// layout of a record
+	private static final int TURN = 0;
+	private static final int GRASS = 1;
+	private static final int SHEEP = 2;
+	private static final int WOLVES = 3;
+	private static final int RECORD_WIDTH = 4; // values of a record before the extra metrics
+
+	private StatsRing ring;
+	private long[] record; // reused by the simulation thread to build each record
 	private int numIterations = 0;
-	private boolean active = true;
-	
+	private long flushNanos;
+	private FileChannel channel;
+	private SeriesWriter series; // null when writing a CSV file
+	private Thread writerThread;
+	private Thread shutdownHook;
+	private volatile boolean active = true;
+
 	public StatsWriter() {
+		this(DEFAULT_FILENAME, DEFAULT_FLUSH_MILLIS);
+	}
+
+	/*
+	 * Creates the file, writing its header, and starts the writer thread
+	 * @param fileName, the path of the CSV file, replaced if it exists
+	 * @param flushMillis, the longest time in milliseconds a record waits in the buffer before being written to the file
+	 */
+	public StatsWriter(String fileName, long flushMillis) {
+		this.ring = new StatsRing(RING_CAPACITY, RECORD_WIDTH);
+		this.record = new long[RECORD_WIDTH];
+		this.flushNanos = flushMillis * 1000000;
 		try {
-			writer = new FileWriter(FILENAME, false);
-			writer.append("Grass");
-			writer.append(",");
-			writer.append("Sheep");
-			writer.append(",");
-			writer.append("Wolf");
-			writer.append("\n");
-			writer.flush();
-			writer.close();
-
-			writer = new FileWriter(FILENAME, true);
+			channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+			                           StandardOpenOption.TRUNCATE_EXISTING);
+			channel.write(ByteBuffer.wrap("Grass,Sheep,Wolf\n".getBytes()));
 		} catch (IOException e) {
 			e.printStackTrace();
+			channel = null;
 		}
-}
+		start();
+	}
 
-	public void exit() {
+	/*
+	 * Creates the first binary file of a SeriesWriter and starts the writer thread
+	 * @param prefix, the path of the files without their number and extension
+	 * @param extraColumns, a String array holding the names of the metrics written after the populations
+	 * @param maxFileBytes, the size from which the records go to a new file
+	 * @param flushMillis, the longest time in milliseconds a record waits before being written to the file
+	 */
+	public StatsWriter(String prefix, String[] extraColumns, long maxFileBytes, long flushMillis) {
+		String[] columns = Arrays.copyOf(SERIES_COLUMNS, RECORD_WIDTH + extraColumns.length);
+		System.arraycopy(extraColumns, 0, columns, RECORD_WIDTH, extraColumns.length);
+		this.ring = new StatsRing(RING_CAPACITY, columns.length);
+		this.record = new long[columns.length];
+		this.flushNanos = flushMillis * 1000000;
 		try {
-			writer.flush();
-			writer.close();
+			series = new SeriesWriter(prefix, columns, maxFileBytes);
 		} catch (IOException e) {
 			e.printStackTrace();
+			series = null;
 		}
+		start();
+	}
+
+	/*
+	 * start
+	 * This method starts the writer thread, and makes sure the file is closed when the program exits
+	 */
+	private void start() {
+		writerThread = new Thread(this::writeRecords, "StatsWriter");
+		writerThread.setDaemon(true); // never keeps the program running, the shutdown hook writes what is left
+		writerThread.start();
+		shutdownHook = new Thread(this::exit);
+		Runtime.getRuntime().addShutdownHook(shutdownHook);
+	}
+
+	/*
+	 * exit
+	 * This method stops the writer thread once it has written every record offered so far, and closes the file.
+	 * Records offered afterwards are ignored
+	 */
+	public synchronized void exit() {
+		if (!active) {
+			return;
+		}
+		active = false;
+		LockSupport.unpark(writerThread);
+		try {
+			writerThread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		try {
+			Runtime.getRuntime().removeShutdownHook(shutdownHook);
+		} catch (IllegalStateException e) {
+			; // exit is being called by the shutdown hook itself
+		}
+	}
+
+	/*
+	 * getDropped
+	 * This method returns the number of records dropped because the writer thread fell behind
+	 * @return a long holding the number of records
+	 */
+	public long getDropped() {
+		return ring.getDropped();
+	}
+
+	public void writeOut(WorldStore w) {
+		writeOut(w.getTurn(), w.getPopulation(WorldStore.GRASS), w.getPopulation(WorldStore.SHEEP),
+		         w.getPopulation(WorldStore.WOLF));
 	}
-	
-	public void writeOut(Organism[][] w) {
-		/*
-		if (numIterations > LIMIT) {
-			if (active) {
-				try {
-					writer.flush();
-					writer.close();
-				} catch (IOException e) {
-					e.printStackTrace();
-				}
-				active = false;
-			} 
 
+	/*
+	 * writeOut
+	 * This method hands the populations after a turn to the writer thread with the values of the extra metrics, which
+	 * are only kept in binary files
+	 * @param w, the WorldStore of the map
+	 * @param extra, a long array holding a value per extra column, copied
+	 */
+	public void writeOut(WorldStore w, long[] extra) {
+		System.arraycopy(extra, 0, record, RECORD_WIDTH, Math.min(extra.length, record.length - RECORD_WIDTH));
+		writeOut(w);
+	}
+
+	public void writeOut(long countGrass, long countSheep, long countWolf) {
+		writeOut(numIterations, countGrass, countSheep, countWolf);
+	}
+
+	/*
+	 * writeOut
+	 * This method hands the populations after a turn to the writer thread, without waiting for it
+	 * @param turn, the number of the turn
+	 * @param countGrass, countSheep and countWolf, the populations
+	 */
+	private void writeOut(long turn, long countGrass, long countSheep, long countWolf) {
+		if (!active) {
 			return;
-		}*/
-		
+		}
 		numIterations++;
-		int countGrass = 0;
-		int countSheep = 0;
-		int countWolf = 0;
-		for (int i = 0; i < w.length; i++) {
-			for (int j = 0; j < w[0].length; j++) {
-				if (w[i][j] instanceof Grass) {
-					countGrass++;
-				} else if (w[i][j] instanceof Sheep) {
-					countSheep++;
-				} else if (w[i][j] instanceof Wolf) {
-					countWolf++;
+		record[TURN] = turn;
+		record[GRASS] = countGrass;
+		record[SHEEP] = countSheep;
+		record[WOLVES] = countWolf;
+		ring.offer(record);
+	}
+
+	/*
+	 * writeRecords
+	 * This method is run by the writer thread. It formats the records of the ring into a buffer until exit is called
+	 * and the ring is empty, writing the buffer whenever it is nearly full or flushNanos have passed, and then closes
+	 * the file. In binary mode, the records are appended to the SeriesWriter instead, which is flushed as often. If the
+	 * file cannot be written, the records are still taken from the ring but thrown away
+	 */
+	private void writeRecords() {
+		int width = ring.getWidth();
+		long[] batch = new long[BATCH_RECORDS * width];
+		ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES);
+		StringBuilder line = new StringBuilder();
+		long lastFlush = System.nanoTime();
+
+		while (active || !ring.isEmpty()) {
+			int numRecords = ring.drain(batch);
+			for (int k = 0; k < numRecords; k++) {
+				if (series != null) {
+					try {
+						series.append(batch, k * width);
+					} catch (IOException e) {
+						e.printStackTrace();
+						series = null;
+					}
+					continue;
+				}
+				line.setLength(0);
+				line.append((double) batch[k * width + GRASS]).append(',');
+				line.append((double) batch[k * width + SHEEP]).append(',');
+				line.append((double) batch[k * width + WOLVES]).append('\n');
+				if (buffer.remaining() < line.length()) {
+					flush(buffer);
 				}
+				for (int i = 0; i < line.length(); i++) {
+					buffer.put((byte) line.charAt(i));
+				}
+			}
+
+			if (System.nanoTime() - lastFlush >= flushNanos) {
+				flush(buffer);
+				lastFlush = System.nanoTime();
 			}
+			if ((numRecords == 0) && active) {
+				LockSupport.parkNanos(IDLE_NANOS);
+			}
+		}
+
+		flush(buffer);
+		try {
+			if (channel != null) {
+				channel.close();
+			}
+			if (series != null) {
+				series.close();
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
 		}
-		
-		double area = w.length * w[0].length;
+	}
+
+	/*
+	 * flush
+	 * This method writes the content of the buffer to the file and empties the buffer, or in binary mode writes the
+	 * records appended since the last block as a block
+	 * @param buffer, the ByteBuffer holding formatted records
+	 */
+	private void flush(ByteBuffer buffer) {
+		buffer.flip();
 		try {
-		    writer.append(Double.toString(countGrass));
-			writer.append(",");
-			writer.append(Double.toString(countSheep));
-			writer.append(",");
-			writer.append(Double.toString(countWolf));
-			writer.append("\n");
+			while ((channel != null) && buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			if (series != null) {
+				series.flush();
+			}
 		} catch (IOException e) {
 			e.printStackTrace();
+			channel = null;
+			series = null;
 		}
+		buffer.clear();
 	}
 }
@@ -175,7 +175,7 @@ public class UserInterface {
     
     // initialize the object environment which manages the overall program, and the display object, display 
     OrganismManager environment = new OrganismManager(ySize, xSize, grassValue, healthSheep, healthWolves, numOrganismsInitial);
-    DisplayEcosim display = new DisplayEcosim(environment.getMap());
+    DisplayEcosim display = new DisplayEcosim(environment.getWorld());
     StatsWriter populationWriter = new StatsWriter();
     
     // the simulation itself
@@ -183,7 +183,7 @@ public class UserInterface {
     while (environment.continueSimulation()) {
       display.refresh();
       
-      populationWriter.writeOut(environment.getMap());
+      populationWriter.writeOut(environment.getWorld());
       environment.movementCycle();
       
       // small delay
@@ -196,6 +196,7 @@ public class UserInterface {
     
     System.out.println("\nOne of the organisms has ceased to exist. Goodbye.");
     
+    populationWriter.exit();
     display.exit();
     input.close();
   }
@@ -1,7 +1,7 @@
 /*
  * Wolf
  * This class presents the framework for a Wolf. It contains a single method that deals with the change in the
- * wolf's position on the 2D Organism map array depending on what it is surrounded by.
+ * wolf's position on the map depending on what it is surrounded by.
  */
 
 class Wolf extends Animal {
@@ -12,56 +12,61 @@ class Wolf extends Animal {
   
   /*
    * movement
-   * This method updates the 2D Organism array, map, simulating a Wolf at the map spot with coordinates
+   * This method updates the map through the window, simulating a Wolf at the window spot with coordinates
    * specified by the parameters moving. Methods from the Animal class are called, many in order to update health and 
    * selection upon collision, when an organism is "eaten". A wolf will not eat a sheep if the wolf's 
-   * @param oldYPos and oldXPos, two integers that hold the y and x coordinates of a position on the mapPortion
-   * array (meant to be occupied by a Wolf, otherwise the method will print a message to console and its main
+   * @param oldYPos and oldXPos, two integers that hold the y and x coordinates of a position on the window
+   * (meant to be occupied by a Wolf, otherwise the method will print a message to console and its main
    * contents will not execute)
-   * @param map, a 2D Organism array representing the relevant portion of the map that will be changed
-   * @return map, the updated map after movement is complete
+   * @param map, a MapWindow over the relevant portion of the map that will be changed
    */
-  @Override
-  public Organism[][] movement(int oldYPos, int oldXPos, int[] newPosition, Organism[][] map) {
-    if (map[oldYPos][oldXPos] != null && map[oldYPos][oldXPos] instanceof Wolf) { // attempt to force proper implementation
-      if (!((Animal) map[oldYPos][oldXPos]).hasMoved()) {
-        Organism organismCollided = map[newPosition[0]][newPosition[1]]; // for clarity
+  public static void movement(int oldYPos, int oldXPos, int[] newPosition, MapWindow map) {
+    WorldStore world = map.getWorld();
+    int oldCell = map.cell(oldYPos, oldXPos);
+    if (world.getType(oldCell) == WorldStore.WOLF) { // attempt to force proper implementation
+      if (!world.hasMoved(oldCell)) {
+        int cellCollided = map.cell(newPosition[0], newPosition[1]); // for clarity
+        byte typeCollided = world.getType(cellCollided);
         
-        ((Animal) map[oldYPos][oldXPos]).setHasMoved(true);
+        world.setHasMoved(oldCell, true);
+        byte event = EventLog.BUMP; // what is recorded if the wolf neither moves nor fights
         
-        if (organismCollided instanceof Grass || organismCollided == null) {
-          if (organismCollided instanceof Grass && organismCollided.getIsSelected()) {
-            switchSelection(organismCollided);
+        if (typeCollided == WorldStore.GRASS || typeCollided == WorldStore.EMPTY) {
+          if (typeCollided == WorldStore.GRASS && world.getIsSelected(cellCollided)) {
+            switchSelection(world, oldCell, cellCollided);
           }
           
           simpleMovement(map, newPosition, oldYPos, oldXPos);
-        } else if (organismCollided instanceof Sheep && map[oldYPos][oldXPos].getHealth() < HEALTH_WHEN_FULL) {
-          if (organismCollided.getIsSelected()) {
-            switchSelection(organismCollided);
+          event = EventLog.MOVE;
+        } else if (typeCollided == WorldStore.SHEEP && world.getHealth(oldCell) < HEALTH_WHEN_FULL) {
+          if (world.getIsSelected(cellCollided)) {
+            switchSelection(world, oldCell, cellCollided);
           }
           
-          ((Animal) map[oldYPos][oldXPos]).changeHealth(((Sheep) organismCollided).getNutrionnalValue());
+          changeHealth(world, oldCell, world.getNutritionalValue(cellCollided));
           
           simpleMovement(map, newPosition, oldYPos, oldXPos);
-        } else if ((organismCollided instanceof Wolf) 
-                     && !((Wolf) organismCollided).getIsFemale() == ((Animal) map[oldYPos][oldXPos]).getIsFemale()
-                     && ((newPosition[0] != oldYPos) || (newPosition[1] != oldXPos))) { // fighting
-          if (((Animal) map[oldYPos][oldXPos]).compareTo(organismCollided) <= 0) {
-            ((Animal) map[oldYPos][oldXPos]).changeHealth(-10);
+          event = EventLog.PREDATION;
+        } else if ((typeCollided == WorldStore.WOLF) 
+                     && !world.getIsFemale(cellCollided) == world.getIsFemale(oldCell)
+                     && (cellCollided != oldCell)) { // fighting
+          if (compareHealth(world, oldCell, cellCollided) <= 0) {
+            changeHealth(world, oldCell, -10);
           } else {
-            ((Animal) map[newPosition[0]][newPosition[1]]).changeHealth(-10);
+            changeHealth(world, cellCollided, -10);
           }
+          event = EventLog.FIGHT;
         }
         
-        ((Animal) map[newPosition[0]][newPosition[1]]).changeHealth(-1); // energy required to move
+        changeHealth(world, cellCollided, -1); // energy required to move
+        
+        world.recordEvent(event, (event == EventLog.BUMP) ? cellCollided : oldCell, cellCollided);
       }
     } else {
-      System.out.println("Invalid argument passed into method movement(int oldYPos, int oldXPos, Organism[][] map). " +
+      System.out.println("Invalid argument passed into method movement(int oldYPos, int oldXPos, MapWindow map). " +
                          "The oldYPos and oldXPos must be represent a coordinate on the map array that is occupied by " + 
                          "a Wolf.");
     }
-    
-    return map;
   }
   
 }
\ No newline at end of file
@@ -0,0 +1,444 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/*
+ * WorldGenerator
+ * Fills an empty map with its initial grass, sheep and wolves in parallel, instead of creating organisms one at a time.
+ * The rows organisms are created in are divided into square tiles. The number of organisms of each type is first split
+ * between the tiles, so the totals are exact, and each tile then chooses the positions of its own organisms in a
+ * single pass, with random numbers keyed by the tile, so the map is the same whatever the number of threads. Grass is
+ * laid out in one of three ways:
+ *   UNIFORM, every position is as likely to hold grass
+ *   CLUSTERED, grass gathers around cluster centres scattered at random, as in a Poisson cluster process
+ *   BANDED, grass is more likely in horizontal bands that repeat every BAND_PERIOD rows
+ * Sheep and wolves are spread uniformly over the positions left empty. As with OrganismCreator, every grass marks the
+ * positions around it as places where grass can spawn. Every organism is placed with the health organisms are
+ * created with, and OrganismCreator.generate then determines the health of each animal from the animals around it,
+ * as for a map read by a LayoutImporter.
+ */
+class WorldGenerator {
+  public static final int UNIFORM = 0;
+  public static final int CLUSTERED = 1;
+  public static final int BANDED = 2;
+
+  private static final int TILE_SIZE = 64;
+  private static final int TILES_PER_TASK = 8;
+  private static final int CLUSTER_SPACING = 32; // one cluster centre per CLUSTER_SPACING^2 positions on average
+  private static final int CLUSTER_RADIUS = 8; // a cluster centre raises the weight of positions within this distance
+  private static final int BAND_PERIOD = 48;
+  private static final float MIN_WEIGHT = 0.05f; // weight of positions far from any cluster centre or band
+
+  // each stage of the generation draws its random numbers with its own keys
+  private static final int CENTRES = 0;
+  private static final int GRASS = 1;
+  private static final int ANIMALS = 2;
+  private static final int SEXES = 3;
+  private static final int NUM_STAGES = 4;
+
+  private WorldStore world;
+  private int lenX;
+  private int minRow, maxRow;
+  private int grassHealth, sheepHealth, wolfHealth;
+  private int layout;
+  private int numTilesY, numTilesX;
+  private double[] tileWeights; // sum of the grass weights of the positions of each tile
+  private int[] numGrass, numSheep, numWolves; // number of organisms of each type in each tile
+  private int[][] tileAnimals; // positions of the animals placed in each tile
+
+  /*
+   * Creates a generator filling a band of rows of a map
+   * @param world, the WorldStore of the map, empty in the rows being filled
+   * @param minRow and maxRow, integers holding the first and last rows organisms are created in
+   * @param grassValue, healthSheep and healthWolves, the health of new organisms
+   */
+  WorldGenerator(WorldStore world, int minRow, int maxRow, int grassValue, int healthSheep, int healthWolves) {
+    this.world = world;
+    this.lenX = world.getLenX();
+    this.minRow = minRow;
+    this.maxRow = maxRow;
+    this.grassHealth = grassValue;
+    this.sheepHealth = healthSheep;
+    this.wolfHealth = healthWolves;
+    this.numTilesY = (maxRow - minRow + TILE_SIZE) / TILE_SIZE;
+    this.numTilesX = (lenX + TILE_SIZE - 1) / TILE_SIZE;
+  }
+
+  /*
+   * generate
+   * This method places the initial organisms, as many of each type as there is room for, using the threads of the
+   * common ForkJoinPool
+   * @param numOrganismsInitial, an integer array holding the number of grass, sheep and wolves, in that order
+   * @param grassLayout, one of the UNIFORM, CLUSTERED or BANDED constants
+   */
+  public void generate(int[] numOrganismsInitial, int grassLayout) {
+    this.layout = grassLayout;
+    int numTiles = numTilesY * numTilesX;
+    ForkJoinPool pool = ForkJoinPool.commonPool();
+
+    // the grass of each tile is proportional to the weights of its positions, the animals to its empty positions
+    tileWeights = new double[numTiles];
+    int[] capacity = new int[numTiles];
+    for (int tile = 0; tile < numTiles; tile++) {
+      capacity[tile] = tileHeight(tile) * tileWidth(tile);
+    }
+    pool.invoke(new GenerateRange(0, numTiles, false));
+    numGrass = splitCount(numOrganismsInitial[0], tileWeights, capacity);
+    numSheep = splitCount(numOrganismsInitial[1], emptyWeights(capacity), capacity);
+    numWolves = splitCount(numOrganismsInitial[2], emptyWeights(capacity), capacity);
+
+    tileAnimals = new int[numTiles][];
+    world.setConcurrent(true);
+    pool.invoke(new GenerateRange(0, numTiles, true));
+    world.setConcurrent(false);
+
+    AnimalRoster roster = world.getRoster();
+    for (int tile = 0; tile < numTiles; tile++) {
+      for (int k = 0; k < tileAnimals[tile].length; k++) {
+        roster.add(tileAnimals[tile][k]);
+      }
+    }
+    tileAnimals = null;
+  }
+
+  /*
+   * GenerateRange
+   * Finds the grass weights of a range of tiles or fills them with their organisms, splitting the range in two
+   * until it holds at most TILES_PER_TASK tiles
+   */
+  class GenerateRange extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+    private int start, end;
+    private boolean fill;
+
+    /*
+     * @param start and end, the first tile of the range and the tile after the last
+     * @param fill, true to place the organisms of the tiles, false to find their grass weights
+     */
+    GenerateRange(int start, int end, boolean fill) {
+      this.start = start;
+      this.end = end;
+      this.fill = fill;
+    }
+
+    @Override
+    protected void compute() {
+      if (end - start > TILES_PER_TASK) {
+        int middle = (start + end) / 2;
+        invokeAll(new GenerateRange(start, middle, fill), new GenerateRange(middle, end, fill));
+      } else {
+        float[] weights = new float[TILE_SIZE * TILE_SIZE];
+        long[] keys = new long[TILE_SIZE * TILE_SIZE];
+        int[] order = new int[TILE_SIZE * TILE_SIZE];
+        for (int tile = start; tile < end; tile++) {
+          if (fill) {
+            fillTile(tile, weights, keys, order);
+          } else {
+            tileWeights[tile] = findWeights(tile, weights);
+          }
+        }
+      }
+    }
+  }
+
+  /*
+   * fillTile
+   * This method places the grass, sheep and wolves of a tile. Grass positions are drawn without replacement with
+   * probabilities proportional to their weights, by keeping the positions with the smallest random keys -ln(u) / w,
+   * and animal positions are drawn uniformly among the positions left
+   * @param tile, the index of the tile, counting row by row
+   * @param weights, keys and order, buffers able to hold one value per position of a tile
+   */
+  private void fillTile(int tile, float[] weights, long[] keys, int[] order) {
+    int turn = world.getTurn();
+    RandomSource random = world.getRandom();
+    int area = tileHeight(tile) * tileWidth(tile);
+    int grass = numGrass[tile];
+
+    if (layout == UNIFORM) {
+      for (int l = 0; l < area; l++) {
+        order[l] = l;
+      }
+      shuffle(order, 0, grass, area, key(tile, GRASS));
+    } else {
+      findWeights(tile, weights);
+      for (int l = 0; l < area; l++) {
+        float key = (float) (-Math.log(nextDouble(key(tile, GRASS), l)) / weights[l]);
+        keys[l] = ((long) Float.floatToRawIntBits(key) << 32) | l; // positive floats sort like their bits
+      }
+      selectSmallest(keys, area, grass);
+      for (int l = 0; l < area; l++) {
+        order[l] = (int) keys[l];
+      }
+    }
+
+    int sheep = numSheep[tile];
+    int wolves = numWolves[tile];
+    shuffle(order, grass, grass + sheep + wolves, area, key(tile, ANIMALS));
+
+    for (int k = 0; k < grass; k++) {
+      int cell = cellOf(tile, order[k]);
+      world.place(cell, WorldStore.GRASS, grassHealth, false);
+      world.markSpawnableAround(cell, MapManager.LEN_RESTRICTED / 2); // as OrganismCreator.addSpawnLocations does
+    }
+    tileAnimals[tile] = new int[sheep + wolves];
+    for (int k = 0; k < sheep + wolves; k++) {
+      int cell = cellOf(tile, order[grass + k]);
+      boolean isFemale = random.nextBoolean(turn, key(tile, SEXES), k);
+      if (k < sheep) {
+        world.place(cell, WorldStore.SHEEP, sheepHealth, isFemale);
+      } else {
+        world.place(cell, WorldStore.WOLF, wolfHealth, isFemale);
+      }
+      tileAnimals[tile][k] = cell;
+    }
+  }
+
+  /*
+   * findWeights
+   * This method finds the grass weight of every position of a tile according to the layout
+   * @param tile, the index of the tile, counting row by row
+   * @param weights, a float array filled with the weight of each position of the tile, row by row
+   * @return the sum of the weights
+   */
+  private double findWeights(int tile, float[] weights) {
+    int height = tileHeight(tile);
+    int width = tileWidth(tile);
+    int minY = minRow + (tile / numTilesX) * TILE_SIZE;
+    int minX = (tile % numTilesX) * TILE_SIZE;
+
+    if (layout == UNIFORM) {
+      return (double) height * width;
+    }
+
+    for (int i = 0; i < height; i++) {
+      float rowWeight = MIN_WEIGHT;
+      if (layout == BANDED) {
+        double wave = 0.5 + 0.5 * Math.cos(2 * Math.PI * (minY + i) / BAND_PERIOD);
+        rowWeight += (float) ((1 - MIN_WEIGHT) * wave);
+      }
+      for (int j = 0; j < width; j++) {
+        weights[i * width + j] = rowWeight;
+      }
+    }
+
+    if (layout == CLUSTERED) { // the centres of this tile and of the tiles around it may reach it
+      int ty = tile / numTilesX;
+      int tx = tile % numTilesX;
+      int radiusSquared = CLUSTER_RADIUS * CLUSTER_RADIUS;
+      for (int u = Math.max(ty - 1, 0); u <= Math.min(ty + 1, numTilesY - 1); u++) {
+        for (int v = Math.max(tx - 1, 0); v <= Math.min(tx + 1, numTilesX - 1); v++) {
+          int[] centres = findCentres(u * numTilesX + v);
+          for (int c = 0; c < centres.length; c += 2) {
+            for (int i = Math.max(centres[c] - CLUSTER_RADIUS, minY);
+                 i <= Math.min(centres[c] + CLUSTER_RADIUS, minY + height - 1); i++) {
+              for (int j = Math.max(centres[c + 1] - CLUSTER_RADIUS, minX);
+                   j <= Math.min(centres[c + 1] + CLUSTER_RADIUS, minX + width - 1); j++) {
+                int distanceSquared = (i - centres[c]) * (i - centres[c]) + (j - centres[c + 1]) * (j - centres[c + 1]);
+                if (distanceSquared < radiusSquared) {
+                  float falloff = 1 - distanceSquared / (float) radiusSquared;
+                  weights[(i - minY) * width + (j - minX)] += falloff * falloff;
+                }
+              }
+            }
+          }
+        }
+      }
+    }
+
+    double sum = 0;
+    for (int l = 0; l < height * width; l++) {
+      sum += weights[l];
+    }
+    return sum;
+  }
+
+  /*
+   * findCentres
+   * This method finds the cluster centres of a tile, whose number follows a Poisson distribution with a mean of one
+   * centre per CLUSTER_SPACING^2 positions. The same centres are found every time for the same tile
+   * @param tile, the index of the tile, counting row by row
+   * @return centres, an integer array holding the y and x coordinates of each centre, one after the other
+   */
+  private int[] findCentres(int tile) {
+    int height = tileHeight(tile);
+    int width = tileWidth(tile);
+    int key = key(tile, CENTRES);
+    double limit = Math.exp(-(double) height * width / (CLUSTER_SPACING * CLUSTER_SPACING));
+
+    int numCentres = 0;
+    double product = nextDouble(key, -1);
+    while (product > limit) {
+      numCentres++;
+      product *= nextDouble(key, -1 - numCentres);
+    }
+
+    int[] centres = new int[2 * numCentres];
+    RandomSource random = world.getRandom();
+    for (int c = 0; c < numCentres; c++) {
+      centres[2 * c] = minRow + (tile / numTilesX) * TILE_SIZE + random.nextInt(world.getTurn(), key, 2 * c, height);
+      centres[2 * c + 1] = (tile % numTilesX) * TILE_SIZE + random.nextInt(world.getTurn(), key, 2 * c + 1, width);
+    }
+    return centres;
+  }
+
+  /*
+   * splitCount
+   * This method splits a number of organisms between the tiles in proportion to their weights, without giving a tile
+   * more organisms than it has room for. Tiles that are full pass their share on to the others
+   * @param total, the number of organisms
+   * @param weights, a double array holding the weight of each tile
+   * @param capacity, an integer array holding the room left in each tile, reduced by the organisms given to it
+   * @return counts, an integer array holding the number of organisms given to each tile
+   */
+  private static int[] splitCount(int total, double[] weights, int[] capacity) {
+    int[] counts = new int[weights.length];
+    long room = 0;
+    for (int tile = 0; tile < weights.length; tile++) {
+      room += capacity[tile];
+    }
+    long remaining = Math.min(total, room);
+
+    boolean byRoom = false; // used once no tile with room left has any weight
+    while (remaining > 0) {
+      double sumWeights = 0;
+      for (int tile = 0; tile < weights.length; tile++) {
+        if (counts[tile] < capacity[tile]) {
+          sumWeights += byRoom ? capacity[tile] - counts[tile] : weights[tile];
+        }
+      }
+      if (sumWeights <= 0) {
+        byRoom = true;
+        continue;
+      }
+
+      // the shares are rounded from a running sum, so they always add up to the number being split
+      long target = remaining;
+      double cumulative = 0;
+      long given = 0;
+      for (int tile = 0; tile < weights.length; tile++) {
+        if (counts[tile] < capacity[tile]) {
+          cumulative += byRoom ? capacity[tile] - counts[tile] : weights[tile];
+          long upTo = Math.round(target * (cumulative / sumWeights));
+          int share = (int) Math.min(upTo - given, capacity[tile] - counts[tile]);
+          given = upTo;
+          counts[tile] += share;
+          remaining -= share;
+        }
+      }
+    }
+
+    for (int tile = 0; tile < weights.length; tile++) {
+      capacity[tile] -= counts[tile];
+    }
+    return counts;
+  }
+
+  /*
+   * emptyWeights
+   * This method turns the room left in each tile into weights, so animals are spread uniformly over empty positions
+   * @param capacity, an integer array holding the room left in each tile
+   * @return weights, a double array holding the room left in each tile
+   */
+  private static double[] emptyWeights(int[] capacity) {
+    double[] weights = new double[capacity.length];
+    for (int tile = 0; tile < capacity.length; tile++) {
+      weights[tile] = capacity[tile];
+    }
+    return weights;
+  }
+
+  /*
+   * shuffle
+   * This method moves a uniformly random selection of the values from start to size - 1 of an array to the positions
+   * from start to end - 1, in random order, with a partial Fisher-Yates shuffle
+   * @param order, the integer array being shuffled
+   * @param start, end and size, integers such that start <= end <= size
+   * @param key, the key of the random numbers drawn
+   */
+  private void shuffle(int[] order, int start, int end, int size, int key) {
+    RandomSource random = world.getRandom();
+    for (int k = start; k < end; k++) {
+      int swap = k + random.nextInt(world.getTurn(), key, k, size - k);
+      int value = order[k];
+      order[k] = order[swap];
+      order[swap] = value;
+    }
+  }
+
+  /*
+   * selectSmallest
+   * This method rearranges an array so that its count smallest values come first, in any order, with quickselect
+   * @param values, the long array being rearranged
+   * @param size, the number of values of the array used
+   * @param count, an integer between 0 and size
+   */
+  private static void selectSmallest(long[] values, int size, int count) {
+    int low = 0;
+    int high = size - 1;
+    while ((count > low) && (count <= high)) {
+      long pivot = values[(low + high) >>> 1];
+      int i = low;
+      int j = high;
+      while (i <= j) {
+        while (values[i] < pivot) {
+          i++;
+        }
+        while (values[j] > pivot) {
+          j--;
+        }
+        if (i <= j) {
+          long value = values[i];
+          values[i] = values[j];
+          values[j] = value;
+          i++;
+          j--;
+        }
+      }
+      // values[low..j] <= pivot <= values[i..high], and everything in between equals the pivot
+      if (count <= j) {
+        high = j;
+      } else if (count >= i) {
+        low = i;
+      } else {
+        return;
+      }
+    }
+  }
+
+  /*
+   * nextDouble
+   * This method draws a random number strictly between 0 and 1 during the current turn
+   * @param key and counter, the key and counter of the number, as for RandomSource
+   * @return a double between 0 and 1, both excluded
+   */
+  private double nextDouble(int key, int counter) {
+    return (world.getRandom().nextInt(world.getTurn(), key, counter, 1 << 30) + 0.5) / (1 << 30);
+  }
+
+  private int key(int tile, int stage) {
+    return tile * NUM_STAGES + stage;
+  }
+
+  private int tileHeight(int tile) {
+    int minY = minRow + (tile / numTilesX) * TILE_SIZE;
+    return Math.min(minY + TILE_SIZE, maxRow + 1) - minY;
+  }
+
+  private int tileWidth(int tile) {
+    int minX = (tile % numTilesX) * TILE_SIZE;
+    return Math.min(minX + TILE_SIZE, lenX) - minX;
+  }
+
+  /*
+   * cellOf
+   * This method converts a position of a tile, counted row by row within the tile, to its index in the WorldStore
+   * @param tile, the index of the tile, counting row by row
+   * @param local, the index of the position within the tile
+   * @return the index of the position in the WorldStore
+   */
+  private int cellOf(int tile, int local) {
+    int width = tileWidth(tile);
+    return world.index(minRow + (tile / numTilesX) * TILE_SIZE + local / width, (tile % numTilesX) * TILE_SIZE
+                         + local % width);
+  }
+}
@@ -0,0 +1,725 @@
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * WorldStore
+ * Stores the state of every position on the map in parallel primitive arrays rather than in a 2D array of Organism
+ * objects. A position is identified by a single index, y * lenX + x, so a full scan of the map walks each array from
+ * start to end. The type of the organism, its flags (female, selected) and, for animals, the turn in which it last
+ * moved share one byte, followed by its health, the turn in which it was placed and, for sheep, its nutritional value:
+ * 11 bytes per position in total. The store also keeps an AnimalRoster of the positions holding animals and the 
+ * RandomSource every random decision of the simulation is drawn from. Every time the type at a position changes, 
+ * the position is moved between the CellIndex sets of empty positions and of positions holding grass, so positions 
+ * of either kind can be counted and chosen at random without scanning the map. In the same way, the store keeps the
+ * set of empty positions where grass can spawn, which are the empty positions marked with markSpawnable, and the 
+ * number of positions of each type, so populations are known without scanning the map. Animals can also be counted 
+ * in square blocks of the map by a DensityGrid, which the store keeps up to date. While several threads move
+ * animals at once, the store must be put in concurrent mode with setConcurrent. When grass grows as a GrassField,
+ * the store keeps the field so that sheep graze it. Everything stored for the map can be copied to or from a buffer
+ * in bulk, which is how checkpoints are written and resumed. The code changing the map passes each change on as an
+ * event with recordEvent, which records it to an EventLog and counts it in a Heatmap, if the store has either. The
+ * Heatmap is also kept up to date with the type of every position, like the DensityGrid.
+ * Organism objects are only created on request, as a copy of a position, by the organismAt and toOrganismMap methods.
+ */
+class WorldStore {
+  public static final byte EMPTY = 0;
+  public static final byte GRASS = 1;
+  public static final byte SHEEP = 2;
+  public static final byte WOLF = 3;
+
+  public static final int ROW_BYTES_PER_POSITION = 11;
+
+  // layout of the byte stored for each position
+  private static final int TYPE_MASK = 0x03;
+  private static final int FEMALE = 0x04;
+  private static final int SELECTED = 0x08;
+  private static final int MOVED_SHIFT = 4; // the turn in which the animal last moved takes the 4 highest bits
+  private static final int MOVED_MASK = 0xF0;
+
+  private int lenY, lenX;
+  private byte[] cells;
+  private float[] health;
+  
+  /*
+   * The turn in which each organism was placed. The turns an organism has survived are worked out from it when they
+   * are read, so no position has to be changed as turns go by
+   */
+  private int[] bornTurn;
+  private short[] nutrition;
+  private int turn;
+  private AnimalRoster roster;
+  private RandomSource random;
+  private CellIndex emptyCells, grassCells;
+  private CellIndex spawnPlaces; // positions marked with markSpawnable, whether or not they are empty
+  private CellIndex spawnableCells; // positions both marked with markSpawnable and empty
+  private int[] populations; // number of positions of each type, indexed by type
+  private LongAdder[] populationChanges; // changes to populations made in concurrent mode
+  private DensityGrid density; // null until setDensityBlockSize is called
+  private GrassField grassField; // null unless grass grows as a field
+  private EventLog eventLog; // null unless the changes made to the map are recorded
+  private Heatmap heatmap; // null unless where things happen on the map is counted
+  private boolean concurrent;
+  private boolean markedConcurrently; // true if markSpawnable was called during concurrent mode
+
+  WorldStore(int ySize, int xSize) {
+    this.lenY = ySize;
+    this.lenX = xSize;
+    this.cells = new byte[ySize * xSize];
+    this.health = new float[ySize * xSize];
+    this.bornTurn = new int[ySize * xSize];
+    this.nutrition = new short[ySize * xSize];
+    this.turn = 0;
+    this.roster = new AnimalRoster();
+    this.random = new CounterRandom(System.nanoTime());
+    this.emptyCells = new CellIndex(ySize * xSize, true);
+    this.grassCells = new CellIndex(ySize * xSize, false);
+    this.spawnPlaces = new CellIndex(ySize * xSize, false);
+    this.spawnableCells = new CellIndex(ySize * xSize, false);
+    this.populations = new int[4];
+    this.populations[EMPTY] = ySize * xSize;
+    this.populationChanges = new LongAdder[4];
+    for (int type = 0; type < 4; type++) {
+      this.populationChanges[type] = new LongAdder();
+    }
+    this.concurrent = false;
+    this.markedConcurrently = false;
+    this.density = null;
+    this.grassField = null;
+    this.eventLog = null;
+    this.heatmap = null;
+  }
+
+  public int getLenY() {
+    return lenY;
+  }
+
+  public int getLenX() {
+    return lenX;
+  }
+
+  public int getArea() {
+    return cells.length;
+  }
+
+  /*
+   * index
+   * This method converts a pair of coordinates on the map to the index used by every other method of the class
+   * @param yPos and xPos, integers containing vertical and horizontal coordinates on the map
+   * @return the index of that position
+   */
+  public int index(int yPos, int xPos) {
+    return yPos * lenX + xPos;
+  }
+
+  /*
+   * getType
+   * This method returns the type of organism at a position on the map
+   * @param cell, the index of the position
+   * @return one of the EMPTY, GRASS, SHEEP or WOLF constants
+   */
+  public byte getType(int cell) {
+    return (byte) (cells[cell] & TYPE_MASK);
+  }
+
+  public boolean isEmpty(int cell) {
+    return (cells[cell] & TYPE_MASK) == EMPTY;
+  }
+
+  /*
+   * isAnimal
+   * This method determines if a position on the map is occupied by a sheep or a wolf
+   * @param cell, the index of the position
+   * @return true if an animal is at that position, false otherwise
+   */
+  public boolean isAnimal(int cell) {
+    return (cells[cell] & TYPE_MASK) >= SHEEP;
+  }
+
+  /*
+   * getHealth
+   * This method returns the health of the organism at a position, which for grass growing as a GrassField is the 
+   * biomass of the position
+   * @param cell, the index of the position
+   * @return a float holding the health, 0 if the position is empty
+   */
+  public float getHealth(int cell) {
+    if ((grassField != null) && ((cells[cell] & TYPE_MASK) == GRASS)) {
+      return grassField.getBiomass(cell);
+    }
+    return health[cell];
+  }
+
+  public void setHealth(int cell, float health) {
+    this.health[cell] = health;
+  }
+
+  /*
+   * getTurnsSurvived
+   * This method finds the number of turns the organism at a position has survived, which is the number of turns
+   * started since the turn in which it was placed
+   * @param cell, the index of the position
+   * @return an integer holding the number of turns survived, or 0 if the position is empty
+   */
+  public int getTurnsSurvived(int cell) {
+    return isEmpty(cell) ? 0 : turn - bornTurn[cell];
+  }
+
+  public int getNutritionalValue(int cell) {
+    return nutrition[cell];
+  }
+
+  public boolean getIsFemale(int cell) {
+    return (cells[cell] & FEMALE) != 0;
+  }
+
+  public boolean getIsSelected(int cell) {
+    return (cells[cell] & SELECTED) != 0;
+  }
+
+  public void setSelected(int cell, boolean isSelected) {
+    setFlag(cell, SELECTED, isSelected);
+  }
+
+  /*
+   * hasMoved
+   * This method determines if the animal at a position on the map has already moved during the current turn
+   * @param cell, the index of the position
+   * @return true if the turn in which the animal last moved is the current turn, false otherwise
+   */
+  public boolean hasMoved(int cell) {
+    return (cells[cell] & MOVED_MASK) == movedBits(turn);
+  }
+
+  /*
+   * setHasMoved
+   * This method records whether or not the animal at a position on the map has moved during the current turn
+   * @param cell, the index of the position
+   * @param hasMoved, true to store the current turn, false to store the previous one
+   */
+  public void setHasMoved(int cell, boolean hasMoved) {
+    cells[cell] = (byte) ((cells[cell] & ~MOVED_MASK) | movedBits(hasMoved ? turn : turn - 1));
+  }
+
+  /*
+   * movedBits
+   * This method finds the bits stored in the byte of a position for the turn in which its animal last moved. Only the
+   * lowest 4 bits of the turn are stored. Every animal on the roster is marked as moved once per turn, which
+   * OrganismManager.movementCycle asserts, so the value stored for an animal is never old enough to be confused with
+   * the current turn
+   * @param turn, the turn
+   * @return the bits of the turn, in place in the byte
+   */
+  private static int movedBits(int turn) {
+    return (turn << MOVED_SHIFT) & MOVED_MASK;
+  }
+
+  /*
+   * nextTurn
+   * This method starts a new turn, so that no animal has moved during it yet, and compacts the roster
+   */
+  public void nextTurn() {
+    turn++;
+    roster.compact(this);
+  }
+
+  public int getTurn() {
+    return turn;
+  }
+
+  public AnimalRoster getRoster() {
+    return roster;
+  }
+
+  /*
+   * getEmptyCells
+   * This method returns the set of empty positions, which is kept up to date by the store and must not be changed
+   * @return emptyCells, the CellIndex of empty positions
+   */
+  public CellIndex getEmptyCells() {
+    return emptyCells;
+  }
+
+  /*
+   * getGrassCells
+   * This method returns the set of positions holding grass, which is kept up to date by the store and must not be
+   * changed
+   * @return grassCells, the CellIndex of positions holding grass
+   */
+  public CellIndex getGrassCells() {
+    return grassCells;
+  }
+
+  /*
+   * getSpawnableCells
+   * This method returns the set of empty positions where grass can spawn, which is kept up to date by the store and
+   * must not be changed
+   * @return spawnableCells, the CellIndex of empty positions marked with markSpawnable
+   */
+  public CellIndex getSpawnableCells() {
+    return spawnableCells;
+  }
+
+  /*
+   * getPopulation
+   * This method returns the number of positions of a type on the map, which is kept up to date by the store
+   * @param type, one of the EMPTY, GRASS, SHEEP or WOLF constants
+   * @return the number of positions holding that type
+   */
+  public int getPopulation(byte type) {
+    return populations[type];
+  }
+
+  /*
+   * getPopulations
+   * This method returns a copy of the number of positions of each type on the map
+   * @return an integer array of length 4 holding the number of positions of each type, indexed by type
+   */
+  public int[] getPopulations() {
+    return populations.clone();
+  }
+
+  /*
+   * getDensity
+   * This method returns the number of animals in square blocks of the map, which is kept up to date by the store and
+   * must not be changed
+   * @return density, the DensityGrid of the map, null if setDensityBlockSize was never called
+   */
+  public DensityGrid getDensity() {
+    return density;
+  }
+
+  /*
+   * setDensityBlockSize
+   * This method starts counting the animals in square blocks of a given size, counting every animal already on the 
+   * map again if the size changes
+   * @param blockSize, the width and height of a block
+   */
+  public void setDensityBlockSize(int blockSize) {
+    if ((density == null) || (density.getBlockSize() != blockSize)) {
+      density = new DensityGrid(this, blockSize);
+      density.setConcurrent(concurrent);
+    }
+  }
+
+  public GrassField getGrassField() {
+    return grassField;
+  }
+
+  public void setGrassField(GrassField grassField) {
+    this.grassField = grassField;
+  }
+
+  public EventLog getEventLog() {
+    return eventLog;
+  }
+
+  public void setEventLog(EventLog eventLog) {
+    this.eventLog = eventLog;
+  }
+
+  public Heatmap getHeatmap() {
+    return heatmap;
+  }
+
+  public void setHeatmap(Heatmap heatmap) {
+    this.heatmap = heatmap;
+    if (heatmap != null) {
+      heatmap.setConcurrent(concurrent);
+    }
+  }
+
+  /*
+   * recordEvent
+   * This method passes a change made to the map to the EventLog and the Heatmap, if any. Meant to be called once the
+   * change has been made, except for a STARVATION, which is passed on before the animal is removed so that the
+   * Heatmap can read its type
+   * @param kind, one of the constants of EventLog
+   * @param cell and other, the positions of the event, as EventLog.record takes them
+   */
+  public void recordEvent(byte kind, int cell, int other) {
+    if (heatmap != null) {
+      heatmap.count(kind, cell, other, getType(cell));
+    }
+    if (eventLog != null) {
+      eventLog.record(kind, cell, other);
+    }
+  }
+
+  /*
+   * eatGrass
+   * This method finds the health a sheep gains by eating the grass at a position, which is the health of the grass,
+   * or the biomass the sheep grazes if grass grows as a GrassField. The grass itself is replaced when the sheep moves
+   * to the position
+   * @param cell, the index of a position holding grass
+   * @return the health gained
+   */
+  public float eatGrass(int cell) {
+    return (grassField == null) ? health[cell] : grassField.graze(cell);
+  }
+
+  /*
+   * setConcurrent
+   * This method starts or ends concurrent mode, in which place, move and clear may be called by several threads at 
+   * once for different positions, along with markSpawnable. The sets of positions and the populations are only 
+   * brought up to date when concurrent mode ends, and new animals are not added to the roster
+   * @param concurrent, true to start concurrent mode, false to end it
+   */
+  public void setConcurrent(boolean concurrent) {
+    this.concurrent = concurrent;
+    emptyCells.setConcurrent(concurrent);
+    grassCells.setConcurrent(concurrent);
+    spawnPlaces.setConcurrent(concurrent);
+    spawnableCells.setConcurrent(concurrent);
+    if (!concurrent && markedConcurrently) {
+      spawnableCells.intersect(spawnPlaces, emptyCells);
+      markedConcurrently = false;
+    }
+    if (density != null) {
+      density.setConcurrent(concurrent);
+    }
+    if (heatmap != null) {
+      heatmap.setConcurrent(concurrent);
+    }
+    if (!concurrent) {
+      for (int type = 0; type < 4; type++) {
+        populations[type] += (int) populationChanges[type].sumThenReset();
+      }
+    }
+  }
+
+  /*
+   * markSpawnable
+   * This method marks a position as one where grass can spawn. Positions are never unmarked
+   * @param cell, the index of the position
+   */
+  public void markSpawnable(int cell) {
+    if (spawnPlaces.contains(cell)) { // already marked, so spawnableCells already knows if it is empty
+      return;
+    }
+    spawnPlaces.add(cell);
+    if (concurrent) {
+      markedConcurrently = true; // the position may be changed by another thread, so it is checked afterwards
+    } else if (isEmpty(cell)) {
+      spawnableCells.add(cell);
+    }
+  }
+
+  /*
+   * markSpawnableAround
+   * This method marks every position within a given distance of a position, in both directions, as one where grass 
+   * can spawn
+   * @param cell, the index of the position
+   * @param reach, the distance
+   */
+  public void markSpawnableAround(int cell, int reach) {
+    int yPos = cell / lenX;
+    int xPos = cell % lenX;
+    for (int i = Math.max(yPos - reach, 0); i <= Math.min(yPos + reach, lenY - 1); i++) {
+      for (int j = Math.max(xPos - reach, 0); j <= Math.min(xPos + reach, lenX - 1); j++) {
+        markSpawnable(index(i, j));
+      }
+    }
+  }
+
+  public RandomSource getRandom() {
+    return random;
+  }
+
+  public void setRandom(RandomSource random) {
+    this.random = random;
+  }
+
+  /*
+   * place
+   * This method stores a new organism at a position on the map, replacing whatever was there before. A sheep's
+   * nutritional value is determined once here, in the same way the Sheep constructor does it. A new animal is 
+   * added to the roster, unless the store is in concurrent mode, and counts as having moved during the current turn
+   * @param cell, the index of the position
+   * @param type, one of the GRASS, SHEEP or WOLF constants
+   * @param health, the initial health of the organism
+   * @param isFemale, the sex of the organism, ignored for grass
+   */
+  public void place(int cell, byte type, double health, boolean isFemale) {
+    track(cell, getType(cell), type);
+    cells[cell] = (byte) (type | ((isFemale && type >= SHEEP) ? FEMALE : 0) | movedBits(turn));
+    setInitialHealth(cell, health);
+    bornTurn[cell] = turn;
+    if ((type >= SHEEP) && !concurrent) {
+      roster.add(cell);
+    }
+  }
+
+  /*
+   * setInitialHealth
+   * This method changes the health of the organism at a position as if it had been placed with that health, 
+   * determining the nutritional value of a sheep again
+   * @param cell, the index of the position
+   * @param health, the initial health of the organism
+   */
+  public void setInitialHealth(int cell, double health) {
+    this.health[cell] = (float) health;
+    if (getType(cell) == SHEEP) {
+      nutrition[cell] = (short) Math.min((int) (health * 0.5), Short.MAX_VALUE);
+    } else {
+      nutrition[cell] = 0;
+    }
+  }
+
+  /*
+   * move
+   * This method copies everything stored at one position on the map to another position, and then makes the first
+   * position empty. The caller is responsible for adding the new position to a roster
+   * @param from and to, the indices of the two positions
+   */
+  public void move(int from, int to) {
+    track(to, getType(to), getType(from));
+    cells[to] = cells[from];
+    health[to] = health[from];
+    bornTurn[to] = bornTurn[from];
+    nutrition[to] = nutrition[from];
+    clear(from);
+  }
+
+  /*
+   * clear
+   * This method makes a position on the map empty
+   * @param cell, the index of the position
+   */
+  public void clear(int cell) {
+    track(cell, getType(cell), EMPTY);
+    cells[cell] = EMPTY;
+    health[cell] = 0;
+    bornTurn[cell] = 0;
+    nutrition[cell] = 0;
+  }
+
+  /*
+   * writeRow
+   * This method writes everything stored in a row of the map, ROW_BYTES_PER_POSITION bytes per position, so that 
+   * the row can be copied to another WorldStore with readRow. The turns each organism has survived are written
+   * rather than the turn in which it was placed. The turn in which each animal last moved is written as it is, so the
+   * two stores must count turns alike, as the strips of a ShardCoordinator do: an animal that moved into a 
+   * neighbouring strip during a turn is then still marked as moved in that strip, and does not move again until the 
+   * next turn
+   * @param yPos, the row being written
+   * @param out, the DataOutput the row is written to
+   */
+  public void writeRow(int yPos, DataOutput out) throws IOException {
+    for (int cell = index(yPos, 0); cell < index(yPos + 1, 0); cell++) {
+      out.writeByte(cells[cell]);
+      out.writeFloat(health[cell]);
+      out.writeInt(getTurnsSurvived(cell));
+      out.writeShort(nutrition[cell]);
+    }
+  }
+
+  /*
+   * readRow
+   * This method replaces a row of the map with a row written by writeRow. Positions are only marked with 
+   * markSpawnable when grass is created, which may have happened in the other store, so the positions around each 
+   * grass of the row are marked, as OrganismCreator does when it creates grass. Grass across the border of a strip 
+   * thus lets grass spawn in the rows next to it, as it would on a map that is not split
+   * @param yPos, the row being replaced
+   * @param in, the DataInput the row is read from
+   * @param addToRoster, true if the animals of the row should be added to the roster, false if the row is only a 
+   * copy of a row that is moved elsewhere
+   */
+  public void readRow(int yPos, DataInput in, boolean addToRoster) throws IOException {
+    for (int cell = index(yPos, 0); cell < index(yPos + 1, 0); cell++) {
+      byte oldType = getType(cell);
+      cells[cell] = in.readByte();
+      track(cell, oldType, getType(cell));
+      health[cell] = in.readFloat();
+      bornTurn[cell] = turn - in.readInt();
+      nutrition[cell] = in.readShort();
+      if (addToRoster && isAnimal(cell)) {
+        roster.add(cell);
+      }
+    }
+    for (int cell = index(yPos, 0); cell < index(yPos + 1, 0); cell++) {
+      if (getType(cell) == GRASS) {
+        markSpawnableAround(cell, MapManager.LEN_RESTRICTED / 2);
+      }
+    }
+  }
+
+  /*
+   * getStateBytes
+   * This method finds the number of bytes writeState writes
+   * @return the ROW_BYTES_PER_POSITION bytes of each position, plus the bytes of the positions marked with 
+   * markSpawnable
+   */
+  public long getStateBytes() {
+    return (long) ROW_BYTES_PER_POSITION * cells.length + spawnPlaces.getStateBytes();
+  }
+
+  /*
+   * writeState
+   * This method copies everything stored for the positions of the map, and the positions marked with markSpawnable,
+   * to a buffer, one array after the other in the byte order of the buffer, so that each array is copied in bulk.
+   * Unlike writeRow, the turn in which each organism was placed is written as it is
+   * @param out, the ByteBuffer written to, from its position, which is moved past what is written
+   */
+  public void writeState(ByteBuffer out) {
+    spawnPlaces.writeState(out);
+    out.asFloatBuffer().put(health);
+    out.position(out.position() + 4 * health.length);
+    out.asIntBuffer().put(bornTurn);
+    out.position(out.position() + 4 * bornTurn.length);
+    out.asShortBuffer().put(nutrition);
+    out.position(out.position() + 2 * nutrition.length);
+    out.put(cells);
+  }
+
+  /*
+   * readState
+   * This method replaces everything stored for the positions of the map with what writeState wrote, and rebuilds the
+   * sets of positions, the populations, the DensityGrid and the roster in a single scan of the map. The roster ends up 
+   * in the order compact leaves it in, so a simulation continued from here moves its animals in the same order as 
+   * the one that wrote the state. A Heatmap starts counting again from the turn read
+   * @param in, the ByteBuffer read from, from its position, which is moved past what is read
+   * @param turn, the turn at which the state was written
+   */
+  public void readState(ByteBuffer in, int turn) {
+    this.turn = turn;
+    spawnPlaces.readState(in);
+    in.asFloatBuffer().get(health);
+    in.position(in.position() + 4 * health.length);
+    in.asIntBuffer().get(bornTurn);
+    in.position(in.position() + 4 * bornTurn.length);
+    in.asShortBuffer().get(nutrition);
+    in.position(in.position() + 2 * nutrition.length);
+    in.get(cells);
+
+    long[] empty = new long[(cells.length + 63) / 64];
+    long[] grass = new long[empty.length];
+    Arrays.fill(populations, 0);
+    roster.clear();
+    for (int cell = 0; cell < cells.length; cell++) {
+      byte type = getType(cell);
+      populations[type]++;
+      if (type == EMPTY) {
+        empty[cell >>> 6] |= 1L << cell;
+      } else if (type == GRASS) {
+        grass[cell >>> 6] |= 1L << cell;
+      } else {
+        roster.add(cell);
+      }
+    }
+    emptyCells.assign(empty);
+    grassCells.assign(grass);
+    spawnableCells.intersect(spawnPlaces, emptyCells);
+    if (density != null) {
+      density = new DensityGrid(this, density.getBlockSize());
+    }
+    if (heatmap != null) {
+      heatmap = new Heatmap(this, heatmap.getBlockSize());
+    }
+  }
+
+  /*
+   * organismAt
+   * This method creates an Organism object holding a copy of what is stored at a position on the map. Changes made
+   * to the object are not stored back in the map
+   * @param yPos and xPos, integers containing vertical and horizontal coordinates on the map
+   * @return a Grass, Sheep or Wolf object, or null if the position is empty
+   */
+  public Organism organismAt(int yPos, int xPos) {
+    int cell = index(yPos, xPos);
+    Organism organism;
+    if (getType(cell) == GRASS) {
+      organism = new Grass(health[cell]);
+    } else if (getType(cell) == SHEEP) {
+      Sheep sheep = new Sheep(health[cell], getIsFemale(cell));
+      sheep.setNutrionnalValue(nutrition[cell]);
+      sheep.setHasMoved(hasMoved(cell));
+      organism = sheep;
+    } else if (getType(cell) == WOLF) {
+      Wolf wolf = new Wolf(health[cell], getIsFemale(cell));
+      wolf.setHasMoved(hasMoved(cell));
+      organism = wolf;
+    } else {
+      return null;
+    }
+
+    organism.setSelected(getIsSelected(cell));
+    organism.setTurnsSurvived(getTurnsSurvived(cell));
+    return organism;
+  }
+
+  /*
+   * toOrganismMap
+   * This method creates a 2D Organism array holding a copy of the entire map, for code that still works with
+   * Organism objects
+   * @return map, a 2D Organism array in which empty positions are null
+   */
+  public Organism[][] toOrganismMap() {
+    Organism[][] map = new Organism[lenY][lenX];
+    for (int i = 0; i < lenY; i++) {
+      for (int j = 0; j < lenX; j++) {
+        map[i][j] = organismAt(i, j);
+      }
+    }
+    return map;
+  }
+
+  /*
+   * track
+   * This method moves a position between the sets of empty positions, empty positions where grass can spawn and 
+   * positions holding grass, and updates the populations, the DensityGrid and the Heatmap, when the type stored at
+   * the position changes
+   * @param cell, the index of the position
+   * @param oldType and newType, the types stored at the position before and after the change
+   */
+  private void track(int cell, byte oldType, byte newType) {
+    if (oldType == newType) {
+      return;
+    }
+    if (concurrent) {
+      populationChanges[oldType].decrement();
+      populationChanges[newType].increment();
+    } else {
+      populations[oldType]--;
+      populations[newType]++;
+    }
+    if ((density != null) && ((oldType >= SHEEP) != (newType >= SHEEP))) {
+      density.change(cell, (newType >= SHEEP) ? 1 : -1);
+    }
+    if (heatmap != null) {
+      heatmap.change(cell, oldType, newType, turn);
+    }
+    if (oldType == EMPTY) {
+      emptyCells.remove(cell);
+      spawnableCells.remove(cell);
+    } else if (oldType == GRASS) {
+      grassCells.remove(cell);
+    }
+    if (newType == EMPTY) {
+      emptyCells.add(cell);
+      if (spawnPlaces.contains(cell)) {
+        spawnableCells.add(cell);
+      }
+    } else if (newType == GRASS) {
+      grassCells.add(cell);
+    }
+  }
+
+  /*
+   * setFlag
+   * This method sets or clears one of the flag bits stored for a position on the map
+   * @param cell, the index of the position
+   * @param flag, the bit being changed
+   * @param value, true to set the bit, false to clear it
+   */
+  private void setFlag(int cell, int flag, boolean value) {
+    if (value) {
+      cells[cell] |= flag;
+    } else {
+      cells[cell] &= ~flag;
+    }
+  }
+}